@@ -0,0 +1,40 @@
+-- Migration: Add account journal (postings and checkpoints)
+-- Every balance change is appended to account_postings under a per-account
+-- sequence number (accounts.journal_seq), and every 100th posting also
+-- writes the resulting balance to account_checkpoints. Verifying or
+-- rebuilding a balance then replays only the postings after the latest
+-- checkpoint instead of the account's whole history.
+
+ALTER TABLE accounts ADD COLUMN journal_seq BIGINT NOT NULL DEFAULT 0;
+
+CREATE TABLE account_postings (
+    account_id UUID NOT NULL,
+    seq BIGINT NOT NULL,
+    delta NUMERIC(38, 2) NOT NULL,
+    posted_at TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    CONSTRAINT pk_account_postings PRIMARY KEY (account_id, seq),
+
+    CONSTRAINT fk_account_postings_account
+        FOREIGN KEY (account_id)
+        REFERENCES accounts(id)
+        ON DELETE CASCADE
+);
+
+CREATE TABLE account_checkpoints (
+    account_id UUID NOT NULL,
+    seq BIGINT NOT NULL,
+    balance NUMERIC(38, 2) NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    CONSTRAINT pk_account_checkpoints PRIMARY KEY (account_id, seq),
+
+    CONSTRAINT fk_account_checkpoints_account
+        FOREIGN KEY (account_id)
+        REFERENCES accounts(id)
+        ON DELETE CASCADE
+);
+
+-- Existing balances become the opening checkpoint of each journal
+INSERT INTO account_checkpoints (account_id, seq, balance, created_at)
+SELECT id, 0, balance, now() FROM accounts;
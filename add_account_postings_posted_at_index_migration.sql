@@ -0,0 +1,8 @@
+-- Migration: Add account/time index on account_postings
+-- GET /accounts/{id}/balance-history reads an account's postings by time:
+-- those in [from, to] for the series, and those between the latest checkpoint
+-- and from for the opening balance. This index serves both as range scans of
+-- one account; delta is included so the sums are read from the index alone.
+
+CREATE INDEX IF NOT EXISTS idx_account_postings_account_posted_at
+    ON account_postings(account_id, posted_at) INCLUDE (delta);
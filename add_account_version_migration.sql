@@ -0,0 +1,6 @@
+-- Migration: Add optimistic lock version to accounts
+-- AccountEntity is @Version'ed so a write from a stale read on another
+-- instance fails instead of overwriting; the balance posting queries bump
+-- the version as well.
+
+ALTER TABLE accounts ADD COLUMN version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,38 @@
+-- Migration: Add category_closure table
+-- One row per (ancestor, descendant) pair of the category tree, plus a
+-- depth-0 row pairing every category with itself. Expense and income filters
+-- resolve "this category and all of its sub-categories" with a single lookup
+-- on ancestor_id instead of loading the tree one level at a time.
+
+CREATE TABLE category_closure (
+    ancestor_id UUID NOT NULL,
+    descendant_id UUID NOT NULL,
+    depth INTEGER NOT NULL,
+
+    CONSTRAINT pk_category_closure PRIMARY KEY (ancestor_id, descendant_id),
+
+    CONSTRAINT fk_category_closure_ancestor
+        FOREIGN KEY (ancestor_id)
+        REFERENCES categories(id)
+        ON DELETE CASCADE,
+
+    CONSTRAINT fk_category_closure_descendant
+        FOREIGN KEY (descendant_id)
+        REFERENCES categories(id)
+        ON DELETE CASCADE
+);
+
+-- The primary key serves subtree lookups; this one serves ancestor lookups on insert
+CREATE INDEX idx_category_closure_descendant ON category_closure(descendant_id);
+
+-- Backfill from the existing parent_id links
+WITH RECURSIVE tree (ancestor_id, descendant_id, depth) AS (
+    SELECT id, id, 0 FROM categories
+    UNION ALL
+    SELECT t.ancestor_id, c.id, t.depth + 1
+    FROM tree t
+    JOIN categories c ON c.parent_id = t.descendant_id
+)
+INSERT INTO category_closure (ancestor_id, descendant_id, depth)
+SELECT ancestor_id, descendant_id, depth FROM tree
+ON CONFLICT DO NOTHING;
@@ -0,0 +1,9 @@
+-- Migration: Add category_id indexes on the tables that reference categories
+-- DELETE /categories/{id} checks the whole subtree in one statement with
+--   EXISTS (SELECT 1 FROM <table> WHERE category_id = <descendant>)
+-- for each of these tables. Without an index every probe is a sequential scan.
+
+CREATE INDEX IF NOT EXISTS idx_expenses_category ON expenses(category_id);
+CREATE INDEX IF NOT EXISTS idx_incomes_category ON incomes(category_id);
+CREATE INDEX IF NOT EXISTS idx_budgets_category ON budgets(category_id);
+CREATE INDEX IF NOT EXISTS idx_recurring_transactions_category ON recurring_transactions(category_id);
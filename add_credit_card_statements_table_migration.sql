@@ -0,0 +1,24 @@
+-- Migration: Add credit_card_statements table
+-- One row per closed billing cycle of a credit card, written by
+-- CreditCardStatementJob once the cycle has ended. Statement views and the
+-- "last statement paid" check on GET /accounts read these rows by primary
+-- key instead of summing the cycle's expenses on every request.
+
+CREATE TABLE credit_card_statements (
+    account_id UUID NOT NULL,
+    period_start DATE NOT NULL,
+    period_end DATE NOT NULL,
+    opening_balance NUMERIC(38, 2) NOT NULL,
+    charges NUMERIC(38, 2) NOT NULL,
+    payments NUMERIC(38, 2) NOT NULL,
+    closing_balance NUMERIC(38, 2) NOT NULL,
+    due_date DATE,
+    closed_at TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    CONSTRAINT pk_credit_card_statements PRIMARY KEY (account_id, period_start),
+
+    CONSTRAINT fk_credit_card_statements_account
+        FOREIGN KEY (account_id)
+        REFERENCES accounts(id)
+        ON DELETE CASCADE
+);
@@ -0,0 +1,8 @@
+-- Migration: Add account/date index on expenses
+-- GET /accounts sums each credit card's spend since its cycle start with
+--   ... JOIN expenses e ON e.account_id = ? AND e.expense_date >= ?
+-- This index serves each card as one range scan; amount is included so the
+-- sum is read from the index alone.
+
+CREATE INDEX IF NOT EXISTS idx_expenses_account_date
+    ON expenses(account_id, expense_date) INCLUDE (amount);
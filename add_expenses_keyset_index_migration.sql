@@ -0,0 +1,7 @@
+-- Migration: Add keyset pagination index on expenses
+-- GET /expenses and POST /expenses/filter page with
+--   WHERE user_id = ? AND (expense_date, id) < (?, ?) ORDER BY expense_date DESC, id DESC LIMIT ?
+-- This index serves that as a single forward range scan per page.
+
+CREATE INDEX IF NOT EXISTS idx_expenses_user_date_id
+    ON expenses(user_id, expense_date DESC, id DESC);
@@ -0,0 +1,25 @@
+-- Migration: Add idempotency_keys table
+-- Backs the Idempotency-Key header on POST /expenses, POST /incomes,
+-- POST /debts/{id}/payments and POST /savings/{id}/contributions: one row per
+-- (user, key) holding a hash of the request and the JSON of the first
+-- response. Rows are purged once expires_at passes (IdempotencyKeyPurgeJob).
+
+CREATE TABLE idempotency_keys (
+    id UUID PRIMARY KEY,
+    user_id UUID NOT NULL,
+    idempotency_key VARCHAR(255) NOT NULL,
+    request_hash VARCHAR(64) NOT NULL,
+    response_body TEXT,
+    created_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    CONSTRAINT uq_idempotency_keys_user_key UNIQUE (user_id, idempotency_key),
+
+    CONSTRAINT fk_idempotency_key_user
+        FOREIGN KEY (user_id)
+        REFERENCES users(id)
+        ON DELETE CASCADE
+);
+
+-- Supports the expiry purge
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys(expires_at);
@@ -0,0 +1,7 @@
+-- Migration: Add account/date index on incomes
+-- GET /accounts/{id}/balance-history nets an account's expenses and incomes
+-- per day. idx_expenses_account_date already serves the expense side; this
+-- is its counterpart, so both sides are index-only scans of one account.
+
+CREATE INDEX IF NOT EXISTS idx_incomes_account_date
+    ON incomes(account_id, income_date) INCLUDE (amount);
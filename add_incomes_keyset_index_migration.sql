@@ -0,0 +1,7 @@
+-- Migration: Add keyset pagination index on incomes
+-- GET /incomes pages with
+--   WHERE user_id = ? AND (income_date, id) < (?, ?) ORDER BY income_date DESC, id DESC LIMIT ?
+-- Counterpart of idx_expenses_user_date_id: one forward range scan per page.
+
+CREATE INDEX IF NOT EXISTS idx_incomes_user_date_id
+    ON incomes(user_id, income_date DESC, id DESC);
@@ -0,0 +1,23 @@
+-- Migration: Add revoked_tokens table
+-- Individually revoked JWTs (by their "jti" claim). The application mirrors
+-- the unexpired rows into an in-memory Bloom filter, so the table is only
+-- read at startup, on periodic sync and on purge - never per request.
+
+CREATE TABLE revoked_tokens (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    token_id VARCHAR(255) NOT NULL,
+    user_id UUID NOT NULL,
+    expires_at TIMESTAMP WITH TIME ZONE NOT NULL,
+    revoked_at TIMESTAMP WITH TIME ZONE NOT NULL,
+
+    CONSTRAINT uq_revoked_tokens_token_id UNIQUE (token_id),
+
+    CONSTRAINT fk_revoked_token_user
+        FOREIGN KEY (user_id)
+        REFERENCES users(id)
+        ON DELETE CASCADE
+);
+
+-- Supports the periodic sync (revoked_at > last sync) and the expiry purge
+CREATE INDEX idx_revoked_tokens_revoked_at ON revoked_tokens(revoked_at);
+CREATE INDEX idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
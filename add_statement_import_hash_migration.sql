@@ -0,0 +1,22 @@
+-- Migration: Add import_hash to expenses and incomes
+-- Statement imports (POST /accounts/{id}/import) store a content hash per
+-- imported row; the unique constraint per account is what lets a re-import
+-- skip rows that are already there (INSERT ... ON CONFLICT DO NOTHING).
+-- Rows entered by hand keep import_hash NULL, and NULLs never conflict.
+--
+-- The unique indexes are built CONCURRENTLY and then attached as
+-- constraints, so the tables stay writable. CREATE INDEX CONCURRENTLY cannot
+-- run inside a transaction block: run this file with autocommit on.
+
+ALTER TABLE expenses ADD COLUMN IF NOT EXISTS import_hash VARCHAR(64);
+ALTER TABLE incomes ADD COLUMN IF NOT EXISTS import_hash VARCHAR(64);
+
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_expenses_account_import_hash
+    ON expenses (account_id, import_hash);
+CREATE UNIQUE INDEX CONCURRENTLY IF NOT EXISTS uk_incomes_account_import_hash
+    ON incomes (account_id, import_hash);
+
+ALTER TABLE expenses ADD CONSTRAINT uk_expenses_account_import_hash
+    UNIQUE USING INDEX uk_expenses_account_import_hash;
+ALTER TABLE incomes ADD CONSTRAINT uk_incomes_account_import_hash
+    UNIQUE USING INDEX uk_incomes_account_import_hash;
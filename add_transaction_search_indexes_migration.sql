@@ -0,0 +1,32 @@
+-- Migration: Add search indexes on expenses and incomes
+-- GET /expenses/search and /incomes/search rank prefix matches with a
+-- weighted tsvector over name (A) and description (B); the expression below
+-- must stay identical to SEARCH_DOCUMENT in ExpenseRepository/IncomeRepository.
+-- The trigram indexes serve the substring (ILIKE '%term%') search used by the
+-- listing filters.
+--
+-- CREATE INDEX CONCURRENTLY cannot run inside a transaction block: run this
+-- file with autocommit on (e.g. plain psql -f, without --single-transaction).
+-- Tables stay writable while the indexes build.
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_search
+    ON expenses USING gin ((setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+                            setweight(to_tsvector('simple', coalesce(description, '')), 'B')));
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incomes_search
+    ON incomes USING gin ((setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+                           setweight(to_tsvector('simple', coalesce(description, '')), 'B')));
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_name_trgm
+    ON expenses USING gin (name gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_expenses_description_trgm
+    ON expenses USING gin (description gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incomes_name_trgm
+    ON incomes USING gin (name gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_incomes_description_trgm
+    ON incomes USING gin (description gin_trgm_ops);
@@ -0,0 +1,7 @@
+-- Migration: Add token_version column to users
+-- JWTs carry the user's token version as the "ver" claim. Bumping the column
+-- (e.g. on password reset) invalidates every token issued before it without
+-- a per-request user lookup.
+
+ALTER TABLE users
+ADD COLUMN token_version INTEGER NOT NULL DEFAULT 0;
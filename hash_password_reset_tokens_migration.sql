@@ -0,0 +1,24 @@
+-- Migration: Store password reset tokens as SHA-256 digests
+-- The raw token now only exists in the reset email; the table keeps a
+-- fixed-length hex digest under a unique index. Outstanding tokens are
+-- short-lived (15 minutes), so they are simply dropped rather than hashed.
+
+BEGIN;
+
+-- Step 1: Drop outstanding raw tokens (users can request a new link)
+DELETE FROM password_reset_tokens;
+
+-- Step 2: Replace the raw token column with the digest column
+ALTER TABLE password_reset_tokens
+DROP COLUMN token;
+
+ALTER TABLE password_reset_tokens
+ADD COLUMN token_hash CHAR(64) NOT NULL;
+
+ALTER TABLE password_reset_tokens
+ADD CONSTRAINT uq_password_reset_tokens_token_hash UNIQUE (token_hash);
+
+-- Step 3: Index used by the batched purge job (used = true OR expires_at < now)
+CREATE INDEX idx_password_reset_tokens_expires_at ON password_reset_tokens(expires_at);
+
+COMMIT;
@@ -7,13 +7,17 @@ import com.example.financemanager.entities.PasswordResetTokenEntity;
 import com.example.financemanager.repositories.PasswordResetTokenRepository;
 import com.example.financemanager.repositories.UserRepository;
 import com.example.financemanager.service.EmailService;
+import com.example.financemanager.service.PasswordHashingService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
@@ -34,22 +38,35 @@ import java.util.UUID;
 public class AuthController {
 
         private final UserRepository userRepository;
-        private final PasswordEncoder passwordEncoder;
+        private final PasswordHashingService passwordHashingService;
         private final JwtService jwtService;
         private final PasswordResetTokenRepository passwordResetTokenRepository;
         private final EmailService emailService;
+        private final TokenVersionRegistry tokenVersionRegistry;
+        private final TokenRevocationService tokenRevocationService;
+        private final LoginRateLimiter loginRateLimiter;
+        // Short transactions around the writes only; BCrypt runs outside them
+        private final TransactionTemplate transactionTemplate;
 
         public AuthController(
                         UserRepository userRepository,
-                        PasswordEncoder passwordEncoder,
+                        PasswordHashingService passwordHashingService,
                         JwtService jwtService,
                         PasswordResetTokenRepository passwordResetTokenRepository,
-                        EmailService emailService) {
+                        EmailService emailService,
+                        TokenVersionRegistry tokenVersionRegistry,
+                        TokenRevocationService tokenRevocationService,
+                        LoginRateLimiter loginRateLimiter,
+                        PlatformTransactionManager transactionManager) {
                 this.userRepository = userRepository;
-                this.passwordEncoder = passwordEncoder;
+                this.passwordHashingService = passwordHashingService;
                 this.jwtService = jwtService;
                 this.passwordResetTokenRepository = passwordResetTokenRepository;
                 this.emailService = emailService;
+                this.tokenVersionRegistry = tokenVersionRegistry;
+                this.tokenRevocationService = tokenRevocationService;
+                this.loginRateLimiter = loginRateLimiter;
+                this.transactionTemplate = new TransactionTemplate(transactionManager);
         }
 
         @PostMapping("/signup")
@@ -66,7 +83,7 @@ public class AuthController {
                 UserEntity userEntity = new UserEntity();
                 userEntity.setEmail(req.email());
                 userEntity.setPasswordHash(
-                                passwordEncoder.encode(req.password()));
+                                passwordHashingService.encode(req.password()));
 
                 userRepository.save(userEntity);
 
@@ -78,11 +95,17 @@ public class AuthController {
         }
 
         @PostMapping("/login")
-        public ResponseEntity<ApiResponse> login(@RequestBody LoginRequest req) {
+        public ResponseEntity<ApiResponse> login(@RequestBody LoginRequest req, HttpServletRequest request) {
+
+                if (!loginRateLimiter.tryAcquire(LoginRateLimiter.LOGIN, req.email(), request.getRemoteAddr())) {
+                        throw new ResponseStatusException(
+                                        HttpStatus.TOO_MANY_REQUESTS, "Too many login attempts. Please try again later.");
+                }
 
                 Optional<UserEntity> userOpt = userRepository.findByEmail(req.email());
 
                 if (userOpt.isEmpty()) {
+                        loginRateLimiter.charge(LoginRateLimiter.LOGIN, req.email());
                         return ResponseEntity
                                         .status(HttpStatus.CONFLICT)
                                         .body(new ApiResponse(
@@ -92,13 +115,22 @@ public class AuthController {
 
                 UserEntity user = userOpt.get();
 
-                if (!passwordEncoder.matches(
+                if (!passwordHashingService.matches(
                                 req.password(), user.getPasswordHash())) {
+                        // Only failed attempts count against the email bucket
+                        loginRateLimiter.charge(LoginRateLimiter.LOGIN, req.email());
                         throw new ResponseStatusException(
                                         HttpStatus.UNAUTHORIZED, "Invalid credentials");
                 }
 
-                String token = jwtService.generateToken(user.getId(), user.getEmail());
+                // Transparently move the stored hash to the configured BCrypt cost. Only the hash column
+                // is written, and only if it hasn't changed since it was verified; a lost race keeps the new password
+                if (passwordHashingService.needsRehash(user.getPasswordHash())) {
+                        userRepository.replacePasswordHash(user.getId(), user.getPasswordHash(),
+                                        passwordHashingService.encode(req.password()));
+                }
+
+                String token = jwtService.generateToken(user.getId(), user.getEmail(), user.getTokenVersion());
 
                 return ResponseEntity
                                 .status(HttpStatus.CREATED)
@@ -117,6 +149,24 @@ public class AuthController {
                 return ResponseEntity.ok(new ApiResponse(true, "200", userDetails.getUsername()));
         }
 
+        @PostMapping("/logout")
+        public ResponseEntity<ApiResponse> logout(
+                        @AuthenticationPrincipal com.example.financemanager.service.CustomUserDetails userDetails,
+                        @RequestHeader(value = "Authorization", required = false) String authorization) {
+                if (userDetails == null || authorization == null || !authorization.startsWith("Bearer ")) {
+                        return ResponseEntity.status(HttpStatus.UNAUTHORIZED)
+                                        .body(new ApiResponse(false, "401", "Unauthorized"));
+                }
+
+                // Revoke just this token; it is rejected from now on even though it hasn't expired
+                jwtService.verify(authorization.substring(7)).ifPresent(token -> tokenRevocationService.revoke(
+                                token.jti(),
+                                userDetails.getUserId(),
+                                token.expiresAt()));
+
+                return ResponseEntity.ok(new ApiResponse(true, "200", "Logged out successfully"));
+        }
+
         @PutMapping("/change-password")
         public ResponseEntity<ApiResponse> changePassword(
                         @AuthenticationPrincipal com.example.financemanager.service.CustomUserDetails userDetails,
@@ -132,19 +182,31 @@ public class AuthController {
                                 .orElseThrow(() -> new ResponseStatusException(
                                                 HttpStatus.NOT_FOUND, "User not found"));
 
-                if (!passwordEncoder.matches(req.currentPassword(), user.getPasswordHash())) {
+                if (!passwordHashingService.matches(req.currentPassword(), user.getPasswordHash())) {
                         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
                                         .body(new ApiResponse(false, "400", "Current password is incorrect"));
                 }
 
-                user.setPasswordHash(passwordEncoder.encode(req.newPassword()));
-                userRepository.save(user);
+                String newHash = passwordHashingService.encode(req.newPassword());
+                transactionTemplate.executeWithoutResult(status -> {
+                        user.setPasswordHash(newHash);
+                        // Sign out every existing session, this one included
+                        tokenVersionRegistry.bump(user);
+                        userRepository.save(user);
+                });
 
-                return ResponseEntity.ok(new ApiResponse(true, "200", "Password changed successfully"));
+                return ResponseEntity.ok(new ApiResponse(true, "200",
+                                "Password changed successfully. Please log in again."));
         }
 
         @PostMapping("/forgot-password")
-        public ResponseEntity<ApiResponse> forgotPassword(@RequestBody ForgotPasswordRequest req) {
+        public ResponseEntity<ApiResponse> forgotPassword(@RequestBody ForgotPasswordRequest req,
+                        HttpServletRequest request) {
+                if (!loginRateLimiter.tryAcquire(LoginRateLimiter.FORGOT_PASSWORD, req.email(), request.getRemoteAddr())) {
+                        throw new ResponseStatusException(
+                                        HttpStatus.TOO_MANY_REQUESTS, "Too many requests. Please try again later.");
+                }
+
                 // Always return the same response to prevent email enumeration
                 String genericMessage = "If an account with that email exists, a password reset link has been sent.";
 
@@ -161,18 +223,26 @@ public class AuthController {
                 String rawToken = UUID.randomUUID().toString().replace("-", "");
                 Instant expiresAt = Instant.now().plus(15, ChronoUnit.MINUTES);
 
+                // Only the digest is stored; the raw token exists solely in the email
                 passwordResetTokenRepository.save(
-                        new PasswordResetTokenEntity(rawToken, user, expiresAt));
+                        new PasswordResetTokenEntity(TokenDigest.sha256Hex(rawToken), user, expiresAt));
 
                 emailService.sendPasswordResetEmail(user.getEmail(), rawToken);
+                // Only emails actually sent count against the address, capping mail to one inbox
+                loginRateLimiter.charge(LoginRateLimiter.FORGOT_PASSWORD, req.email());
 
                 return ResponseEntity.ok(new ApiResponse(true, "200", genericMessage));
         }
 
         @PostMapping("/reset-password")
         public ResponseEntity<ApiResponse> resetPassword(@RequestBody ResetPasswordRequest req) {
+                if (req.token() == null || req.token().isBlank()) {
+                        return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                                .body(new ApiResponse(false, "400", "Invalid or expired reset token"));
+                }
+
                 Optional<PasswordResetTokenEntity> tokenOpt =
-                        passwordResetTokenRepository.findByToken(req.token());
+                        passwordResetTokenRepository.findByTokenHash(TokenDigest.sha256Hex(req.token()));
 
                 if (tokenOpt.isEmpty()) {
                         return ResponseEntity.status(HttpStatus.BAD_REQUEST)
@@ -187,11 +257,16 @@ public class AuthController {
                 }
 
                 UserEntity user = tokenEntity.getUser();
-                user.setPasswordHash(passwordEncoder.encode(req.newPassword()));
-                userRepository.save(user);
-
-                tokenEntity.setUsed(true);
-                passwordResetTokenRepository.save(tokenEntity);
+                String newHash = passwordHashingService.encode(req.newPassword());
+                transactionTemplate.executeWithoutResult(status -> {
+                        user.setPasswordHash(newHash);
+                        // A reset means the account may be compromised: sign out every existing session
+                        tokenVersionRegistry.bump(user);
+                        userRepository.save(user);
+
+                        tokenEntity.setUsed(true);
+                        passwordResetTokenRepository.save(tokenEntity);
+                });
 
                 return ResponseEntity.ok(new ApiResponse(true, "200", "Password reset successfully. Please log in."));
         }
@@ -1,5 +1,6 @@
 package com.example.financemanager.auth;
 
+import com.example.financemanager.service.CustomUserDetails;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -11,6 +12,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Optional;
 import java.util.UUID;
 
 @Component
@@ -18,13 +20,16 @@ public class JwtAuthenticationFilter
         extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final CustomUserDetailsService userDetailsService;
+    private final TokenVersionRegistry tokenVersionRegistry;
+    private final TokenRevocationService tokenRevocationService;
 
     public JwtAuthenticationFilter(
             JwtService jwtService,
-            CustomUserDetailsService userDetailsService) {
+            TokenVersionRegistry tokenVersionRegistry,
+            TokenRevocationService tokenRevocationService) {
         this.jwtService = jwtService;
-        this.userDetailsService = userDetailsService;
+        this.tokenVersionRegistry = tokenVersionRegistry;
+        this.tokenRevocationService = tokenRevocationService;
     }
 
     @Override
@@ -53,15 +58,27 @@ public class JwtAuthenticationFilter
 
         String token = header.substring(7);
 
-        if (!jwtService.isTokenValid(token)) {
+        // Single parse + signature check; repeat tokens are served from the verified-claims cache
+        Optional<JwtService.VerifiedToken> verified = jwtService.verify(token);
+        if (verified.isEmpty()) {
             filterChain.doFilter(request, response);
             return;
         }
+        JwtService.VerifiedToken claims = verified.get();
 
-        UUID userId = jwtService.extractUserId(token);
+        // Bloom filter check; only a filter hit touches the exact revoked set
+        if (tokenRevocationService.isRevoked(claims.jti())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        if (!tokenVersionRegistry.isCurrent(claims.userId(), claims.version())) {
+            filterChain.doFilter(request, response);
+            return;
+        }
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(
-                jwtService.extractUserId(token).toString());
+        // Principal comes straight from the verified claims: no user lookup per request
+        UserDetails userDetails = new CustomUserDetails(claims.userId(), claims.email());
 
         UsernamePasswordAuthenticationToken auth = new UsernamePasswordAuthenticationToken(
                 userDetails, null, userDetails.getAuthorities());
@@ -1,62 +1,119 @@
 package com.example.financemanager.auth;
 
+import com.example.financemanager.service.ExpiringCache;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.nio.charset.StandardCharsets;
 import java.security.Key;
+import java.time.Instant;
 import java.util.Date;
+import java.util.Optional;
 import java.util.UUID;
 
 @Service
 public class JwtService {
 
+    public static final String EMAIL_CLAIM = "email";
+    public static final String VERSION_CLAIM = "ver";
+
     @Value("${jwt.secret}")
     private String secret;
 
     @Value("${jwt.expiration}")
     private long expiration;
 
-    public String generateToken(UUID userId, String email) {
+    @Value("${jwt.cache.max-entries:10000}")
+    private int cacheMaxEntries;
+
+    @Value("${jwt.cache.ttl-ms:300000}")
+    private long cacheTtlMs;
+
+    // Key and parser are immutable and thread-safe, so build them once
+    private Key key;
+    private JwtParser parser;
+
+    // Verified tokens keyed by the token's SHA-256 digest, so raw tokens never sit in the heap
+    private ExpiringCache<String, VerifiedToken> verifiedTokens;
+
+    @PostConstruct
+    void init() {
+        key = Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+        parser = Jwts.parserBuilder()
+                .setSigningKey(key)
+                .build();
+        verifiedTokens = new ExpiringCache<>(cacheMaxEntries);
+    }
+
+    public String generateToken(UUID userId, String email, int tokenVersion) {
         return Jwts.builder()
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userId.toString())
-                .claim("email", email)
+                .claim(EMAIL_CLAIM, email)
+                .claim(VERSION_CLAIM, tokenVersion)
                 .setIssuedAt(new Date())
                 .setExpiration(new Date(System.currentTimeMillis() + expiration))
-                .signWith(getKey(), SignatureAlgorithm.HS256)
+                .signWith(key, SignatureAlgorithm.HS256)
                 .compact();
     }
 
-    public UUID extractUserId(String token) {
-        return UUID.fromString(
-                Jwts.parserBuilder()
-                        .setSigningKey(getKey())
-                        .build()
-                        .parseClaimsJws(token)
-                        .getBody()
-                        .getSubject()
-        );
+    /**
+     * What the rest of the app needs from a verified token. Immutable, so one
+     * cached instance can be handed to every request presenting that token.
+     */
+    public record VerifiedToken(UUID userId, String email, int version, String jti, Instant expiresAt) {
     }
 
-    public boolean isTokenValid(String token) {
+    /**
+     * Parses and verifies the token once, returning its contents, or empty if the
+     * token is malformed, badly signed or expired. Successful verifications are
+     * cached until the earlier of the token's expiry and {@code jwt.cache.ttl-ms}.
+     */
+    public Optional<VerifiedToken> verify(String token) {
+        String digest = TokenDigest.sha256Hex(token);
+        VerifiedToken cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        VerifiedToken verified;
         try {
-            Jwts.parserBuilder()
-                    .setSigningKey(getKey())
-                    .build()
-                    .parseClaimsJws(token);
-            return true;
-        } catch (JwtException e) {
-            return false;
+            Claims claims = parser.parseClaimsJws(token).getBody();
+            // Tokens issued before the version claim existed count as version 0
+            Integer version = claims.get(VERSION_CLAIM, Integer.class);
+            verified = new VerifiedToken(
+                    UUID.fromString(claims.getSubject()),
+                    claims.get(EMAIL_CLAIM, String.class),
+                    version != null ? version : 0,
+                    claims.getId(),
+                    claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+        } catch (JwtException | IllegalArgumentException e) {
+            return Optional.empty();
         }
+
+        long cacheUntil = System.currentTimeMillis() + cacheTtlMs;
+        if (verified.expiresAt() != null) {
+            cacheUntil = Math.min(cacheUntil, verified.expiresAt().toEpochMilli());
+        }
+        verifiedTokens.put(digest, verified, cacheUntil);
+        return Optional.of(verified);
     }
 
-    private Key getKey() {
-        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
+    public UUID extractUserId(String token) {
+        return verify(token)
+                .map(VerifiedToken::userId)
+                .orElseThrow(() -> new JwtException("Invalid token"));
     }
-}
 
+    public boolean isTokenValid(String token) {
+        return verify(token).isPresent();
+    }
+}
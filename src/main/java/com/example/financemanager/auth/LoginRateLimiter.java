@@ -0,0 +1,157 @@
+package com.example.financemanager.auth;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Token-bucket throttling for the public auth endpoints, keyed by client IP
+ * and by email. Buckets live in fixed arrays of atomic longs (keys are hashed
+ * onto stripes, so memory stays constant however many clients show up) and
+ * refill continuously with time. Callers check before doing any hashing or
+ * database work.
+ *
+ * Every request costs an IP token. The email is chosen by the caller, so its
+ * bucket is only charged for failures (see {@link #charge}); otherwise anyone
+ * could lock a victim out just by sending requests with their address.
+ * The client IP must be the real one: behind the load balancer that relies on
+ * server.forward-headers-strategy.
+ */
+@Component
+public class LoginRateLimiter {
+
+    public static final String LOGIN = "login";
+    public static final String FORGOT_PASSWORD = "forgot-password";
+
+    private final Map<String, Counter> rejections = new HashMap<>();
+
+    @Value("${auth.throttle.stripes:16384}")
+    private int stripes;
+
+    @Value("${auth.throttle.ip.burst:20}")
+    private int ipBurst;
+
+    @Value("${auth.throttle.ip.refill-ms:1000}")
+    private long ipRefillMs;
+
+    @Value("${auth.throttle.email.burst:5}")
+    private int emailBurst;
+
+    @Value("${auth.throttle.email.refill-ms:12000}")
+    private long emailRefillMs;
+
+    private StripedBuckets ipBuckets;
+    private StripedBuckets emailBuckets;
+
+    public LoginRateLimiter(MeterRegistry meterRegistry) {
+        for (String endpoint : List.of(LOGIN, FORGOT_PASSWORD)) {
+            for (String key : List.of("ip", "email")) {
+                rejections.put(endpoint + '|' + key, Counter.builder("auth.throttle.rejected")
+                        .tag("endpoint", endpoint)
+                        .tag("key", key)
+                        .register(meterRegistry));
+            }
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        ipBuckets = new StripedBuckets(stripes, ipBurst, ipRefillMs);
+        emailBuckets = new StripedBuckets(stripes, emailBurst, emailRefillMs);
+    }
+
+    /**
+     * Takes one token from the IP bucket of the endpoint and checks, without
+     * charging it, that the email bucket is not empty. Returns false (and
+     * counts the rejection) when either is exhausted.
+     */
+    public boolean tryAcquire(String endpoint, String email, String clientIp) {
+        if (clientIp != null && !ipBuckets.tryAcquire(endpoint + '|' + clientIp)) {
+            reject(endpoint, "ip");
+            return false;
+        }
+        if (email != null && !emailBuckets.hasCapacity(emailKey(endpoint, email))) {
+            reject(endpoint, "email");
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Takes one token from the email bucket of the endpoint: called for a
+     * failed login, or for each reset email actually sent.
+     */
+    public void charge(String endpoint, String email) {
+        if (email != null) {
+            emailBuckets.tryAcquire(emailKey(endpoint, email));
+        }
+    }
+
+    private static String emailKey(String endpoint, String email) {
+        return endpoint + '|' + email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void reject(String endpoint, String key) {
+        Counter counter = rejections.get(endpoint + '|' + key);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    /**
+     * Each stripe holds the "theoretical arrival time" of its bucket (GCRA):
+     * a request is allowed if, after adding one refill interval, that time is
+     * no further ahead of now than the burst allows. One CAS per request.
+     */
+    private static final class StripedBuckets {
+
+        private final AtomicLongArray tat;
+        private final int mask;
+        private final long intervalNanos;
+        private final long toleranceNanos;
+        // Offsets nanoTime so "now" starts at zero and an untouched stripe (0) is a full bucket
+        private final long origin = System.nanoTime();
+
+        StripedBuckets(int stripes, int burst, long refillMs) {
+            int size = Integer.highestOneBit(Math.max(1, stripes - 1)) << 1;
+            this.tat = new AtomicLongArray(size);
+            this.mask = size - 1;
+            this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(refillMs);
+            this.toleranceNanos = intervalNanos * Math.max(1, burst);
+        }
+
+        boolean hasCapacity(String key) {
+            long now = System.nanoTime() - origin;
+            return Math.max(tat.get(index(key)), now) + intervalNanos - now <= toleranceNanos;
+        }
+
+        boolean tryAcquire(String key) {
+            int index = index(key);
+            long now = System.nanoTime() - origin;
+            while (true) {
+                long current = tat.get(index);
+                long next = Math.max(current, now) + intervalNanos;
+                if (next - now > toleranceNanos) {
+                    return false;
+                }
+                if (tat.compareAndSet(index, current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        private int index(String key) {
+            int h = key.hashCode();
+            return (h ^ (h >>> 16)) & mask;
+        }
+    }
+}
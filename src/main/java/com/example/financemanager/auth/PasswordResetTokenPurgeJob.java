@@ -0,0 +1,50 @@
+package com.example.financemanager.auth;
+
+import com.example.financemanager.repositories.PasswordResetTokenRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Removes used and expired password reset tokens so the table stays small.
+ * Deletes in bounded batches, each in its own transaction, so the job never
+ * holds row locks for long.
+ */
+@Component
+public class PasswordResetTokenPurgeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordResetTokenPurgeJob.class);
+
+    private final PasswordResetTokenRepository passwordResetTokenRepository;
+
+    @Value("${auth.reset-token.purge-batch-size:500}")
+    private int batchSize;
+
+    @Value("${auth.reset-token.purge-max-batches:200}")
+    private int maxBatches;
+
+    public PasswordResetTokenPurgeJob(PasswordResetTokenRepository passwordResetTokenRepository) {
+        this.passwordResetTokenRepository = passwordResetTokenRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${auth.reset-token.purge-interval-ms:3600000}",
+            initialDelayString = "${auth.reset-token.purge-interval-ms:3600000}")
+    public void purge() {
+        Instant now = Instant.now();
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int deleted = passwordResetTokenRepository.deleteUsedOrExpiredBatch(now, batchSize);
+            total += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Purged {} used or expired password reset tokens", total);
+        }
+    }
+}
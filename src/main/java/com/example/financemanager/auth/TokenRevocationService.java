@@ -0,0 +1,110 @@
+package com.example.financemanager.auth;
+
+import com.example.financemanager.entities.RevokedTokenEntity;
+import com.example.financemanager.repositories.RevokedTokenRepository;
+import com.example.financemanager.service.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Revocation of individual JWTs (by their "jti" claim). The revoked_tokens
+ * table is the source of truth; it is mirrored in memory as a Bloom filter in
+ * front of an exact set, so the common not-revoked case is answered by the
+ * filter alone and no request ever queries the table.
+ */
+@Service
+public class TokenRevocationService {
+
+    private final RevokedTokenRepository revokedTokenRepository;
+
+    @Value("${auth.revocation.bloom.expected-insertions:100000}")
+    private long expectedInsertions;
+
+    @Value("${auth.revocation.bloom.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private volatile BloomFilter filter;
+    private volatile Set<String> revoked;
+    private volatile Instant lastSync;
+
+    public TokenRevocationService(RevokedTokenRepository revokedTokenRepository) {
+        this.revokedTokenRepository = revokedTokenRepository;
+    }
+
+    @PostConstruct
+    void load() {
+        rebuild();
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (tokenId == null || !filter.mightContain(tokenId)) {
+            return false;
+        }
+        return revoked.contains(tokenId);
+    }
+
+    public void revoke(String tokenId, UUID userId, Instant expiresAt) {
+        if (tokenId == null || isRevoked(tokenId)) {
+            return;
+        }
+        if (!revokedTokenRepository.existsByTokenId(tokenId)) {
+            revokedTokenRepository.save(new RevokedTokenEntity(tokenId, userId, expiresAt, Instant.now()));
+        }
+        remember(tokenId);
+    }
+
+    /**
+     * Picks up revocations written by other instances since the last sync.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.sync-interval-ms:30000}")
+    public void sync() {
+        Instant now = Instant.now();
+        // Overlap a little so rows committed while the previous sync ran are not missed
+        Instant since = lastSync.minusSeconds(5);
+        for (String tokenId : revokedTokenRepository.findTokenIdsRevokedSince(since, now)) {
+            remember(tokenId);
+        }
+        lastSync = now;
+    }
+
+    /**
+     * Deletes rows whose tokens have expired anyway, then rebuilds the
+     * in-memory mirror, since entries cannot be removed from a Bloom filter.
+     */
+    @Scheduled(fixedDelayString = "${auth.revocation.purge-interval-ms:3600000}")
+    public void purge() {
+        revokedTokenRepository.deleteExpired(Instant.now());
+        rebuild();
+    }
+
+    private synchronized void rebuild() {
+        Instant now = Instant.now();
+        List<String> active = revokedTokenRepository.findActiveTokenIds(now);
+
+        BloomFilter newFilter = new BloomFilter(
+                Math.max(expectedInsertions, 2L * active.size()), falsePositiveRate);
+        Set<String> newRevoked = ConcurrentHashMap.newKeySet(Math.max(16, active.size()));
+        for (String tokenId : active) {
+            newFilter.put(tokenId);
+            newRevoked.add(tokenId);
+        }
+
+        revoked = newRevoked;
+        filter = newFilter;
+        lastSync = now;
+    }
+
+    private synchronized void remember(String tokenId) {
+        // Exact set first: a filter hit must never find the set without the id
+        revoked.add(tokenId);
+        filter.put(tokenId);
+    }
+}
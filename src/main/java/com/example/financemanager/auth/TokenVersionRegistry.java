@@ -0,0 +1,80 @@
+package com.example.financemanager.auth;
+
+import com.example.financemanager.entities.UserEntity;
+import com.example.financemanager.repositories.UserRepository;
+import com.example.financemanager.service.ExpiringCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.UUID;
+
+/**
+ * Current token version per user, so the JWT filter can reject stale tokens
+ * without loading the user on every request. The users table is the source
+ * of truth; versions read from it are cached for
+ * {@code auth.token-version.cache-ttl-ms}, which bounds how long a bump made
+ * on another instance can go unseen here. Bumps made on this instance are
+ * applied to the cache as soon as they commit.
+ */
+@Component
+public class TokenVersionRegistry {
+
+    private final UserRepository userRepository;
+
+    @Value("${auth.token-version.cache-max-entries:100000}")
+    private int cacheMaxEntries;
+
+    @Value("${auth.token-version.cache-ttl-ms:10000}")
+    private long cacheTtlMs;
+
+    private ExpiringCache<UUID, Integer> versions;
+
+    public TokenVersionRegistry(UserRepository userRepository) {
+        this.userRepository = userRepository;
+    }
+
+    @PostConstruct
+    void init() {
+        versions = new ExpiringCache<>(cacheMaxEntries);
+    }
+
+    /**
+     * False when the token predates the user's last bump, or the user no
+     * longer exists.
+     */
+    public boolean isCurrent(UUID userId, int tokenVersion) {
+        Integer current = versions.get(userId);
+        if (current == null) {
+            current = userRepository.findTokenVersionById(userId).orElse(null);
+            if (current == null) {
+                return false;
+            }
+            versions.put(userId, current, System.currentTimeMillis() + cacheTtlMs);
+        }
+        return tokenVersion >= current;
+    }
+
+    /**
+     * Increments the user's token version, invalidating all previously issued
+     * tokens. Must run in the transaction that saves the entity; the cache
+     * only learns the new version once that transaction commits, so a failed
+     * save leaves tokens at the stored version valid.
+     */
+    public void bump(UserEntity user) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("TokenVersionRegistry.bump requires a transaction");
+        }
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        UUID userId = user.getId();
+        int version = user.getTokenVersion();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                versions.put(userId, version, System.currentTimeMillis() + cacheTtlMs);
+            }
+        });
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.financemanager.configuration;
 
+import jakarta.servlet.DispatcherType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationProvider;
@@ -7,6 +8,8 @@ import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 
 import com.example.financemanager.auth.JwtAuthenticationFilter;
+import com.example.financemanager.dto.TransactionCursor;
+import com.example.financemanager.service.IdempotencyService;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.SecurityFilterChain;
@@ -39,6 +42,8 @@ public class SecurityConfig {
                                 .csrf(csrf -> csrf.disable())
                                 .sessionManagement(sm -> sm.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
                                 .authorizeHttpRequests(auth -> auth
+                                                // Async re-dispatch of streaming responses; the original request was already authorized
+                                                .dispatcherTypeMatchers(DispatcherType.ASYNC).permitAll()
                                                 .requestMatchers("/error").permitAll()
                                                 .requestMatchers(org.springframework.http.HttpMethod.OPTIONS, "/**")
                                                 .permitAll()
@@ -68,9 +73,11 @@ public class SecurityConfig {
                                 "Origin",
                                 "Accept",
                                 "X-Requested-With",
+                                IdempotencyService.HEADER,
                                 "Access-Control-Request-Method",
                                 "Access-Control-Request-Headers"));
-                config.setExposedHeaders(List.of("Authorization"));
+                config.setExposedHeaders(List.of("Authorization", TransactionCursor.NEXT_CURSOR_HEADER,
+                                IdempotencyService.REPLAYED_HEADER));
                 config.setAllowCredentials(true);
                 config.setMaxAge(3600L); // Cache preflight response for 1 hour
 
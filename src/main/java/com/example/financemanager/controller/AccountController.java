@@ -1,23 +1,40 @@
 package com.example.financemanager.controller;
 
 import com.example.financemanager.dto.AccountDTO;
+import com.example.financemanager.dto.AccountJournalStatus;
+import com.example.financemanager.dto.BalanceHistory;
+import com.example.financemanager.dto.StatementImportResult;
 import com.example.financemanager.entities.AccountEntity;
+import com.example.financemanager.entities.CreditCardStatementEntity;
 import com.example.financemanager.repositories.AccountRepository;
+import com.example.financemanager.repositories.CreditCardStatementRepository;
 import com.example.financemanager.repositories.ExpenseRepository;
 import com.example.financemanager.repositories.IncomeRepository;
 import com.example.financemanager.repositories.UserRepository;
+import com.example.financemanager.service.AccountJournalService;
+import com.example.financemanager.service.AccountRecalculationService;
+import com.example.financemanager.service.BalanceHistoryService;
+import com.example.financemanager.service.CreditCardStatementService;
 import com.example.financemanager.service.CustomUserDetails;
+import com.example.financemanager.service.PostingCoordinator;
+import com.example.financemanager.service.StatementImportService;
+import com.example.financemanager.service.StatementParser;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
-import java.util.stream.Collectors;
-import com.example.financemanager.entities.ExpenseEntity;
 
 @RestController
 @RequestMapping("/accounts")
@@ -27,31 +44,51 @@ public class AccountController {
     private final UserRepository userRepository;
     private final ExpenseRepository expenseRepository;
     private final IncomeRepository incomeRepository;
+    private final CreditCardStatementRepository statementRepository;
+    private final StatementImportService statementImportService;
+    private final AccountJournalService accountJournalService;
+    private final AccountRecalculationService accountRecalculationService;
+    private final BalanceHistoryService balanceHistoryService;
+    private final PostingCoordinator postingCoordinator;
 
     public AccountController(AccountRepository accountRepository, UserRepository userRepository,
-            ExpenseRepository expenseRepository, IncomeRepository incomeRepository) {
+            ExpenseRepository expenseRepository, IncomeRepository incomeRepository,
+            CreditCardStatementRepository statementRepository,
+            StatementImportService statementImportService, AccountJournalService accountJournalService,
+            AccountRecalculationService accountRecalculationService, BalanceHistoryService balanceHistoryService,
+            PostingCoordinator postingCoordinator) {
         this.accountRepository = accountRepository;
         this.userRepository = userRepository;
         this.expenseRepository = expenseRepository;
         this.incomeRepository = incomeRepository;
+        this.statementRepository = statementRepository;
+        this.statementImportService = statementImportService;
+        this.accountJournalService = accountJournalService;
+        this.accountRecalculationService = accountRecalculationService;
+        this.balanceHistoryService = balanceHistoryService;
+        this.postingCoordinator = postingCoordinator;
     }
 
     @GetMapping
     public List<AccountDTO> getAccounts(@AuthenticationPrincipal CustomUserDetails user) {
-        return accountRepository.findByUserId(user.getUserId()).stream()
-                .map(this::convertToDTO)
-                .collect(Collectors.toList());
+        return convertToDTOs(accountRepository.findByUserId(user.getUserId()));
     }
 
     @PostMapping
+    @Transactional
     public AccountDTO createAccount(@AuthenticationPrincipal CustomUserDetails user, @RequestBody AccountDTO dto) {
         AccountEntity account = new AccountEntity();
         account.setUser(userRepository.getReferenceById(user.getUserId()));
+        account.setBalance(dto.getBalance());
         mapDtoToEntity(dto, account);
-        return convertToDTO(accountRepository.save(account));
+        AccountEntity saved = accountRepository.saveAndFlush(account);
+        // The opening balance is the journal's starting point
+        accountRepository.checkpointCurrent(saved.getId());
+        return convertToDTO(saved);
     }
 
     @PutMapping("/{id}")
+    @Transactional
     public AccountDTO updateAccount(@AuthenticationPrincipal CustomUserDetails user, @PathVariable UUID id,
             @RequestBody AccountDTO dto) {
         AccountEntity account = accountRepository.findById(id)
@@ -62,7 +99,14 @@ public class AccountController {
         }
 
         mapDtoToEntity(dto, account);
-        return convertToDTO(accountRepository.save(account));
+        AccountEntity saved = accountRepository.save(account);
+        // The balance column isn't written with the row; an edited balance is
+        // journaled as an adjustment instead, and a missing one left as it is
+        if (dto.getBalance() != null) {
+            postingCoordinator.adjustTo(id, user.getUserId(), dto.getBalance());
+        }
+        saved.setBalance(accountRepository.findBalanceById(id).orElseThrow());
+        return convertToDTO(saved);
     }
 
     @PostMapping("/{id}/recalculate")
@@ -75,27 +119,89 @@ public class AccountController {
             throw new RuntimeException("Unauthorized");
         }
 
-        BigDecimal totalExpenses = expenseRepository.findByAccount_Id(id).stream()
-                .map(e -> e.getAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal totalIncomes = incomeRepository.findByAccount_Id(id).stream()
-                .map(i -> i.getAmount())
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
-        BigDecimal newBalance;
-        if (account.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-            // For CC, balance = spent - paid
-            // In our system, expenses increase CC balance (spent), incomes decrease it
-            // (paid)
-            newBalance = totalExpenses.subtract(totalIncomes);
-        } else {
-            // For Savings, balance = incomes - expenses
-            newBalance = totalIncomes.subtract(totalExpenses);
+        account.setBalance(accountRecalculationService.recalculate(id, user.getUserId()));
+        return convertToDTO(account);
+    }
+
+    // Same as /{id}/recalculate for every account of the user, in one aggregate query
+    @PostMapping("/recalculate")
+    @Transactional
+    public List<AccountDTO> recalculateAllBalances(@AuthenticationPrincipal CustomUserDetails user) {
+        Map<UUID, BigDecimal> balances = accountRecalculationService.recalculateAll(user.getUserId());
+        List<AccountEntity> accounts = accountRepository.findByUserId(user.getUserId());
+        accounts.forEach(account -> account.setBalance(balances.get(account.getId())));
+        return convertToDTOs(accounts);
+    }
+
+    /**
+     * Balance over time for charts: one point per day, week or month with
+     * postings in [from, to], replayed from the account journal.
+     */
+    @GetMapping("/{id}/balance-history")
+    public BalanceHistory getBalanceHistory(@AuthenticationPrincipal CustomUserDetails user, @PathVariable UUID id,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(required = false) String granularity) {
+        return balanceHistoryService.history(id, user.getUserId(), from, to, granularity);
+    }
+
+    // Closed statements of a credit card, newest first
+    @GetMapping("/{id}/statements")
+    public List<CreditCardStatementEntity> getStatements(@AuthenticationPrincipal CustomUserDetails user,
+            @PathVariable UUID id) {
+        AccountEntity account = accountRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+
+        if (!account.getUser().getId().equals(user.getUserId())) {
+            throw new RuntimeException("Unauthorized");
+        }
+
+        return statementRepository.findByAccountIdOrderByPeriodStartDesc(id);
+    }
+
+    @GetMapping("/{id}/statements/{periodStart}")
+    public CreditCardStatementEntity getStatement(@AuthenticationPrincipal CustomUserDetails user,
+            @PathVariable UUID id,
+            @PathVariable @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate periodStart) {
+        AccountEntity account = accountRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+
+        if (!account.getUser().getId().equals(user.getUserId())) {
+            throw new RuntimeException("Unauthorized");
         }
 
-        account.setBalance(newBalance);
-        return convertToDTO(accountRepository.save(account));
+        return statementRepository.findById(new CreditCardStatementEntity.Key(id, periodStart))
+                .orElseThrow(() -> new RuntimeException("Statement not found"));
+    }
+
+    // Checks the balance against the account journal, replaying postings since the last checkpoint
+    @GetMapping("/{id}/journal")
+    public AccountJournalStatus verifyJournal(@AuthenticationPrincipal CustomUserDetails user, @PathVariable UUID id) {
+        return accountJournalService.verify(id, user.getUserId());
+    }
+
+    @PostMapping("/{id}/journal/recalculate")
+    public AccountJournalStatus recalculateFromJournal(@AuthenticationPrincipal CustomUserDetails user,
+            @PathVariable UUID id) {
+        return accountJournalService.recalculate(id, user.getUserId());
+    }
+
+    /**
+     * Imports a CSV or OFX bank statement into the account: money out becomes
+     * expenses, money in incomes. Rows already imported are skipped, so an
+     * overlapping statement can be uploaded again safely.
+     */
+    @PostMapping(value = "/{id}/import", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public StatementImportResult importStatement(@AuthenticationPrincipal CustomUserDetails user,
+            @PathVariable UUID id,
+            @RequestParam("file") MultipartFile file,
+            @RequestParam(required = false) String format,
+            @RequestParam(required = false) String dateFormat,
+            @RequestParam(required = false) UUID expenseCategoryId,
+            @RequestParam(required = false) UUID incomeCategoryId) throws IOException {
+        return statementImportService.importStatement(user.getUserId(), id, file.getInputStream(),
+                StatementParser.Format.of(format, file.getOriginalFilename()), dateFormat,
+                expenseCategoryId, incomeCategoryId);
     }
 
     @DeleteMapping("/{id}")
@@ -112,57 +218,97 @@ public class AccountController {
     }
 
     private AccountDTO convertToDTO(AccountEntity entity) {
-        AccountDTO dto = new AccountDTO();
-        dto.setId(entity.getId());
-        dto.setName(entity.getName());
-        dto.setType(entity.getType());
-        dto.setBalance(entity.getBalance());
-        dto.setBankName(entity.getBankName());
-        dto.setBillingCycleStartDay(entity.getBillingCycleStartDay());
-        dto.setBillDateDay(entity.getBillDateDay());
-        dto.setDueDateDay(entity.getDueDateDay());
+        return convertToDTOs(List.of(entity)).get(0);
+    }
 
-        if (entity.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-            Integer cycleStartDay = entity.getBillingCycleStartDay();
-            if (cycleStartDay != null) {
-                LocalDate today = LocalDate.now();
-                LocalDate cycleStartDate;
-                int day = cycleStartDay;
-
-                // Handle valid days for months
-                if (today.getDayOfMonth() < day) {
-                    LocalDate lastMonth = today.minusMonths(1);
-                    cycleStartDate = lastMonth.withDayOfMonth(Math.min(day, lastMonth.lengthOfMonth()));
-                } else {
-                    cycleStartDate = today.withDayOfMonth(Math.min(day, today.lengthOfMonth()));
-                }
+    /**
+     * Converts accounts to DTOs with the credit card figures filled in. The
+     * current cycle spend of every card comes from one grouped query, each
+     * card summed from its own cycle start. Last statement figures come from
+     * the closed statements (a primary key probe per card) plus one grouped
+     * query for payments since; a card without a closed statement yet falls
+     * back to balance minus current cycle spend.
+     */
+    private List<AccountDTO> convertToDTOs(List<AccountEntity> accounts) {
+        LocalDate today = LocalDate.now();
+        List<UUID> cardIds = new ArrayList<>();
+        List<LocalDate> cycleStarts = new ArrayList<>();
+        for (AccountEntity account : accounts) {
+            if (account.getType() == AccountEntity.AccountType.CREDIT_CARD
+                    && account.getBillingCycleStartDay() != null) {
+                cardIds.add(account.getId());
+                cycleStarts.add(CreditCardStatementService.cycleStart(account.getBillingCycleStartDay(), today));
+            }
+        }
 
-                List<ExpenseEntity> cycleExpenses = expenseRepository
-                        .findByAccount_IdAndExpenseDateGreaterThanEqual(entity.getId(), cycleStartDate);
-                BigDecimal currentCycleSpent = cycleExpenses.stream()
-                        .map(ExpenseEntity::getAmount)
-                        .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<UUID, BigDecimal> cycleSpent = new HashMap<>();
+        Map<UUID, CreditCardStatementEntity> statements = new HashMap<>();
+        Map<UUID, BigDecimal> paidSinceStatement = new HashMap<>();
+        if (!cardIds.isEmpty()) {
+            UUID[] ids = cardIds.toArray(new UUID[0]);
+            expenseRepository.sumByAccountSince(ids, cycleStarts.toArray(new LocalDate[0]))
+                    .forEach(total -> cycleSpent.put(total.accountId(), total.total()));
+            statementRepository.findLatestByAccountIds(ids)
+                    .forEach(statement -> statements.put(statement.getAccountId(), statement));
+            if (!statements.isEmpty()) {
+                UUID[] statementIds = statements.keySet().toArray(new UUID[0]);
+                LocalDate[] since = new LocalDate[statementIds.length];
+                for (int i = 0; i < statementIds.length; i++) {
+                    since[i] = statements.get(statementIds[i]).getPeriodEnd().plusDays(1);
+                }
+                incomeRepository.sumByAccountSince(statementIds, since)
+                        .forEach(total -> paidSinceStatement.put(total.accountId(), total.total()));
+            }
+        }
 
+        List<AccountDTO> dtos = new ArrayList<>(accounts.size());
+        for (AccountEntity account : accounts) {
+            AccountDTO dto = toDTO(account);
+            BigDecimal currentCycleSpent = cycleSpent.get(account.getId());
+            if (currentCycleSpent != null) {
                 dto.setCurrentCycleSpent(currentCycleSpent);
 
-                // Last Statement Balance = Total Balance - Current Cycle Spent
-                // If total balance (total debt) is 1500 and 500 is from this cycle, then 1000
-                // is from last statement
-                BigDecimal lastStatementBalance = entity.getBalance().subtract(currentCycleSpent);
+                CreditCardStatementEntity statement = statements.get(account.getId());
+                BigDecimal lastStatementBalance;
+                BigDecimal outstanding;
+                if (statement != null) {
+                    lastStatementBalance = statement.getClosingBalance();
+                    outstanding = lastStatementBalance.subtract(paidSinceStatement.get(account.getId()));
+                    dto.setLastStatementDueDate(statement.getDueDate());
+                } else {
+                    // Last Statement Balance = Total Balance - Current Cycle Spent
+                    // If total balance (total debt) is 1500 and 500 is from this cycle, then 1000
+                    // is from last statement
+                    lastStatementBalance = account.getBalance().subtract(currentCycleSpent);
+                    outstanding = lastStatementBalance;
+                }
                 dto.setLastStatementBalance(lastStatementBalance);
 
                 // Paid if last statement balance is zero or less (meaning fully paid off)
-                dto.setLastStatementPaid(lastStatementBalance.compareTo(BigDecimal.ZERO) <= 0);
+                dto.setLastStatementPaid(outstanding.compareTo(BigDecimal.ZERO) <= 0);
             }
+            dtos.add(dto);
         }
+        return dtos;
+    }
 
+    private AccountDTO toDTO(AccountEntity entity) {
+        AccountDTO dto = new AccountDTO();
+        dto.setId(entity.getId());
+        dto.setName(entity.getName());
+        dto.setType(entity.getType());
+        dto.setBalance(entity.getBalance());
+        dto.setBankName(entity.getBankName());
+        dto.setBillingCycleStartDay(entity.getBillingCycleStartDay());
+        dto.setBillDateDay(entity.getBillDateDay());
+        dto.setDueDateDay(entity.getDueDateDay());
         return dto;
     }
 
+    // Everything but the balance, which only changes through the journal once the account exists
     private void mapDtoToEntity(AccountDTO dto, AccountEntity entity) {
         entity.setName(dto.getName());
         entity.setType(dto.getType());
-        entity.setBalance(dto.getBalance());
         entity.setBankName(dto.getBankName());
         entity.setBillingCycleStartDay(dto.getBillingCycleStartDay());
         entity.setBillDateDay(dto.getBillDateDay());
@@ -1,18 +1,17 @@
 package com.example.financemanager.controller;
 
 import com.example.financemanager.entities.CategoryEntity;
+import com.example.financemanager.repositories.CategoryClosureRepository;
 import com.example.financemanager.repositories.CategoryRepository;
-import com.example.financemanager.repositories.BudgetRepository;
-import com.example.financemanager.repositories.ExpenseRepository;
-import com.example.financemanager.repositories.IncomeRepository;
 import com.example.financemanager.repositories.UserRepository;
 import com.example.financemanager.service.CustomUserDetails;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @RestController
@@ -21,20 +20,14 @@ public class CategoryController {
 
     private final CategoryRepository categoryRepository;
     private final UserRepository userRepository;
-    private final ExpenseRepository expenseRepository;
-    private final IncomeRepository incomeRepository;
-    private final BudgetRepository budgetRepository;
+    private final CategoryClosureRepository categoryClosureRepository;
 
     public CategoryController(CategoryRepository categoryRepository,
             UserRepository userRepository,
-            ExpenseRepository expenseRepository,
-            IncomeRepository incomeRepository,
-            BudgetRepository budgetRepository) {
+            CategoryClosureRepository categoryClosureRepository) {
         this.categoryRepository = categoryRepository;
         this.userRepository = userRepository;
-        this.expenseRepository = expenseRepository;
-        this.incomeRepository = incomeRepository;
-        this.budgetRepository = budgetRepository;
+        this.categoryClosureRepository = categoryClosureRepository;
     }
 
     @GetMapping
@@ -55,6 +48,7 @@ public class CategoryController {
     }
 
     @PostMapping
+    @Transactional
     public CategoryEntity createCategory(@AuthenticationPrincipal CustomUserDetails user,
             @RequestBody com.example.financemanager.dto.CategoryDTO dto) {
         CategoryEntity category = new CategoryEntity();
@@ -109,10 +103,13 @@ public class CategoryController {
             }
         }
 
-        return categoryRepository.save(category);
+        CategoryEntity saved = categoryRepository.save(category);
+        categoryClosureRepository.insertCategory(saved.getId(), dto.getParentId());
+        return saved;
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public ResponseEntity<?> deleteCategory(@AuthenticationPrincipal CustomUserDetails user, @PathVariable UUID id) {
         CategoryEntity category = categoryRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Category not found"));
@@ -121,29 +118,16 @@ public class CategoryController {
             throw new RuntimeException("Unauthorized to delete this category");
         }
 
-        // Collect all categories in the hierarchy
-        List<CategoryEntity> allCategories = new ArrayList<>();
-        collectHierarchy(category, allCategories);
-
-        // Check if any category in the hierarchy is in use
-        for (CategoryEntity cat : allCategories) {
-            if (expenseRepository.existsByCategory_Id(cat.getId()) ||
-                    incomeRepository.existsByCategory_Id(cat.getId()) ||
-                    budgetRepository.existsByCategory_Id(cat.getId())) {
-                return ResponseEntity.badRequest().body("Category \"" + cat.getName()
-                        + "\" or one of its sub-categories is in use and cannot be deleted. " +
-                        "Please reassign associated transactions/budgets first.");
-            }
+        // One query covers the whole hierarchy: expenses, incomes, budgets and recurring templates
+        Optional<String> inUse = categoryClosureRepository.findNameInUseInSubtree(category.getId());
+        if (inUse.isPresent()) {
+            return ResponseEntity.badRequest().body("Category \"" + inUse.get()
+                    + "\" or one of its sub-categories is in use and cannot be deleted. " +
+                    "Please reassign associated transactions/budgets first.");
         }
 
+        categoryClosureRepository.deleteSubtree(category.getId());
         categoryRepository.delete(category);
         return ResponseEntity.ok().build();
     }
-
-    private void collectHierarchy(CategoryEntity category, List<CategoryEntity> list) {
-        list.add(category);
-        for (CategoryEntity sub : category.getSubCategories()) {
-            collectHierarchy(sub, list);
-        }
-    }
 }
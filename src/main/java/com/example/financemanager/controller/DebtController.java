@@ -5,11 +5,16 @@ import com.example.financemanager.entities.CategoryEntity;
 import com.example.financemanager.entities.DebtEntity;
 import com.example.financemanager.entities.ExpenseEntity;
 import com.example.financemanager.repositories.AccountRepository;
+import com.example.financemanager.repositories.CategoryClosureRepository;
 import com.example.financemanager.repositories.CategoryRepository;
 import com.example.financemanager.repositories.DebtRepository;
 import com.example.financemanager.repositories.ExpenseRepository;
 import com.example.financemanager.repositories.UserRepository;
 import com.example.financemanager.service.CustomUserDetails;
+import com.example.financemanager.service.IdempotencyService;
+import com.example.financemanager.service.PostingCoordinator;
+import com.example.financemanager.service.TransactionSearchIndex;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.transaction.annotation.Transactional;
@@ -31,15 +36,26 @@ public class DebtController {
     private final CategoryRepository categoryRepository;
     private final ExpenseRepository expenseRepository;
     private final AccountRepository accountRepository;
+    private final PostingCoordinator postingCoordinator;
+    private final CategoryClosureRepository categoryClosureRepository;
+    private final TransactionSearchIndex transactionSearchIndex;
+    private final IdempotencyService idempotencyService;
 
     public DebtController(DebtRepository debtRepository, UserRepository userRepository,
             CategoryRepository categoryRepository, ExpenseRepository expenseRepository,
-            AccountRepository accountRepository) {
+            AccountRepository accountRepository, CategoryClosureRepository categoryClosureRepository,
+            TransactionSearchIndex transactionSearchIndex,
+            IdempotencyService idempotencyService,
+            PostingCoordinator postingCoordinator) {
         this.debtRepository = debtRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.expenseRepository = expenseRepository;
         this.accountRepository = accountRepository;
+        this.postingCoordinator = postingCoordinator;
+        this.categoryClosureRepository = categoryClosureRepository;
+        this.transactionSearchIndex = transactionSearchIndex;
+        this.idempotencyService = idempotencyService;
     }
 
     @GetMapping
@@ -82,10 +98,20 @@ public class DebtController {
         return debtRepository.save(debt);
     }
 
+    /**
+     * With an Idempotency-Key header, a retried request returns the first
+     * response instead of recording the payment (and moving the balance) again.
+     */
     @PostMapping("/{id}/payments")
     @Transactional
-    public DebtEntity recordPayment(@PathVariable UUID id, @AuthenticationPrincipal CustomUserDetails user,
+    public ResponseEntity<?> recordPayment(@PathVariable UUID id, @AuthenticationPrincipal CustomUserDetails user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody DebtPaymentDTO paymentDto) {
+        return idempotencyService.execute(user.getUserId(), idempotencyKey, "POST /debts/" + id + "/payments", paymentDto,
+                () -> recordPayment(id, user, paymentDto));
+    }
+
+    private DebtEntity recordPayment(UUID id, CustomUserDetails user, DebtPaymentDTO paymentDto) {
         DebtEntity debt = debtRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Debt record not found"));
 
@@ -112,7 +138,9 @@ public class DebtController {
                     newCat.setType("EXPENSE");
                     newCat.setUser(userRepository.getReferenceById(user.getUserId()));
                     newCat.setAllowedNestingDepth(0);
-                    return categoryRepository.save(newCat);
+                    CategoryEntity saved = categoryRepository.save(newCat);
+                    categoryClosureRepository.insertCategory(saved.getId(), null);
+                    return saved;
                 });
 
         ExpenseEntity expense = new ExpenseEntity();
@@ -134,17 +162,13 @@ public class DebtController {
             expense.setAccount(account);
 
             // Update Account Balance
-            if (account.getType() == com.example.financemanager.entities.AccountEntity.AccountType.CREDIT_CARD) {
-                account.setBalance(account.getBalance().add(paymentAmount));
-            } else {
-                account.setBalance(account.getBalance().subtract(paymentAmount));
-            }
-            accountRepository.save(account);
+            postingCoordinator.post(account.getId(), user.getUserId(), account.expenseDelta(paymentAmount));
         } else {
             throw new RuntimeException("Account is mandatory for debt payments");
         }
 
         expenseRepository.save(expense);
+        transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.EXPENSE, user.getUserId());
 
         return debt;
     }
@@ -200,16 +224,12 @@ public class DebtController {
         // Handle Account Balance Adjustment if account is linked
         com.example.financemanager.entities.AccountEntity account = payment.getAccount();
         if (account != null) {
-            BigDecimal diff = newAmount.subtract(oldAmount);
-            if (account.getType() == com.example.financemanager.entities.AccountEntity.AccountType.CREDIT_CARD) {
-                account.setBalance(account.getBalance().add(diff));
-            } else {
-                account.setBalance(account.getBalance().subtract(diff));
-            }
-            accountRepository.save(account);
+            postingCoordinator.post(account.getId(), user.getUserId(),
+                    account.expenseDelta(newAmount.subtract(oldAmount)));
         }
 
         expenseRepository.save(payment);
+        transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.EXPENSE, user.getUserId());
         return debtRepository.save(debt);
     }
 
@@ -238,15 +258,12 @@ public class DebtController {
         // Revert account balance if linked
         com.example.financemanager.entities.AccountEntity account = payment.getAccount();
         if (account != null) {
-            if (account.getType() == com.example.financemanager.entities.AccountEntity.AccountType.CREDIT_CARD) {
-                account.setBalance(account.getBalance().subtract(payment.getAmount()));
-            } else {
-                account.setBalance(account.getBalance().add(payment.getAmount()));
-            }
-            accountRepository.save(account);
+            postingCoordinator.post(account.getId(), user.getUserId(),
+                    account.expenseDelta(payment.getAmount()).negate());
         }
 
         expenseRepository.delete(payment);
+        transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.EXPENSE, user.getUserId());
         return debtRepository.save(debt);
     }
 
@@ -1,47 +1,88 @@
 package com.example.financemanager.controller;
 
+import com.example.financemanager.dto.ExpenseDTO;
+import com.example.financemanager.entities.CategoryEntity;
 import com.example.financemanager.entities.ExpenseEntity;
+import com.example.financemanager.entities.UserEntity;
 import com.example.financemanager.repositories.AccountRepository;
 import com.example.financemanager.repositories.CategoryRepository;
 import com.example.financemanager.repositories.ExpenseRepository;
 import com.example.financemanager.repositories.UserRepository;
 import com.example.financemanager.service.CustomUserDetails;
+import com.example.financemanager.service.IdempotencyService;
+import com.example.financemanager.service.PostingCoordinator;
+import com.example.financemanager.service.SearchTokenizer;
+import com.example.financemanager.service.TransactionSearchIndex;
+import com.example.financemanager.service.TransactionExportService;
+import com.example.financemanager.service.TransactionFilterService;
+import com.example.financemanager.service.TransactionSummaryService;
 import com.example.financemanager.entities.AccountEntity;
 import com.example.financemanager.dto.ExpenseFilterDTO;
+import com.example.financemanager.dto.TransactionCursor;
+import com.example.financemanager.dto.TransactionSummary;
+import com.example.financemanager.dto.TransactionView;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.math.BigDecimal;
 
 import java.time.LocalDate;
-import java.time.YearMonth;
-import java.util.Collection;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
 @RequestMapping("/expenses")
 public class ExpenseController {
 
+    private static final int MAX_BATCH_SIZE = 1000;
+
     private final CategoryRepository categoryRepository;
     private final ExpenseRepository expenseRepository;
     private final UserRepository userRepository;
     private final AccountRepository accountRepository;
+    private final PostingCoordinator postingCoordinator;
+    private final TransactionExportService transactionExportService;
+    private final TransactionSearchIndex transactionSearchIndex;
+    private final TransactionFilterService transactionFilterService;
+    private final TransactionSummaryService transactionSummaryService;
+    private final IdempotencyService idempotencyService;
 
     public ExpenseController(
             ExpenseRepository expenseRepository,
             UserRepository userRepository,
             CategoryRepository categoryRepository,
-            AccountRepository accountRepository) {
+            AccountRepository accountRepository,
+            TransactionExportService transactionExportService,
+            TransactionSearchIndex transactionSearchIndex,
+            TransactionFilterService transactionFilterService,
+            TransactionSummaryService transactionSummaryService,
+            IdempotencyService idempotencyService,
+            PostingCoordinator postingCoordinator) {
         this.expenseRepository = expenseRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.accountRepository = accountRepository;
+        this.postingCoordinator = postingCoordinator;
+        this.transactionExportService = transactionExportService;
+        this.transactionSearchIndex = transactionSearchIndex;
+        this.transactionFilterService = transactionFilterService;
+        this.transactionSummaryService = transactionSummaryService;
+        this.idempotencyService = idempotencyService;
     }
 
     @GetMapping
-    public List<ExpenseEntity> getExpenses(
+    public ResponseEntity<List<TransactionView>> getExpenses(
             @AuthenticationPrincipal CustomUserDetails user,
             @RequestParam(required = false) Integer month,
             @RequestParam(required = false) Integer year,
@@ -49,101 +90,96 @@ public class ExpenseController {
             @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE) LocalDate toDate,
             @RequestParam(required = false) java.util.UUID categoryId,
             @RequestParam(required = false) java.util.UUID accountId,
-            @RequestParam(required = false) String search) {
-
-        LocalDate start = fromDate;
-        LocalDate end = toDate;
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
 
-        // If no explicit dates, use month boundaries as default context
-        if (start == null && end == null && month != null && year != null) {
-            YearMonth yearMonth = YearMonth.of(year, month);
-            start = yearMonth.atDay(1);
-            end = yearMonth.atEndOfMonth();
-        }
-
-        Collection<UUID> categoryIds = null;
-        if (categoryId != null) {
-            categoryIds = new HashSet<>();
-            categoryIds.add(categoryId);
-            com.example.financemanager.entities.CategoryEntity category = categoryRepository.findById(categoryId)
-                    .orElse(null);
-            if (category != null) {
-                collectCategoryIdsRecursively(category, categoryIds);
-            }
-        }
-
-        // Use proven stable methods for simple date/month queries
-        if (categoryIds == null && accountId == null && search == null) {
-            if (start != null && end != null) {
-                return expenseRepository.findByUserIdAndExpenseDateBetweenOrderByExpenseDateDesc(user.getUserId(),
-                        start,
-                        end);
-            }
-        }
-
-        // Use the comprehensive filter query if ANY filter (including
-        // category/account/search) is active
-        if (start != null || end != null || categoryIds != null || accountId != null || search != null) {
-            return expenseRepository.findFilteredExpenses(user.getUserId(), start, end, categoryIds, accountId, search);
-        }
-
-        // Fallback to absolute everything (usually only for deep debugging or uncaught
-        // cases)
-        return expenseRepository.findByUserId(user.getUserId());
+        // Always one keyset page (DEFAULT_PAGE_SIZE rows without a limit); X-Next-Cursor fetches the next
+        return expensePage(user.getUserId(), TransactionFilterService.Filter.of(month, year, fromDate, toDate,
+                categoryId, accountId, search), limit, cursor);
     }
 
     @PostMapping("/filter")
-    public List<ExpenseEntity> getFilteredExpenses(
+    public ResponseEntity<List<TransactionView>> getFilteredExpenses(
             @AuthenticationPrincipal CustomUserDetails user,
             @RequestBody ExpenseFilterDTO filter) {
 
-        LocalDate start = filter.getFromDate();
-        LocalDate end = filter.getToDate();
-
-        // If no explicit dates, use month boundaries as default context
-        if (start == null && end == null && filter.getMonth() != null && filter.getYear() != null) {
-            YearMonth yearMonth = YearMonth.of(filter.getYear(), filter.getMonth());
-            start = yearMonth.atDay(1);
-            end = yearMonth.atEndOfMonth();
-        }
+        // Always one keyset page, as for GET /expenses
+        return expensePage(user.getUserId(), TransactionFilterService.Filter.of(filter),
+                filter.getLimit(), filter.getCursor());
+    }
 
-        Collection<UUID> categoryIds = null;
-        if (filter.getCategoryId() != null) {
-            categoryIds = new HashSet<>();
-            categoryIds.add(filter.getCategoryId());
-            com.example.financemanager.entities.CategoryEntity category = categoryRepository
-                    .findById(filter.getCategoryId())
-                    .orElse(null);
-            if (category != null) {
-                collectCategoryIdsRecursively(category, categoryIds);
-            }
-        }
+    /**
+     * Totals of the matching expenses overall and by category, day and account.
+     * Takes the same filters as the listing (limit and cursor are ignored).
+     */
+    @PostMapping("/summary")
+    public TransactionSummary summarizeExpenses(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @RequestBody ExpenseFilterDTO filter) {
+        return transactionSummaryService.summarizeExpenses(user.getUserId(), filter);
+    }
 
-        // Use proven stable methods for simple date/month queries
-        if (categoryIds == null && filter.getAccountId() == null && filter.getSearch() == null) {
-            if (start != null && end != null) {
-                return expenseRepository.findByUserIdAndExpenseDateBetweenOrderByExpenseDateDesc(user.getUserId(),
-                        start,
-                        end);
-            }
+    /**
+     * Prefix search over expense names and descriptions, served by the full-text
+     * index. Every word of q must match the start of a word; ranked by ts_rank,
+     * so name matches come first, then newest first. The search parameter of the listing endpoints is
+     * a different, substring match (ILIKE) and does not go through this index.
+     */
+    @GetMapping("/search")
+    public List<TransactionView> searchExpenses(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        String query = SearchTokenizer.toPrefixTsQuery(q);
+        if (query == null) {
+            return List.of();
         }
-
-        // Use the comprehensive filter query if ANY filter (including
-        // category/account/search) is active
-        if (start != null || end != null || categoryIds != null || filter.getAccountId() != null
-                || filter.getSearch() != null) {
-            return expenseRepository.findFilteredExpenses(user.getUserId(), start, end, categoryIds,
-                    filter.getAccountId(), filter.getSearch());
+        int size = TransactionCursor.pageSize(limit);
+        // Search-as-you-type is answered from memory once the user's index is warm
+        List<TransactionView> indexed = transactionSearchIndex.search(TransactionSearchIndex.Kind.EXPENSE,
+                user.getUserId(), q, size);
+        if (indexed != null) {
+            return indexed;
         }
+        return expenseRepository.searchRanked(user.getUserId(), query, size);
+    }
 
-        // Fallback to absolute everything
-        return expenseRepository.findByUserId(user.getUserId());
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportExpenses(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.parse(format);
+        UUID userId = user.getUserId();
+
+        // Rows are written as they come off the database cursor; nothing is buffered in a List
+        StreamingResponseBody body = out -> transactionExportService.exportExpenses(userId, fromDate, toDate,
+                exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"expenses." + exportFormat.extension() + "\"")
+                .body(body);
     }
 
+    /**
+     * With an Idempotency-Key header, a retried request returns the first
+     * response instead of creating the expense (and moving the balance) again.
+     */
     @PostMapping
-    public ExpenseEntity createExpense(
+    @Transactional
+    public ResponseEntity<?> createExpense(
             @AuthenticationPrincipal CustomUserDetails user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody com.example.financemanager.dto.ExpenseDTO dto) {
+        return idempotencyService.execute(user.getUserId(), idempotencyKey, "POST /expenses", dto,
+                () -> createExpense(user, dto));
+    }
+
+    private TransactionView createExpense(CustomUserDetails user, com.example.financemanager.dto.ExpenseDTO dto) {
         ExpenseEntity expense = new ExpenseEntity();
         expense.setUser(userRepository.getReferenceById(user.getUserId()));
 
@@ -151,18 +187,92 @@ public class ExpenseController {
 
         // Update Balance
         AccountEntity account = expense.getAccount();
-        if (account.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-            account.setBalance(account.getBalance().add(expense.getAmount()));
-        } else {
-            account.setBalance(account.getBalance().subtract(expense.getAmount()));
+        postingCoordinator.post(account.getId(), user.getUserId(), account.expenseDelta(expense.getAmount()));
+
+        ExpenseEntity saved = expenseRepository.save(expense);
+        transactionSearchIndex.onSaved(saved);
+        return TransactionView.of(saved);
+    }
+
+    /**
+     * Creates many expenses at once, all or nothing. Category and account
+     * ownership is checked with one IN query each, the rows go out as JDBC
+     * batches, and every account's balance is written once with the net of
+     * its items.
+     */
+    @PostMapping("/batch")
+    @Transactional
+    public List<TransactionView> createExpenses(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @RequestBody List<ExpenseDTO> items) {
+        if (items == null || items.isEmpty()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "At least one expense is required");
+        }
+        if (items.size() > MAX_BATCH_SIZE) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + MAX_BATCH_SIZE + " expenses per batch");
+        }
+        UUID userId = user.getUserId();
+
+        Set<UUID> categoryIds = new HashSet<>();
+        Set<UUID> accountIds = new HashSet<>();
+        for (int i = 0; i < items.size(); i++) {
+            ExpenseDTO dto = items.get(i);
+            if (dto.getAmount() == null || dto.getCategoryId() == null || dto.getAccountId() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                        "Expense " + i + ": amount, category and account are mandatory");
+            }
+            categoryIds.add(dto.getCategoryId());
+            accountIds.add(dto.getAccountId());
+        }
+
+        // Ids the user doesn't own come back missing, same as ids that don't exist
+        Map<UUID, CategoryEntity> categories = new HashMap<>();
+        for (CategoryEntity category : categoryRepository.findByUserIdAndIdIn(userId, categoryIds)) {
+            categories.put(category.getId(), category);
+        }
+        Map<UUID, AccountEntity> accounts = new HashMap<>();
+        for (AccountEntity account : accountRepository.findByUserIdAndIdIn(userId, accountIds)) {
+            accounts.put(account.getId(), account);
+        }
+
+        UserEntity owner = userRepository.getReferenceById(userId);
+        List<ExpenseEntity> expenses = new ArrayList<>(items.size());
+        Map<UUID, BigDecimal> balanceDeltas = new HashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            ExpenseDTO dto = items.get(i);
+            CategoryEntity category = categories.get(dto.getCategoryId());
+            if (category == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expense " + i + ": category not found");
+            }
+            AccountEntity account = accounts.get(dto.getAccountId());
+            if (account == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Expense " + i + ": account not found");
+            }
+
+            ExpenseEntity expense = new ExpenseEntity();
+            expense.setUser(owner);
+            expense.setName(dto.getName());
+            expense.setDescription(dto.getDescription());
+            expense.setAmount(dto.getAmount());
+            expense.setExpenseDate(dto.getDate());
+            expense.setCategory(category);
+            expense.setAccount(account);
+            expenses.add(expense);
+
+            balanceDeltas.merge(account.getId(), account.expenseDelta(dto.getAmount()), BigDecimal::add);
         }
-        accountRepository.save(account);
 
-        return expenseRepository.save(expense);
+        postingCoordinator.postAll(balanceDeltas, userId);
+
+        List<ExpenseEntity> saved = expenseRepository.saveAll(expenses);
+        transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.EXPENSE, userId);
+        return saved.stream().map(TransactionView::of).toList();
     }
 
     @PutMapping("/{id}")
-    public ExpenseEntity updateExpense(
+    @Transactional
+    public TransactionView updateExpense(
             @PathVariable java.util.UUID id,
             @AuthenticationPrincipal CustomUserDetails user,
             @RequestBody com.example.financemanager.dto.ExpenseDTO dto) {
@@ -184,44 +294,25 @@ public class ExpenseController {
 
         if (oldAccount == null) {
             // Old record had no account, just update the new one
-            if (newAccount.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                newAccount.setBalance(newAccount.getBalance().add(newAmount));
-            } else {
-                newAccount.setBalance(newAccount.getBalance().subtract(newAmount));
-            }
-            accountRepository.save(newAccount);
+            postingCoordinator.post(newAccount.getId(), user.getUserId(), newAccount.expenseDelta(newAmount));
         } else if (oldAccount.getId().equals(newAccount.getId())) {
-            // Same account: adjust balance
-            if (newAccount.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                // For CC: subtract old, add new
-                newAccount.setBalance(newAccount.getBalance().subtract(oldAmount).add(newAmount));
-            } else {
-                // For Savings: add old, subtract new
-                newAccount.setBalance(newAccount.getBalance().add(oldAmount).subtract(newAmount));
-            }
-            accountRepository.save(newAccount);
+            // Same account: post only the difference
+            postingCoordinator.post(newAccount.getId(), user.getUserId(),
+                    newAccount.expenseDelta(newAmount.subtract(oldAmount)));
         } else {
-            // Different accounts
-            if (oldAccount.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                oldAccount.setBalance(oldAccount.getBalance().subtract(oldAmount));
-            } else {
-                oldAccount.setBalance(oldAccount.getBalance().add(oldAmount));
-            }
-
-            if (newAccount.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                newAccount.setBalance(newAccount.getBalance().add(newAmount));
-            } else {
-                newAccount.setBalance(newAccount.getBalance().subtract(newAmount));
-            }
-
-            accountRepository.save(oldAccount);
-            accountRepository.save(newAccount);
+            // Different accounts: reverse on the old one, apply on the new one
+            postingCoordinator.postAll(Map.of(
+                    oldAccount.getId(), oldAccount.expenseDelta(oldAmount).negate(),
+                    newAccount.getId(), newAccount.expenseDelta(newAmount)), user.getUserId());
         }
 
-        return expenseRepository.save(expense);
+        ExpenseEntity saved = expenseRepository.save(expense);
+        transactionSearchIndex.onSaved(saved);
+        return TransactionView.of(saved);
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public void deleteExpense(
             @PathVariable java.util.UUID id,
             @AuthenticationPrincipal CustomUserDetails user) {
@@ -235,15 +326,32 @@ public class ExpenseController {
         // Update Balance
         AccountEntity account = expense.getAccount();
         if (account != null) {
-            if (account.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                account.setBalance(account.getBalance().subtract(expense.getAmount()));
-            } else {
-                account.setBalance(account.getBalance().add(expense.getAmount()));
-            }
-            accountRepository.save(account);
+            postingCoordinator.post(account.getId(), user.getUserId(),
+                    account.expenseDelta(expense.getAmount()).negate());
         }
 
         expenseRepository.delete(expense);
+        transactionSearchIndex.onDeleted(TransactionSearchIndex.Kind.EXPENSE, user.getUserId(), id);
+    }
+
+    private ResponseEntity<List<TransactionView>> expensePage(UUID userId, TransactionFilterService.Filter filter,
+            Integer limit, String cursor) {
+        int pageSize = TransactionCursor.pageSize(limit);
+        TransactionCursor after = cursor != null ? TransactionCursor.decode(cursor) : null;
+
+        // Only the filters given become predicates, so each combination gets its own index-friendly plan;
+        // fetch one extra row to learn whether another page follows
+        List<TransactionView> rows = transactionFilterService.findExpenses(userId, filter, after, pageSize + 1);
+
+        if (rows.size() <= pageSize) {
+            return ResponseEntity.ok(rows);
+        }
+        List<TransactionView> page = new ArrayList<>(rows.subList(0, pageSize));
+        TransactionView last = page.get(pageSize - 1);
+        return ResponseEntity.ok()
+                .header(TransactionCursor.NEXT_CURSOR_HEADER,
+                        new TransactionCursor(last.date(), last.id()).encode())
+                .body(page);
     }
 
     private void mapDtoToEntity(com.example.financemanager.dto.ExpenseDTO dto, ExpenseEntity expense,
@@ -277,14 +385,4 @@ public class ExpenseController {
             throw new RuntimeException("Account is mandatory for expenses");
         }
     }
-
-    private void collectCategoryIdsRecursively(com.example.financemanager.entities.CategoryEntity category,
-            Collection<UUID> ids) {
-        if (category.getSubCategories() != null) {
-            for (com.example.financemanager.entities.CategoryEntity sub : category.getSubCategories()) {
-                ids.add(sub.getId());
-                collectCategoryIdsRecursively(sub, ids);
-            }
-        }
-    }
 }
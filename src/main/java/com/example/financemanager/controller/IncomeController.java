@@ -2,7 +2,11 @@ package com.example.financemanager.controller;
 
 import java.math.BigDecimal;
 
+import com.example.financemanager.dto.ExpenseFilterDTO;
 import com.example.financemanager.dto.IncomeDTO;
+import com.example.financemanager.dto.TransactionCursor;
+import com.example.financemanager.dto.TransactionSummary;
+import com.example.financemanager.dto.TransactionView;
 import com.example.financemanager.entities.CategoryEntity;
 import com.example.financemanager.entities.IncomeEntity;
 import com.example.financemanager.repositories.AccountRepository;
@@ -11,14 +15,24 @@ import com.example.financemanager.repositories.IncomeRepository;
 import com.example.financemanager.repositories.UserRepository;
 import com.example.financemanager.entities.AccountEntity;
 import com.example.financemanager.service.CustomUserDetails;
+import com.example.financemanager.service.IdempotencyService;
+import com.example.financemanager.service.PostingCoordinator;
+import com.example.financemanager.service.SearchTokenizer;
+import com.example.financemanager.service.TransactionSearchIndex;
+import com.example.financemanager.service.TransactionExportService;
+import com.example.financemanager.service.TransactionFilterService;
+import com.example.financemanager.service.TransactionSummaryService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
-import java.time.YearMonth;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -29,17 +43,35 @@ public class IncomeController {
     private final CategoryRepository categoryRepository;
     private final UserRepository userRepository;
     private final AccountRepository accountRepository;
+    private final PostingCoordinator postingCoordinator;
+    private final TransactionExportService transactionExportService;
+    private final TransactionSearchIndex transactionSearchIndex;
+    private final TransactionFilterService transactionFilterService;
+    private final TransactionSummaryService transactionSummaryService;
+    private final IdempotencyService idempotencyService;
 
     public IncomeController(IncomeRepository incomeRepository, CategoryRepository categoryRepository,
-            UserRepository userRepository, AccountRepository accountRepository) {
+            UserRepository userRepository, AccountRepository accountRepository,
+            TransactionExportService transactionExportService,
+            TransactionSearchIndex transactionSearchIndex,
+            TransactionFilterService transactionFilterService,
+            TransactionSummaryService transactionSummaryService,
+            IdempotencyService idempotencyService,
+            PostingCoordinator postingCoordinator) {
         this.incomeRepository = incomeRepository;
         this.categoryRepository = categoryRepository;
         this.userRepository = userRepository;
         this.accountRepository = accountRepository;
+        this.postingCoordinator = postingCoordinator;
+        this.transactionExportService = transactionExportService;
+        this.transactionSearchIndex = transactionSearchIndex;
+        this.transactionFilterService = transactionFilterService;
+        this.transactionSummaryService = transactionSummaryService;
+        this.idempotencyService = idempotencyService;
     }
 
     @GetMapping
-    public List<IncomeEntity> getIncomes(
+    public ResponseEntity<List<TransactionView>> getIncomes(
             @AuthenticationPrincipal CustomUserDetails user,
             @RequestParam(required = false) Integer month,
             @RequestParam(required = false) Integer year,
@@ -47,64 +79,117 @@ public class IncomeController {
             @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE) LocalDate toDate,
             @RequestParam(required = false) UUID categoryId,
             @RequestParam(required = false) UUID accountId,
-            @RequestParam(required = false) String search) {
-
-        LocalDate start = fromDate;
-        LocalDate end = toDate;
-
-        // If no explicit dates, use month boundaries as default context
-        if (start == null && end == null && month != null && year != null) {
-            YearMonth yearMonth = YearMonth.of(year, month);
-            start = yearMonth.atDay(1);
-            end = yearMonth.atEndOfMonth();
+            @RequestParam(required = false) String search,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String cursor) {
+
+        // Always one keyset page (DEFAULT_PAGE_SIZE rows without a limit); X-Next-Cursor fetches the next
+        int pageSize = TransactionCursor.pageSize(limit);
+        TransactionCursor after = cursor != null ? TransactionCursor.decode(cursor) : null;
+
+        // Only the filters given become predicates, so each combination gets its own index-friendly plan;
+        // fetch one extra row to learn whether another page follows
+        List<TransactionView> rows = transactionFilterService.findIncomes(user.getUserId(),
+                TransactionFilterService.Filter.of(month, year, fromDate, toDate, categoryId, accountId, search),
+                after, pageSize + 1);
+
+        if (rows.size() <= pageSize) {
+            return ResponseEntity.ok(rows);
         }
+        List<TransactionView> page = new ArrayList<>(rows.subList(0, pageSize));
+        TransactionView last = page.get(pageSize - 1);
+        return ResponseEntity.ok()
+                .header(TransactionCursor.NEXT_CURSOR_HEADER,
+                        new TransactionCursor(last.date(), last.id()).encode())
+                .body(page);
+    }
 
-        Collection<UUID> categoryIds = null;
-        if (categoryId != null) {
-            categoryIds = new HashSet<>();
-            categoryIds.add(categoryId);
-            CategoryEntity category = categoryRepository.findById(categoryId)
-                    .orElse(null);
-            if (category != null) {
-                collectCategoryIdsRecursively(category, categoryIds);
-            }
-        }
+    /**
+     * Totals of the matching incomes overall and by category, day and account.
+     * Takes the same filters as the listing (limit and cursor are ignored).
+     */
+    @PostMapping("/summary")
+    public TransactionSummary summarizeIncomes(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @RequestBody ExpenseFilterDTO filter) {
+        return transactionSummaryService.summarizeIncomes(user.getUserId(), filter);
+    }
 
-        // Use proven stable methods for simple date/month queries
-        if (accountId == null && categoryIds == null && search == null) {
-            if (start != null && end != null) {
-                return incomeRepository.findByUserIdAndIncomeDateBetweenOrderByIncomeDateDesc(user.getUserId(), start,
-                        end);
-            }
+    /**
+     * Prefix search over income names and descriptions, served by the full-text
+     * index. Every word of q must match the start of a word; ranked by ts_rank,
+     * so name matches come first, then newest first. The search parameter of the listing endpoints is
+     * a different, substring match (ILIKE) and does not go through this index.
+     */
+    @GetMapping("/search")
+    public List<TransactionView> searchIncomes(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @RequestParam String q,
+            @RequestParam(required = false) Integer limit) {
+        String query = SearchTokenizer.toPrefixTsQuery(q);
+        if (query == null) {
+            return List.of();
         }
-
-        if (start != null || end != null || accountId != null || categoryIds != null || search != null) {
-            return incomeRepository.findFilteredIncomes(user.getUserId(), start, end, accountId, categoryIds, search);
+        int size = TransactionCursor.pageSize(limit);
+        // Search-as-you-type is answered from memory once the user's index is warm
+        List<TransactionView> indexed = transactionSearchIndex.search(TransactionSearchIndex.Kind.INCOME,
+                user.getUserId(), q, size);
+        if (indexed != null) {
+            return indexed;
         }
+        return incomeRepository.searchRanked(user.getUserId(), query, size);
+    }
 
-        return incomeRepository.findByUserIdOrderByIncomeDateDesc(user.getUserId());
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportIncomes(
+            @AuthenticationPrincipal CustomUserDetails user,
+            @RequestParam(defaultValue = "csv") String format,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE) LocalDate fromDate,
+            @RequestParam(required = false) @org.springframework.format.annotation.DateTimeFormat(iso = org.springframework.format.annotation.DateTimeFormat.ISO.DATE) LocalDate toDate) {
+        TransactionExportService.Format exportFormat = TransactionExportService.Format.parse(format);
+        UUID userId = user.getUserId();
+
+        // Rows are written as they come off the database cursor; nothing is buffered in a List
+        StreamingResponseBody body = out -> transactionExportService.exportIncomes(userId, fromDate, toDate,
+                exportFormat, out);
+
+        return ResponseEntity.ok()
+                .contentType(exportFormat.mediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        "attachment; filename=\"incomes." + exportFormat.extension() + "\"")
+                .body(body);
     }
 
+    /**
+     * With an Idempotency-Key header, a retried request returns the first
+     * response instead of creating the income (and moving the balance) again.
+     */
     @PostMapping
-    public IncomeEntity createIncome(@AuthenticationPrincipal CustomUserDetails user, @RequestBody IncomeDTO dto) {
+    @Transactional
+    public ResponseEntity<?> createIncome(@AuthenticationPrincipal CustomUserDetails user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
+            @RequestBody IncomeDTO dto) {
+        return idempotencyService.execute(user.getUserId(), idempotencyKey, "POST /incomes", dto,
+                () -> createIncome(user, dto));
+    }
+
+    private TransactionView createIncome(CustomUserDetails user, IncomeDTO dto) {
         IncomeEntity income = new IncomeEntity();
         income.setUser(userRepository.getReferenceById(user.getUserId()));
         populateEntityFromDTO(income, dto, user.getUserId());
 
         // Update Account Balance
         AccountEntity account = income.getAccount();
-        if (account.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-            account.setBalance(account.getBalance().subtract(income.getAmount()));
-        } else {
-            account.setBalance(account.getBalance().add(income.getAmount()));
-        }
-        accountRepository.save(account);
+        postingCoordinator.post(account.getId(), user.getUserId(), account.incomeDelta(income.getAmount()));
 
-        return incomeRepository.save(income);
+        IncomeEntity saved = incomeRepository.save(income);
+        transactionSearchIndex.onSaved(saved);
+        return TransactionView.of(saved);
     }
 
     @PutMapping("/{id}")
-    public IncomeEntity updateIncome(@PathVariable UUID id, @AuthenticationPrincipal CustomUserDetails user,
+    @Transactional
+    public TransactionView updateIncome(@PathVariable UUID id, @AuthenticationPrincipal CustomUserDetails user,
             @RequestBody IncomeDTO dto) {
         IncomeEntity income = incomeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Income not found"));
@@ -124,44 +209,25 @@ public class IncomeController {
 
         if (oldAccount == null) {
             // Old record had no account, just add to the new one
-            if (newAccount.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                newAccount.setBalance(newAccount.getBalance().subtract(newAmount));
-            } else {
-                newAccount.setBalance(newAccount.getBalance().add(newAmount));
-            }
-            accountRepository.save(newAccount);
+            postingCoordinator.post(newAccount.getId(), user.getUserId(), newAccount.incomeDelta(newAmount));
         } else if (oldAccount.getId().equals(newAccount.getId())) {
-            // Same account, adjust balance
-            if (newAccount.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                // For CC: add old, subtract new
-                newAccount.setBalance(newAccount.getBalance().add(oldAmount).subtract(newAmount));
-            } else {
-                // For Savings: subtract old, add new
-                newAccount.setBalance(newAccount.getBalance().subtract(oldAmount).add(newAmount));
-            }
-            accountRepository.save(newAccount);
+            // Same account: post only the difference
+            postingCoordinator.post(newAccount.getId(), user.getUserId(),
+                    newAccount.incomeDelta(newAmount.subtract(oldAmount)));
         } else {
-            // Different accounts
-            if (oldAccount.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                oldAccount.setBalance(oldAccount.getBalance().add(oldAmount));
-            } else {
-                oldAccount.setBalance(oldAccount.getBalance().subtract(oldAmount));
-            }
-
-            if (newAccount.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                newAccount.setBalance(newAccount.getBalance().subtract(newAmount));
-            } else {
-                newAccount.setBalance(newAccount.getBalance().add(newAmount));
-            }
-
-            accountRepository.save(oldAccount);
-            accountRepository.save(newAccount);
+            // Different accounts: reverse on the old one, apply on the new one
+            postingCoordinator.postAll(Map.of(
+                    oldAccount.getId(), oldAccount.incomeDelta(oldAmount).negate(),
+                    newAccount.getId(), newAccount.incomeDelta(newAmount)), user.getUserId());
         }
 
-        return incomeRepository.save(income);
+        IncomeEntity saved = incomeRepository.save(income);
+        transactionSearchIndex.onSaved(saved);
+        return TransactionView.of(saved);
     }
 
     @DeleteMapping("/{id}")
+    @Transactional
     public void deleteIncome(@PathVariable UUID id, @AuthenticationPrincipal CustomUserDetails user) {
         IncomeEntity income = incomeRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Income not found"));
@@ -173,15 +239,12 @@ public class IncomeController {
         // Update Balance
         AccountEntity account = income.getAccount();
         if (account != null) {
-            if (account.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-                account.setBalance(account.getBalance().add(income.getAmount()));
-            } else {
-                account.setBalance(account.getBalance().subtract(income.getAmount()));
-            }
-            accountRepository.save(account);
+            postingCoordinator.post(account.getId(), user.getUserId(),
+                    account.incomeDelta(income.getAmount()).negate());
         }
 
         incomeRepository.delete(income);
+        transactionSearchIndex.onDeleted(TransactionSearchIndex.Kind.INCOME, user.getUserId(), id);
     }
 
     private void populateEntityFromDTO(IncomeEntity entity, IncomeDTO dto, UUID userId) {
@@ -218,13 +281,4 @@ public class IncomeController {
             throw new RuntimeException("Account is mandatory for incomes");
         }
     }
-
-    private void collectCategoryIdsRecursively(CategoryEntity category, Collection<UUID> ids) {
-        if (category.getSubCategories() != null) {
-            for (CategoryEntity sub : category.getSubCategories()) {
-                ids.add(sub.getId());
-                collectCategoryIdsRecursively(sub, ids);
-            }
-        }
-    }
 }
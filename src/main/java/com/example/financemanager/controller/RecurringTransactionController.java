@@ -5,8 +5,12 @@ import com.example.financemanager.entities.*;
 import com.example.financemanager.entities.RecurringTransactionEntity.RecurrenceFrequency;
 import com.example.financemanager.repositories.*;
 import com.example.financemanager.service.CustomUserDetails;
+import com.example.financemanager.service.PostingCoordinator;
+import com.example.financemanager.service.TransactionSearchIndex;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.*;
 
 import java.time.LocalDate;
@@ -21,8 +25,11 @@ public class RecurringTransactionController {
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
     private final AccountRepository accountRepository;
+    private final PostingCoordinator postingCoordinator;
     private final ExpenseRepository expenseRepository;
     private final IncomeRepository incomeRepository;
+    private final TransactionSearchIndex transactionSearchIndex;
+    private final TransactionTemplate transactionTemplate;
 
     public RecurringTransactionController(
             RecurringTransactionRepository recurringRepository,
@@ -30,13 +37,19 @@ public class RecurringTransactionController {
             CategoryRepository categoryRepository,
             AccountRepository accountRepository,
             ExpenseRepository expenseRepository,
-            IncomeRepository incomeRepository) {
+            IncomeRepository incomeRepository,
+            TransactionSearchIndex transactionSearchIndex,
+            PostingCoordinator postingCoordinator,
+            PlatformTransactionManager transactionManager) {
         this.recurringRepository = recurringRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.accountRepository = accountRepository;
+        this.postingCoordinator = postingCoordinator;
         this.expenseRepository = expenseRepository;
         this.incomeRepository = incomeRepository;
+        this.transactionSearchIndex = transactionSearchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
     @GetMapping
@@ -87,7 +100,9 @@ public class RecurringTransactionController {
     /**
      * Materialises expense/income records for all overdue active recurring templates,
      * then advances their nextDueDate. Idempotent: subsequent calls are no-ops until
-     * the next due date is reached again.
+     * the next due date is reached again. Each template commits on its own: its
+     * balance posting, new record and advanced due date together, or only the due
+     * date when the record cannot be created.
      */
     @PostMapping("/process-due")
     public List<RecurringTransactionEntity> processDue(
@@ -97,17 +112,24 @@ public class RecurringTransactionController {
                 recurringRepository.findDueTransactions(user.getUserId(), today);
 
         for (RecurringTransactionEntity recurring : due) {
+            LocalDate nextDueDate = advanceDate(recurring.getNextDueDate(), recurring.getFrequency());
             try {
-                if (recurring.getType() == RecurringTransactionEntity.RecurringType.expense) {
-                    createExpense(recurring, user.getUserId());
-                } else {
-                    createIncome(recurring, user.getUserId());
-                }
-            } catch (Exception e) {
+                transactionTemplate.executeWithoutResult(status -> {
+                    if (recurring.getType() == RecurringTransactionEntity.RecurringType.expense) {
+                        createExpense(recurring, user.getUserId());
+                    } else {
+                        createIncome(recurring, user.getUserId());
+                    }
+                    recurring.setNextDueDate(nextDueDate);
+                    recurringRepository.save(recurring);
+                });
+            } catch (RuntimeException e) {
                 // Skip record creation if constraints aren't met, but still advance date
+                transactionTemplate.executeWithoutResult(status -> {
+                    recurring.setNextDueDate(nextDueDate);
+                    recurringRepository.save(recurring);
+                });
             }
-            recurring.setNextDueDate(advanceDate(recurring.getNextDueDate(), recurring.getFrequency()));
-            recurringRepository.save(recurring);
         }
 
         return recurringRepository.findByUser_IdOrderByNextDueDateAsc(user.getUserId());
@@ -163,13 +185,9 @@ public class RecurringTransactionController {
         expense.setAccount(recurring.getAccount());
 
         AccountEntity account = recurring.getAccount();
-        if (account.getType() == AccountEntity.AccountType.CREDIT_CARD) {
-            account.setBalance(account.getBalance().add(recurring.getAmount()));
-        } else {
-            account.setBalance(account.getBalance().subtract(recurring.getAmount()));
-        }
-        accountRepository.save(account);
+        postingCoordinator.post(account.getId(), userId, account.expenseDelta(recurring.getAmount()));
         expenseRepository.save(expense);
+        transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.EXPENSE, userId);
     }
 
     private void createIncome(RecurringTransactionEntity recurring, UUID userId) {
@@ -186,10 +204,10 @@ public class RecurringTransactionController {
         if (recurring.getAccount() != null) {
             income.setAccount(recurring.getAccount());
             AccountEntity account = recurring.getAccount();
-            account.setBalance(account.getBalance().add(recurring.getAmount()));
-            accountRepository.save(account);
+            postingCoordinator.post(account.getId(), userId, account.incomeDelta(recurring.getAmount()));
         }
         incomeRepository.save(income);
+        transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.INCOME, userId);
     }
 
     private LocalDate advanceDate(LocalDate date, RecurrenceFrequency frequency) {
@@ -5,11 +5,16 @@ import com.example.financemanager.entities.SavingEntity;
 import com.example.financemanager.entities.CategoryEntity;
 import com.example.financemanager.entities.ExpenseEntity;
 import com.example.financemanager.repositories.AccountRepository;
+import com.example.financemanager.repositories.CategoryClosureRepository;
 import com.example.financemanager.repositories.CategoryRepository;
 import com.example.financemanager.repositories.ExpenseRepository;
 import com.example.financemanager.repositories.SavingRepository;
 import com.example.financemanager.repositories.UserRepository;
 import com.example.financemanager.service.CustomUserDetails;
+import com.example.financemanager.service.IdempotencyService;
+import com.example.financemanager.service.PostingCoordinator;
+import com.example.financemanager.service.TransactionSearchIndex;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.bind.annotation.*;
@@ -31,15 +36,26 @@ public class SavingController {
     private final CategoryRepository categoryRepository;
     private final ExpenseRepository expenseRepository;
     private final AccountRepository accountRepository;
+    private final PostingCoordinator postingCoordinator;
+    private final CategoryClosureRepository categoryClosureRepository;
+    private final TransactionSearchIndex transactionSearchIndex;
+    private final IdempotencyService idempotencyService;
 
     public SavingController(SavingRepository savingRepository, UserRepository userRepository,
             CategoryRepository categoryRepository, ExpenseRepository expenseRepository,
-            AccountRepository accountRepository) {
+            AccountRepository accountRepository, CategoryClosureRepository categoryClosureRepository,
+            TransactionSearchIndex transactionSearchIndex,
+            IdempotencyService idempotencyService,
+            PostingCoordinator postingCoordinator) {
         this.savingRepository = savingRepository;
         this.userRepository = userRepository;
         this.categoryRepository = categoryRepository;
         this.expenseRepository = expenseRepository;
         this.accountRepository = accountRepository;
+        this.postingCoordinator = postingCoordinator;
+        this.categoryClosureRepository = categoryClosureRepository;
+        this.transactionSearchIndex = transactionSearchIndex;
+        this.idempotencyService = idempotencyService;
     }
 
     @GetMapping
@@ -93,10 +109,20 @@ public class SavingController {
         savingRepository.delete(saving);
     }
 
+    /**
+     * With an Idempotency-Key header, a retried request returns the first
+     * response instead of recording the contribution (and moving the balance) again.
+     */
     @PostMapping("/{id}/contributions")
     @Transactional
-    public SavingEntity recordContribution(@PathVariable UUID id, @AuthenticationPrincipal CustomUserDetails user,
+    public ResponseEntity<?> recordContribution(@PathVariable UUID id, @AuthenticationPrincipal CustomUserDetails user,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             @RequestBody ContributionDTO contributionDto) {
+        return idempotencyService.execute(user.getUserId(), idempotencyKey, "POST /savings/" + id + "/contributions", contributionDto,
+                () -> recordContribution(id, user, contributionDto));
+    }
+
+    private SavingEntity recordContribution(UUID id, CustomUserDetails user, ContributionDTO contributionDto) {
         SavingEntity saving = savingRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("Saving record not found"));
 
@@ -118,7 +144,9 @@ public class SavingController {
                     newCat.setType("EXPENSE");
                     newCat.setUser(userRepository.getReferenceById(user.getUserId()));
                     newCat.setAllowedNestingDepth(0);
-                    return categoryRepository.save(newCat);
+                    CategoryEntity saved = categoryRepository.save(newCat);
+                    categoryClosureRepository.insertCategory(saved.getId(), null);
+                    return saved;
                 });
 
         ExpenseEntity expense = new ExpenseEntity();
@@ -140,17 +168,13 @@ public class SavingController {
             expense.setAccount(account);
 
             // Update Account Balance
-            if (account.getType() == com.example.financemanager.entities.AccountEntity.AccountType.CREDIT_CARD) {
-                account.setBalance(account.getBalance().add(contributionAmount));
-            } else {
-                account.setBalance(account.getBalance().subtract(contributionAmount));
-            }
-            accountRepository.save(account);
+            postingCoordinator.post(account.getId(), user.getUserId(), account.expenseDelta(contributionAmount));
         } else {
             throw new RuntimeException("Account is mandatory for savings contributions");
         }
 
         expenseRepository.save(expense);
+        transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.EXPENSE, user.getUserId());
 
         return saving;
     }
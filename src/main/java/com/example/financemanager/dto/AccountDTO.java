@@ -2,6 +2,7 @@ package com.example.financemanager.dto;
 
 import com.example.financemanager.entities.AccountEntity.AccountType;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.UUID;
 
 public class AccountDTO {
@@ -16,6 +17,7 @@ public class AccountDTO {
     private BigDecimal currentCycleSpent;
     private BigDecimal lastStatementBalance;
     private Boolean lastStatementPaid;
+    private LocalDate lastStatementDueDate;
 
     public AccountDTO() {
     }
@@ -107,4 +109,12 @@ public class AccountDTO {
     public void setLastStatementPaid(Boolean lastStatementPaid) {
         this.lastStatementPaid = lastStatementPaid;
     }
+
+    public LocalDate getLastStatementDueDate() {
+        return lastStatementDueDate;
+    }
+
+    public void setLastStatementDueDate(LocalDate lastStatementDueDate) {
+        this.lastStatementDueDate = lastStatementDueDate;
+    }
 }
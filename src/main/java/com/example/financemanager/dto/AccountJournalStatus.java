@@ -0,0 +1,22 @@
+package com.example.financemanager.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+/**
+ * An account balance checked against its journal. journalBalance is the
+ * latest checkpoint (seq checkpointSeq) plus the postingsReplayed postings
+ * after it, up to lastSeq.
+ */
+public record AccountJournalStatus(
+        UUID accountId,
+        BigDecimal balance,
+        BigDecimal journalBalance,
+        long checkpointSeq,
+        long lastSeq,
+        long postingsReplayed) {
+
+    public boolean isConsistent() {
+        return balance.compareTo(journalBalance) == 0;
+    }
+}
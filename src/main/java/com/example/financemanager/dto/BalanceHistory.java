@@ -0,0 +1,30 @@
+package com.example.financemanager.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Balance of an account over [from, to]. openingBalance is the balance at the
+ * start of from; points holds only the periods with postings, so the balance
+ * between two points is the earlier point's closingBalance.
+ */
+public record BalanceHistory(
+        UUID accountId,
+        LocalDate from,
+        LocalDate to,
+        String granularity,
+        BigDecimal openingBalance,
+        List<Point> points) {
+
+    /**
+     * period is the first day of the day, week (Monday) or month; net is the
+     * sum of the period's postings and closingBalance the balance at its end.
+     */
+    public record Point(
+            LocalDate period,
+            BigDecimal net,
+            BigDecimal closingBalance) {
+    }
+}
@@ -11,6 +11,9 @@ public class ExpenseFilterDTO {
     private UUID categoryId;
     private UUID accountId;
     private String search;
+    // Keyset paging: set either to page through results (see TransactionCursor)
+    private Integer limit;
+    private String cursor;
 
     // Getters and Setters
     public Integer getMonth() {
@@ -68,4 +71,20 @@ public class ExpenseFilterDTO {
     public void setSearch(String search) {
         this.search = search;
     }
+
+    public Integer getLimit() {
+        return limit;
+    }
+
+    public void setLimit(Integer limit) {
+        this.limit = limit;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
 }
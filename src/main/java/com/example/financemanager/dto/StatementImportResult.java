@@ -0,0 +1,14 @@
+package com.example.financemanager.dto;
+
+/**
+ * Outcome of a bank statement import. rows counts every transaction read from
+ * the file; duplicates were already imported earlier (or appear twice in the
+ * file) and skipped rows had a zero amount.
+ */
+public record StatementImportResult(
+        long rows,
+        long expenses,
+        long incomes,
+        long duplicates,
+        long skipped) {
+}
@@ -0,0 +1,28 @@
+package com.example.financemanager.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Totals of a filtered set of expenses or incomes: overall, and broken down
+ * by category, by day and by account.
+ */
+public record TransactionSummary(
+        Group overall,
+        List<Group> byCategory,
+        List<Group> byDay,
+        List<Group> byAccount) {
+
+    /**
+     * key is the category id, ISO date or account id of the group (null for
+     * overall); label is the category or account name where there is one.
+     */
+    public record Group(
+            String key,
+            String label,
+            BigDecimal total,
+            long count,
+            BigDecimal min,
+            BigDecimal max) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.financemanager.dto;
+
+import com.example.financemanager.entities.ExpenseEntity;
+import com.example.financemanager.entities.IncomeEntity;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Flat, read-only row of an expense or income listing. Filled in directly by
+ * projection queries, so listings never load (or serialize) the category
+ * entity and its sub-category tree.
+ */
+public record TransactionView(
+        UUID id,
+        String name,
+        String description,
+        BigDecimal amount,
+        LocalDate date,
+        UUID categoryId,
+        String categoryName,
+        UUID accountId) {
+
+    public static TransactionView of(ExpenseEntity expense) {
+        return new TransactionView(expense.getId(), expense.getName(), expense.getDescription(),
+                expense.getAmount(), expense.getExpenseDate(),
+                expense.getCategory() != null ? expense.getCategory().getId() : null,
+                expense.getCategory() != null ? expense.getCategory().getName() : null,
+                expense.getAccountId());
+    }
+
+    public static TransactionView of(IncomeEntity income) {
+        return new TransactionView(income.getId(), income.getName(), income.getDescription(),
+                income.getAmount(), income.getIncomeDate(),
+                income.getCategory() != null ? income.getCategory().getId() : null,
+                income.getCategory() != null ? income.getCategory().getName() : null,
+                income.getAccountId());
+    }
+}
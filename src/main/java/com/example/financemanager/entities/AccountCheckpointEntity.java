@@ -0,0 +1,66 @@
+package com.example.financemanager.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * The account balance as it stood right after posting seq. Seq 0 is the
+ * opening balance; later checkpoints are written every
+ * AccountRepository.CHECKPOINT_INTERVAL postings, so checking or rebuilding a
+ * balance only replays the postings after the latest one.
+ */
+@Entity
+@Table(name = "account_checkpoints")
+@IdClass(AccountCheckpointEntity.Key.class)
+public class AccountCheckpointEntity {
+
+    @Id
+    @Column(name = "account_id", nullable = false)
+    private UUID accountId;
+
+    @Id
+    @Column(nullable = false)
+    private long seq;
+
+    @Column(nullable = false)
+    private BigDecimal balance;
+
+    @Column(nullable = false)
+    private Instant createdAt;
+
+    public AccountCheckpointEntity() {}
+
+    public UUID getAccountId() { return accountId; }
+    public long getSeq() { return seq; }
+    public BigDecimal getBalance() { return balance; }
+    public Instant getCreatedAt() { return createdAt; }
+
+    public static class Key implements Serializable {
+
+        private UUID accountId;
+        private long seq;
+
+        public Key() {}
+
+        public Key(UUID accountId, long seq) {
+            this.accountId = accountId;
+            this.seq = seq;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(accountId, other.accountId) && seq == other.seq;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, seq);
+        }
+    }
+}
@@ -24,9 +24,24 @@ public class AccountEntity extends BaseAuditableEntity {
     @Column(nullable = false)
     private AccountType type;
 
-    @Column(nullable = false)
+    // Only written on insert; afterwards it changes solely through the journaled
+    // balance queries in AccountRepository, so a stale entity can't overwrite it
+    @Column(nullable = false, updatable = false)
     private BigDecimal balance;
 
+    // Sequence number of the latest journal posting; maintained by the database
+    @Column(name = "journal_seq", nullable = false, insertable = false, updatable = false,
+            columnDefinition = "bigint default 0")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private long journalSeq;
+
+    // Optimistic lock across instances: an account row written from a stale read
+    // fails instead of overwriting. The balance queries in AccountRepository bump it too.
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint default 0")
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private long version;
+
     private String bankName;
 
     // Credit Card specific fields
@@ -69,6 +84,14 @@ public class AccountEntity extends BaseAuditableEntity {
         this.type = type;
     }
 
+    public long getJournalSeq() {
+        return journalSeq;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
     public BigDecimal getBalance() {
         return balance;
     }
@@ -77,6 +100,16 @@ public class AccountEntity extends BaseAuditableEntity {
         this.balance = balance;
     }
 
+    // Balance change for spending amount from this account: a credit card's balance is what is owed, so it rises
+    public BigDecimal expenseDelta(BigDecimal amount) {
+        return type == AccountType.CREDIT_CARD ? amount : amount.negate();
+    }
+
+    // Balance change for receiving amount into this account; always the opposite of expenseDelta
+    public BigDecimal incomeDelta(BigDecimal amount) {
+        return expenseDelta(amount).negate();
+    }
+
     public String getBankName() {
         return bankName;
     }
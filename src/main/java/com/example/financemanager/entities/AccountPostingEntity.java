@@ -0,0 +1,65 @@
+package com.example.financemanager.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Append-only journal of balance changes: one row per posting, numbered per
+ * account by accounts.journal_seq. Written in the same statement as the
+ * balance update itself (see AccountRepository), never by the entity.
+ */
+@Entity
+@Table(name = "account_postings")
+@IdClass(AccountPostingEntity.Key.class)
+public class AccountPostingEntity {
+
+    @Id
+    @Column(name = "account_id", nullable = false)
+    private UUID accountId;
+
+    @Id
+    @Column(nullable = false)
+    private long seq;
+
+    @Column(nullable = false)
+    private BigDecimal delta;
+
+    @Column(nullable = false)
+    private Instant postedAt;
+
+    public AccountPostingEntity() {}
+
+    public UUID getAccountId() { return accountId; }
+    public long getSeq() { return seq; }
+    public BigDecimal getDelta() { return delta; }
+    public Instant getPostedAt() { return postedAt; }
+
+    public static class Key implements Serializable {
+
+        private UUID accountId;
+        private long seq;
+
+        public Key() {}
+
+        public Key(UUID accountId, long seq) {
+            this.accountId = accountId;
+            this.seq = seq;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(accountId, other.accountId) && seq == other.seq;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, seq);
+        }
+    }
+}
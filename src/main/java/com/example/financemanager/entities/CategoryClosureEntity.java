@@ -0,0 +1,60 @@
+package com.example.financemanager.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * One row per (ancestor, descendant) pair of the category tree, including each
+ * category paired with itself at depth 0. "A category and everything below it"
+ * is then a single lookup on ancestor_id instead of a walk over subCategories.
+ */
+@Entity
+@Table(name = "category_closure")
+@IdClass(CategoryClosureEntity.Key.class)
+public class CategoryClosureEntity {
+
+    @Id
+    @Column(name = "ancestor_id", nullable = false)
+    private UUID ancestorId;
+
+    @Id
+    @Column(name = "descendant_id", nullable = false)
+    private UUID descendantId;
+
+    // Number of edges between the two; 0 for the self row
+    @Column(nullable = false)
+    private int depth;
+
+    public CategoryClosureEntity() {}
+
+    public UUID getAncestorId() { return ancestorId; }
+    public UUID getDescendantId() { return descendantId; }
+    public int getDepth() { return depth; }
+
+    public static class Key implements Serializable {
+
+        private UUID ancestorId;
+        private UUID descendantId;
+
+        public Key() {}
+
+        public Key(UUID ancestorId, UUID descendantId) {
+            this.ancestorId = ancestorId;
+            this.descendantId = descendantId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(ancestorId, other.ancestorId) && Objects.equals(descendantId, other.descendantId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(ancestorId, descendantId);
+        }
+    }
+}
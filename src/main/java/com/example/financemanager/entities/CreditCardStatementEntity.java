@@ -0,0 +1,90 @@
+package com.example.financemanager.entities;
+
+import jakarta.persistence.*;
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * A closed billing cycle of a credit card, written once by
+ * CreditCardStatementJob after the cycle ends. Balances follow the card's
+ * sign: closing = opening + charges - payments is the amount owed.
+ */
+@Entity
+@Table(name = "credit_card_statements")
+@IdClass(CreditCardStatementEntity.Key.class)
+public class CreditCardStatementEntity {
+
+    @Id
+    @Column(name = "account_id", nullable = false)
+    private UUID accountId;
+
+    // First day of the cycle; with accountId the statement's key
+    @Id
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    // Last day of the cycle, inclusive
+    @Column(nullable = false)
+    private LocalDate periodEnd;
+
+    @Column(nullable = false)
+    private BigDecimal openingBalance;
+
+    // Expenses on the card during the cycle
+    @Column(nullable = false)
+    private BigDecimal charges;
+
+    // Incomes (repayments) on the card during the cycle
+    @Column(nullable = false)
+    private BigDecimal payments;
+
+    @Column(nullable = false)
+    private BigDecimal closingBalance;
+
+    // Null when the card has no dueDateDay
+    private LocalDate dueDate;
+
+    @Column(nullable = false)
+    private Instant closedAt;
+
+    public CreditCardStatementEntity() {}
+
+    public UUID getAccountId() { return accountId; }
+    public LocalDate getPeriodStart() { return periodStart; }
+    public LocalDate getPeriodEnd() { return periodEnd; }
+    public BigDecimal getOpeningBalance() { return openingBalance; }
+    public BigDecimal getCharges() { return charges; }
+    public BigDecimal getPayments() { return payments; }
+    public BigDecimal getClosingBalance() { return closingBalance; }
+    public LocalDate getDueDate() { return dueDate; }
+    public Instant getClosedAt() { return closedAt; }
+
+    public static class Key implements Serializable {
+
+        private UUID accountId;
+        private LocalDate periodStart;
+
+        public Key() {}
+
+        public Key(UUID accountId, LocalDate periodStart) {
+            this.accountId = accountId;
+            this.periodStart = periodStart;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key other)) return false;
+            return Objects.equals(accountId, other.accountId) && Objects.equals(periodStart, other.periodStart);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(accountId, periodStart);
+        }
+    }
+}
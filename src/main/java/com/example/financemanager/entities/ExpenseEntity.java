@@ -7,7 +7,8 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
-@Table(name = "expenses")
+@Table(name = "expenses", uniqueConstraints = @UniqueConstraint(
+        name = "uk_expenses_account_import_hash", columnNames = {"account_id", "import_hash"}))
 public class ExpenseEntity extends BaseAuditableEntity {
 
     @Id
@@ -45,6 +46,11 @@ public class ExpenseEntity extends BaseAuditableEntity {
     @com.fasterxml.jackson.annotation.JsonIgnore
     private AccountEntity account;
 
+    // Content hash of the statement row this was imported from; null when entered by hand
+    @Column(name = "import_hash", length = 64)
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private String importHash;
+
     public ExpenseEntity() {
     }
 
@@ -135,4 +141,12 @@ public class ExpenseEntity extends BaseAuditableEntity {
     public void setSaving(SavingEntity saving) {
         this.saving = saving;
     }
+
+    public String getImportHash() {
+        return importHash;
+    }
+
+    public void setImportHash(String importHash) {
+        this.importHash = importHash;
+    }
 }
@@ -6,7 +6,8 @@ import java.time.LocalDate;
 import java.util.UUID;
 
 @Entity
-@Table(name = "incomes")
+@Table(name = "incomes", uniqueConstraints = @UniqueConstraint(
+        name = "uk_incomes_account_import_hash", columnNames = {"account_id", "import_hash"}))
 public class IncomeEntity extends BaseAuditableEntity {
 
     @Id
@@ -39,6 +40,11 @@ public class IncomeEntity extends BaseAuditableEntity {
     @com.fasterxml.jackson.annotation.JsonIgnore
     private AccountEntity account;
 
+    // Content hash of the statement row this was imported from; null when entered by hand
+    @Column(name = "import_hash", length = 64)
+    @com.fasterxml.jackson.annotation.JsonIgnore
+    private String importHash;
+
     public IncomeEntity() {
     }
 
@@ -113,4 +119,12 @@ public class IncomeEntity extends BaseAuditableEntity {
     public void setIncomeDate(LocalDate incomeDate) {
         this.incomeDate = incomeDate;
     }
+
+    public String getImportHash() {
+        return importHash;
+    }
+
+    public void setImportHash(String importHash) {
+        this.importHash = importHash;
+    }
 }
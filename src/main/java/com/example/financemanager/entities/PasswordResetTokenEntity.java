@@ -12,8 +12,9 @@ public class PasswordResetTokenEntity {
     @GeneratedValue
     private UUID id;
 
-    @Column(nullable = false, unique = true)
-    private String token;
+    // SHA-256 hex of the emailed token; the raw token is never stored
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64, columnDefinition = "CHAR(64)")
+    private String tokenHash;
 
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
@@ -27,14 +28,14 @@ public class PasswordResetTokenEntity {
 
     public PasswordResetTokenEntity() {}
 
-    public PasswordResetTokenEntity(String token, UserEntity user, Instant expiresAt) {
-        this.token = token;
+    public PasswordResetTokenEntity(String tokenHash, UserEntity user, Instant expiresAt) {
+        this.tokenHash = tokenHash;
         this.user = user;
         this.expiresAt = expiresAt;
     }
 
     public UUID getId() { return id; }
-    public String getToken() { return token; }
+    public String getTokenHash() { return tokenHash; }
     public UserEntity getUser() { return user; }
     public Instant getExpiresAt() { return expiresAt; }
     public boolean isUsed() { return used; }
@@ -0,0 +1,43 @@
+package com.example.financemanager.entities;
+
+import jakarta.persistence.*;
+import java.time.Instant;
+import java.util.UUID;
+
+@Entity
+@Table(name = "revoked_tokens")
+public class RevokedTokenEntity {
+
+    @Id
+    @GeneratedValue
+    private UUID id;
+
+    // The JWT "jti" claim of the revoked token
+    @Column(name = "token_id", nullable = false, unique = true)
+    private String tokenId;
+
+    @Column(name = "user_id", nullable = false)
+    private UUID userId;
+
+    // Rows are purged once the token would have expired anyway
+    @Column(nullable = false)
+    private Instant expiresAt;
+
+    @Column(nullable = false)
+    private Instant revokedAt;
+
+    public RevokedTokenEntity() {}
+
+    public RevokedTokenEntity(String tokenId, UUID userId, Instant expiresAt, Instant revokedAt) {
+        this.tokenId = tokenId;
+        this.userId = userId;
+        this.expiresAt = expiresAt;
+        this.revokedAt = revokedAt;
+    }
+
+    public UUID getId() { return id; }
+    public String getTokenId() { return tokenId; }
+    public UUID getUserId() { return userId; }
+    public Instant getExpiresAt() { return expiresAt; }
+    public Instant getRevokedAt() { return revokedAt; }
+}
@@ -17,6 +17,10 @@ public class UserEntity extends BaseAuditableEntity{
     @Column(name = "password_hash", nullable = false)
     private String passwordHash;
 
+    // Bumped to invalidate every JWT issued before it (tokens carry it as the "ver" claim)
+    @Column(name = "token_version", nullable = false, columnDefinition = "integer default 0")
+    private int tokenVersion;
+
     public UserEntity() {}
 
     public UserEntity(UUID id, String email, String passwordHash) {
@@ -28,8 +32,10 @@ public class UserEntity extends BaseAuditableEntity{
     public UUID getId() { return id; }
     public String getEmail() { return email; }
     public String getPasswordHash() { return passwordHash; }
+    public int getTokenVersion() { return tokenVersion; }
 
     public void setId(UUID id) { this.id = id; }
     public void setEmail(String email) { this.email = email; }
     public void setPasswordHash(String passwordHash) { this.passwordHash = passwordHash; }
+    public void setTokenVersion(int tokenVersion) { this.tokenVersion = tokenVersion; }
 }
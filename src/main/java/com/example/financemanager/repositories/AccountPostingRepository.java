@@ -0,0 +1,32 @@
+package com.example.financemanager.repositories;
+
+import com.example.financemanager.dto.AccountJournalStatus;
+import com.example.financemanager.entities.AccountPostingEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface AccountPostingRepository extends JpaRepository<AccountPostingEntity, AccountPostingEntity.Key> {
+
+    /**
+     * Replays the journal from the latest checkpoint: only postings with a
+     * higher seq are read, as a range scan of the primary key, so the cost
+     * is bounded by the checkpoint interval rather than the account's age.
+     */
+    @Query(value = "SELECT a.id AS \"accountId\", a.balance AS \"balance\", " +
+            "COALESCE(c.balance, 0) + COALESCE(SUM(p.delta), 0) AS \"journalBalance\", " +
+            "COALESCE(c.seq, 0) AS \"checkpointSeq\", a.journal_seq AS \"lastSeq\", " +
+            "COUNT(p.seq) AS \"postingsReplayed\" " +
+            "FROM accounts a " +
+            "LEFT JOIN LATERAL (SELECT seq, balance FROM account_checkpoints " +
+            "WHERE account_id = a.id ORDER BY seq DESC LIMIT 1) c ON true " +
+            "LEFT JOIN account_postings p ON p.account_id = a.id AND p.seq > COALESCE(c.seq, 0) " +
+            "WHERE a.id = :id AND a.user_id = :userId " +
+            "GROUP BY a.id, a.balance, a.journal_seq, c.seq, c.balance", nativeQuery = true)
+    Optional<AccountJournalStatus> replayFromCheckpoint(@Param("id") UUID id, @Param("userId") UUID userId);
+}
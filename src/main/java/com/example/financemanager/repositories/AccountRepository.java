@@ -2,12 +2,139 @@ package com.example.financemanager.repositories;
 
 import com.example.financemanager.entities.AccountEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface AccountRepository extends JpaRepository<AccountEntity, UUID> {
     List<AccountEntity> findByUserId(UUID userId);
+
+    // Ownership check for a set of ids in one IN query; ids the user does not own are simply absent
+    List<AccountEntity> findByUserIdAndIdIn(UUID userId, Collection<UUID> ids);
+
+    // A checkpoint of the balance is written every this many postings to an account
+    long CHECKPOINT_INTERVAL = 100;
+
+    // Shared tail of the balance queries: journals the posting returned by the
+    // "posted" CTE under the account's next sequence number
+    String JOURNAL_POSTING = " INSERT INTO account_postings (account_id, seq, delta, posted_at) " +
+            "SELECT id, journal_seq, delta, now() FROM posted";
+
+    /**
+     * Adds delta to the balance in the database with a single statement, so
+     * concurrent postings to one account never overwrite each other. The same
+     * statement appends the posting to the account journal under the next
+     * sequence number. Returns the number of postings written: 0 when the
+     * account does not exist or is not the user's. Use postBalance, which
+     * also writes the checkpoint when one is due.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "WITH posted AS (" +
+            "UPDATE accounts SET balance = balance + :delta, journal_seq = journal_seq + 1, version = version + 1 " +
+            "WHERE id = :id AND user_id = :userId " +
+            "RETURNING id, journal_seq, CAST(:delta AS numeric) AS delta)" +
+            JOURNAL_POSTING, nativeQuery = true)
+    int addToBalance(@Param("id") UUID id, @Param("userId") UUID userId, @Param("delta") BigDecimal delta);
+
+    /**
+     * Adds delta to the balance and journals it (see addToBalance); the row
+     * lock is held until the transaction ends. A loaded AccountEntity keeps
+     * its old balance.
+     */
+    @Transactional
+    default void postBalance(UUID id, UUID userId, BigDecimal delta) {
+        if (addToBalance(id, userId, delta) == 0) {
+            throw new RuntimeException("Account not found");
+        }
+        checkpointIfDue(id);
+    }
+
+    /**
+     * Journals the change of the balance to target as a posting of the
+     * difference. The row is locked before the old balance is read so the
+     * difference is exact under concurrent postings. Writes nothing (and
+     * returns 0) when the balance already equals target or the account is
+     * not the user's. Use adjustBalanceTo.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "WITH current AS (" +
+            "SELECT id, balance FROM accounts WHERE id = :id AND user_id = :userId FOR UPDATE), " +
+            "posted AS (" +
+            "UPDATE accounts a SET balance = :target, journal_seq = a.journal_seq + 1, version = a.version + 1 " +
+            "FROM current c WHERE a.id = c.id AND a.balance <> :target " +
+            "RETURNING a.id, a.journal_seq, a.balance - c.balance AS delta)" +
+            JOURNAL_POSTING, nativeQuery = true)
+    int adjustBalance(@Param("id") UUID id, @Param("userId") UUID userId, @Param("target") BigDecimal target);
+
+    /**
+     * Sets the balance to target as a journaled adjustment (see
+     * adjustBalance). Returns 0 when nothing needed to change.
+     */
+    @Transactional
+    default int adjustBalanceTo(UUID id, UUID userId, BigDecimal target) {
+        int adjusted = adjustBalance(id, userId, target);
+        if (adjusted > 0) {
+            checkpointIfDue(id);
+        }
+        return adjusted;
+    }
+
+    /**
+     * Checkpoints the journal balance when the account's sequence number has
+     * just reached a multiple of CHECKPOINT_INTERVAL: the previous checkpoint
+     * plus every posting since, up to that sequence number. The balance column
+     * is never read, so drift in it cannot be copied into a checkpoint and
+     * hidden from replay.
+     *
+     * This is a statement of its own, run after the posting while its row lock
+     * is held: under READ COMMITTED it then sees every earlier posting, whereas
+     * a CTE of the posting statement would read the journal as of before it
+     * waited for the row and could miss a posting committed meanwhile.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO account_checkpoints (account_id, seq, balance, created_at) " +
+            "SELECT a.id, a.journal_seq, COALESCE(prev.balance, 0) + " +
+            "COALESCE((SELECT SUM(ap.delta) FROM account_postings ap " +
+            "WHERE ap.account_id = a.id AND ap.seq > COALESCE(prev.seq, 0) AND ap.seq <= a.journal_seq), 0), now() " +
+            "FROM accounts a " +
+            "LEFT JOIN LATERAL (SELECT seq, balance FROM account_checkpoints " +
+            "WHERE account_id = a.id AND seq < a.journal_seq ORDER BY seq DESC LIMIT 1) prev ON true " +
+            "WHERE a.id = :id AND a.journal_seq % " + CHECKPOINT_INTERVAL + " = 0 " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int checkpointIfDue(@Param("id") UUID id);
+
+    // The balance as stored now; a loaded AccountEntity keeps the balance it was read with
+    @Query("SELECT a.balance FROM AccountEntity a WHERE a.id = :id")
+    Optional<BigDecimal> findBalanceById(@Param("id") UUID id);
+
+    // Row lock held until the end of the transaction; blocks postings to the account meanwhile
+    @Query(value = "SELECT id FROM accounts WHERE id = :id AND user_id = :userId FOR UPDATE", nativeQuery = true)
+    Optional<UUID> lockForUpdate(@Param("id") UUID id, @Param("userId") UUID userId);
+
+    // Overwrites the balance without journaling it; only for repairing drift from the journal
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE accounts SET balance = :balance, version = version + 1 " +
+            "WHERE id = :id AND user_id = :userId", nativeQuery = true)
+    int restoreBalance(@Param("id") UUID id, @Param("userId") UUID userId, @Param("balance") BigDecimal balance);
+
+    // Opening checkpoint (seq 0) for a new account
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO account_checkpoints (account_id, seq, balance, created_at) " +
+            "SELECT id, journal_seq, balance, now() FROM accounts WHERE id = :id " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int checkpointCurrent(@Param("id") UUID id);
 }
@@ -0,0 +1,55 @@
+package com.example.financemanager.repositories;
+
+import com.example.financemanager.entities.CategoryClosureEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface CategoryClosureRepository
+        extends JpaRepository<CategoryClosureEntity, CategoryClosureEntity.Key> {
+
+    // The category itself followed by everything below it, nearest first
+    @Query("SELECT cc.descendantId FROM CategoryClosureEntity cc " +
+            "WHERE cc.ancestorId = :categoryId ORDER BY cc.depth")
+    List<UUID> findSubtreeIds(@Param("categoryId") UUID categoryId);
+
+    /**
+     * Name of one category in the subtree that an expense, income, budget or
+     * recurring template still points at, or empty when the whole subtree is
+     * free to delete. One statement for the subtree instead of several
+     * existence checks per category.
+     */
+    @Query(value = "SELECT c.name FROM category_closure cc " +
+            "JOIN categories c ON c.id = cc.descendant_id " +
+            "WHERE cc.ancestor_id = :categoryId AND (" +
+            "EXISTS (SELECT 1 FROM expenses e WHERE e.category_id = cc.descendant_id) " +
+            "OR EXISTS (SELECT 1 FROM incomes i WHERE i.category_id = cc.descendant_id) " +
+            "OR EXISTS (SELECT 1 FROM budgets b WHERE b.category_id = cc.descendant_id) " +
+            "OR EXISTS (SELECT 1 FROM recurring_transactions r WHERE r.category_id = cc.descendant_id)) " +
+            "ORDER BY cc.depth LIMIT 1", nativeQuery = true)
+    Optional<String> findNameInUseInSubtree(@Param("categoryId") UUID categoryId);
+
+    // Adds the self row plus one row per ancestor of the parent; parentId may be null for a root
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+            "SELECT :categoryId, :categoryId, 0 " +
+            "UNION ALL " +
+            "SELECT cc.ancestor_id, :categoryId, cc.depth + 1 FROM category_closure cc " +
+            "WHERE cc.descendant_id = CAST(:parentId AS uuid)", nativeQuery = true)
+    int insertCategory(@Param("categoryId") UUID categoryId, @Param("parentId") UUID parentId);
+
+    // Removes every row touching the category's subtree; run before the categories themselves go
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM category_closure WHERE descendant_id IN (" +
+            "SELECT cc.descendant_id FROM category_closure cc WHERE cc.ancestor_id = :categoryId)",
+            nativeQuery = true)
+    int deleteSubtree(@Param("categoryId") UUID categoryId);
+}
@@ -4,6 +4,7 @@ import com.example.financemanager.entities.CategoryEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -11,6 +12,9 @@ import java.util.UUID;
 public interface CategoryRepository extends JpaRepository<CategoryEntity, UUID> {
     List<CategoryEntity> findByUserId(UUID userId);
 
+    // Ownership check for a set of ids in one IN query; ids the user does not own are simply absent
+    List<CategoryEntity> findByUserIdAndIdIn(UUID userId, Collection<UUID> ids);
+
     boolean existsByUserIdAndNameIgnoreCaseAndParentIsNull(UUID userId, String name);
 
     boolean existsByUserIdAndNameIgnoreCaseAndParentId(UUID userId, String name, UUID parentId);
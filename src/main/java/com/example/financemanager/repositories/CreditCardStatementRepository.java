@@ -0,0 +1,77 @@
+package com.example.financemanager.repositories;
+
+import com.example.financemanager.entities.CreditCardStatementEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface CreditCardStatementRepository
+        extends JpaRepository<CreditCardStatementEntity, CreditCardStatementEntity.Key> {
+
+    List<CreditCardStatementEntity> findByAccountIdOrderByPeriodStartDesc(UUID accountId);
+
+    // Latest statement of each account, one primary key probe per account
+    @Query(value = "SELECT s.* FROM unnest(CAST(:accountIds AS uuid[])) AS r(account_id) " +
+            "CROSS JOIN LATERAL (SELECT * FROM credit_card_statements " +
+            "WHERE account_id = r.account_id ORDER BY period_start DESC LIMIT 1) s", nativeQuery = true)
+    List<CreditCardStatementEntity> findLatestByAccountIds(@Param("accountIds") UUID[] accountIds);
+
+    // Credit cards with a billing cycle, after the given id, with the end of their latest statement; a card
+    // without statements instead gets the date of its first expense or income (null when it has none)
+    @Query(value = "SELECT a.id AS \"accountId\", a.billing_cycle_start_day AS \"cycleStartDay\", " +
+            "a.due_date_day AS \"dueDateDay\", s.last_period_end AS \"lastPeriodEnd\", " +
+            "CASE WHEN s.last_period_end IS NULL THEN LEAST(" +
+            "(SELECT min(e.expense_date) FROM expenses e WHERE e.account_id = a.id), " +
+            "(SELECT min(i.income_date) FROM incomes i WHERE i.account_id = a.id)) END AS \"firstActivity\" " +
+            "FROM accounts a " +
+            "LEFT JOIN LATERAL (SELECT max(period_end) AS last_period_end FROM credit_card_statements " +
+            "WHERE account_id = a.id) s ON true " +
+            "WHERE a.type = 'CREDIT_CARD' AND a.billing_cycle_start_day IS NOT NULL " +
+            "AND a.id > :after ORDER BY a.id LIMIT :limit", nativeQuery = true)
+    List<Card> findCardsAfter(@Param("after") UUID after, @Param("limit") int limit);
+
+    record Card(UUID accountId, Integer cycleStartDay, Integer dueDateDay, LocalDate lastPeriodEnd,
+            LocalDate firstActivity) {
+    }
+
+    /**
+     * Closes cycles; row i of the arrays is one statement. Charges and
+     * payments are the cycle's expenses and incomes, the closing balance is
+     * the current balance minus everything posted after the cycle, and the
+     * opening balance follows from the three. A statement that already
+     * exists is left as it is.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO credit_card_statements (account_id, period_start, period_end, opening_balance, " +
+            "charges, payments, closing_balance, due_date, closed_at) " +
+            "SELECT t.account_id, t.period_start, t.period_end, t.closing - t.charges + t.payments, " +
+            "t.charges, t.payments, t.closing, t.due_date, now() FROM (" +
+            "SELECT r.account_id, r.period_start, r.period_end, r.due_date, " +
+            "(SELECT COALESCE(SUM(e.amount), 0) FROM expenses e WHERE e.account_id = r.account_id " +
+            "AND e.expense_date BETWEEN r.period_start AND r.period_end) AS charges, " +
+            "(SELECT COALESCE(SUM(i.amount), 0) FROM incomes i WHERE i.account_id = r.account_id " +
+            "AND i.income_date BETWEEN r.period_start AND r.period_end) AS payments, " +
+            "a.balance " +
+            "- (SELECT COALESCE(SUM(e.amount), 0) FROM expenses e WHERE e.account_id = r.account_id " +
+            "AND e.expense_date > r.period_end) " +
+            "+ (SELECT COALESCE(SUM(i.amount), 0) FROM incomes i WHERE i.account_id = r.account_id " +
+            "AND i.income_date > r.period_end) AS closing " +
+            "FROM unnest(CAST(:accountIds AS uuid[]), CAST(:periodStarts AS date[]), " +
+            "CAST(:periodEnds AS date[]), CAST(:dueDates AS date[])) " +
+            "AS r(account_id, period_start, period_end, due_date) " +
+            "JOIN accounts a ON a.id = r.account_id AND a.type = 'CREDIT_CARD'" +
+            ") t ON CONFLICT DO NOTHING", nativeQuery = true)
+    int closeStatements(@Param("accountIds") UUID[] accountIds,
+            @Param("periodStarts") LocalDate[] periodStarts,
+            @Param("periodEnds") LocalDate[] periodEnds,
+            @Param("dueDates") LocalDate[] dueDates);
+}
@@ -1,11 +1,13 @@
 package com.example.financemanager.repositories;
 
+import com.example.financemanager.dto.TransactionView;
 import com.example.financemanager.entities.ExpenseEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
@@ -13,44 +15,57 @@ import java.util.UUID;
 public interface ExpenseRepository
                 extends JpaRepository<ExpenseEntity, UUID> {
 
-        List<ExpenseEntity> findByUserId(UUID userId);
+        // Select list for native queries returning TransactionView; aliases match its components
+        String VIEW_SELECT = "SELECT e.id AS \"id\", e.name AS \"name\", e.description AS \"description\", " +
+                        "e.amount AS \"amount\", e.expense_date AS \"date\", c.id AS \"categoryId\", " +
+                        "c.name AS \"categoryName\", e.account_id AS \"accountId\" " +
+                        "FROM expenses e " +
+                        "LEFT JOIN categories c ON c.id = e.category_id ";
 
-        List<ExpenseEntity> findByUserIdAndExpenseDateGreaterThanEqualOrderByExpenseDateDesc(UUID userId,
-                        LocalDate startDate);
+        // Must stay identical to the expression indexed by idx_expenses_search so the GIN index is used
+        String SEARCH_DOCUMENT = "(setweight(to_tsvector('simple', coalesce(e.name, '')), 'A') || " +
+                        "setweight(to_tsvector('simple', coalesce(e.description, '')), 'B'))";
 
-        List<ExpenseEntity> findByUserIdAndExpenseDateLessThanEqualOrderByExpenseDateDesc(UUID userId,
-                        LocalDate endDate);
+        @Query("SELECT new com.example.financemanager.dto.TransactionView(" +
+                        "e.id, e.name, e.description, e.amount, e.expenseDate, c.id, c.name, e.account.id) " +
+                        "FROM ExpenseEntity e LEFT JOIN e.category c " +
+                        "WHERE e.user.id = :userId " +
+                        "ORDER BY e.expenseDate DESC")
+        List<TransactionView> findViewsByUserId(@Param("userId") UUID userId);
 
-        @Query(value = "SELECT e.* FROM expenses e " +
-                        "LEFT JOIN categories c ON c.id = e.category_id " +
-                        "LEFT JOIN accounts a ON a.id = e.account_id " +
+        // Prefix search over name and description; query is a to_tsquery string such as
+        // "coffee:* & sh:*" (see SearchTokenizer.toPrefixTsQuery). Ranked by ts_rank over the same
+        // indexed document, so name hits (weight A) outrank description-only hits (weight B); ties newest first
+        @Query(value = VIEW_SELECT +
+                        "CROSS JOIN to_tsquery('simple', :query) q " +
                         "WHERE e.user_id = :userId " +
-                        "AND (CAST(:startDate AS date) IS NULL OR e.expense_date >= CAST(:startDate AS date)) " +
-                        "AND (CAST(:endDate AS date) IS NULL OR e.expense_date <= CAST(:endDate AS date)) " +
-                        "AND (CAST(:accountId AS uuid) IS NULL OR a.id = CAST(:accountId AS uuid)) " +
-                        "AND (:categoryIds IS NULL OR c.id IN :categoryIds) " +
-                        "AND (:search IS NULL OR " +
-                        "     (e.name::text ILIKE CONCAT('%', :search, '%')) OR " +
-                        "     (e.description IS NOT NULL AND e.description::text ILIKE CONCAT('%', :search, '%'))) " +
-                        "ORDER BY e.expense_date DESC", nativeQuery = true)
-        List<ExpenseEntity> findFilteredExpenses(
+                        "AND " + SEARCH_DOCUMENT + " @@ q " +
+                        "ORDER BY ts_rank(" + SEARCH_DOCUMENT + ", q) DESC, e.expense_date DESC, e.id DESC " +
+                        "LIMIT :limit", nativeQuery = true)
+        List<TransactionView> searchRanked(
                         @Param("userId") UUID userId,
-                        @Param("startDate") LocalDate startDate,
-                        @Param("endDate") LocalDate endDate,
-                        @Param("categoryIds") java.util.Collection<UUID> categoryIds,
-                        @Param("accountId") UUID accountId,
-                        @Param("search") String search);
-
-        List<ExpenseEntity> findByUserIdAndExpenseDateBetweenOrderByExpenseDateDesc(UUID userId, LocalDate startDate,
-                        LocalDate endDate);
+                        @Param("query") String query,
+                        @Param("limit") int limit);
 
         List<ExpenseEntity> findByDebt_Id(UUID debtId);
 
         List<ExpenseEntity> findBySaving_Id(UUID savingId);
 
-        List<ExpenseEntity> findByAccount_Id(UUID accountId);
+        /**
+         * Spend since each account's own start date, for many accounts in one
+         * grouped query; accountIds[i] pairs with fromDates[i]. Every account
+         * passed in gets a row, with 0 when it has no expenses in range.
+         */
+        @Query(value = "SELECT r.account_id AS \"accountId\", COALESCE(SUM(e.amount), 0) AS \"total\" " +
+                        "FROM unnest(CAST(:accountIds AS uuid[]), CAST(:fromDates AS date[])) " +
+                        "AS r(account_id, from_date) " +
+                        "LEFT JOIN expenses e ON e.account_id = r.account_id AND e.expense_date >= r.from_date " +
+                        "GROUP BY r.account_id", nativeQuery = true)
+        List<AccountTotal> sumByAccountSince(@Param("accountIds") UUID[] accountIds,
+                        @Param("fromDates") LocalDate[] fromDates);
 
-        List<ExpenseEntity> findByAccount_IdAndExpenseDateGreaterThanEqual(UUID accountId, LocalDate date);
+        record AccountTotal(UUID accountId, BigDecimal total) {
+        }
 
         boolean existsByCategory_Id(UUID categoryId);
 }
@@ -0,0 +1,49 @@
+package com.example.financemanager.repositories;
+
+import com.example.financemanager.entities.IdempotencyKeyEntity;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.UUID;
+
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKeyEntity, UUID> {
+
+    Optional<IdempotencyKeyEntity> findByUserIdAndIdempotencyKey(UUID userId, String idempotencyKey);
+
+    /**
+     * Claims the key for the current transaction: returns 1 when the key is new
+     * (or its previous use has expired), 0 when a live row already holds it.
+     * A concurrent claim of the same key waits on the unique index until the
+     * first transaction ends, so it never runs the write a second time.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = "INSERT INTO idempotency_keys " +
+            "(id, user_id, idempotency_key, request_hash, response_body, created_at, expires_at) " +
+            "VALUES (:id, :userId, :key, :requestHash, NULL, :now, :expiresAt) " +
+            "ON CONFLICT (user_id, idempotency_key) DO UPDATE SET " +
+            "id = EXCLUDED.id, request_hash = EXCLUDED.request_hash, response_body = NULL, " +
+            "created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at " +
+            "WHERE idempotency_keys.expires_at <= :now", nativeQuery = true)
+    int claim(@Param("id") UUID id, @Param("userId") UUID userId, @Param("key") String key,
+            @Param("requestHash") String requestHash, @Param("now") Instant now,
+            @Param("expiresAt") Instant expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyKeyEntity k SET k.responseBody = :responseBody " +
+            "WHERE k.userId = :userId AND k.idempotencyKey = :key")
+    int storeResponse(@Param("userId") UUID userId, @Param("key") String key,
+            @Param("responseBody") String responseBody);
+
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM idempotency_keys WHERE id IN (" +
+            "SELECT id FROM idempotency_keys WHERE expires_at <= :now LIMIT :batchSize)", nativeQuery = true)
+    int deleteExpiredBatch(@Param("now") Instant now, @Param("batchSize") int batchSize);
+}
@@ -1,5 +1,6 @@
 package com.example.financemanager.repositories;
 
+import com.example.financemanager.dto.TransactionView;
 import com.example.financemanager.entities.IncomeEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
@@ -10,31 +11,46 @@ import java.util.List;
 import java.util.UUID;
 
 public interface IncomeRepository extends JpaRepository<IncomeEntity, UUID> {
-        List<IncomeEntity> findByUserIdOrderByIncomeDateDesc(UUID userId);
+        // Select list for native queries returning TransactionView; aliases match its components
+        String VIEW_SELECT = "SELECT i.id AS \"id\", i.name AS \"name\", i.description AS \"description\", " +
+                        "i.amount AS \"amount\", i.income_date AS \"date\", c.id AS \"categoryId\", " +
+                        "c.name AS \"categoryName\", i.account_id AS \"accountId\" " +
+                        "FROM incomes i " +
+                        "LEFT JOIN categories c ON c.id = i.category_id ";
 
-        List<IncomeEntity> findByUserIdAndIncomeDateBetweenOrderByIncomeDateDesc(UUID userId, LocalDate startDate,
-                        LocalDate endDate);
+        // Must stay identical to the expression indexed by idx_incomes_search so the GIN index is used
+        String SEARCH_DOCUMENT = "(setweight(to_tsvector('simple', coalesce(i.name, '')), 'A') || " +
+                        "setweight(to_tsvector('simple', coalesce(i.description, '')), 'B'))";
 
-        @Query(value = "SELECT i.* FROM incomes i " +
-                        "LEFT JOIN categories c ON c.id = i.category_id " +
+        @Query("SELECT new com.example.financemanager.dto.TransactionView(" +
+                        "i.id, i.name, i.description, i.amount, i.incomeDate, c.id, c.name, i.account.id) " +
+                        "FROM IncomeEntity i LEFT JOIN i.category c " +
+                        "WHERE i.user.id = :userId " +
+                        "ORDER BY i.incomeDate DESC")
+        List<TransactionView> findViewsByUserId(@Param("userId") UUID userId);
+
+        // Prefix search over name and description; query is a to_tsquery string such as
+        // "coffee:* & sh:*" (see SearchTokenizer.toPrefixTsQuery). Ranked by ts_rank over the same
+        // indexed document, so name hits (weight A) outrank description-only hits (weight B); ties newest first
+        @Query(value = VIEW_SELECT +
+                        "CROSS JOIN to_tsquery('simple', :query) q " +
                         "WHERE i.user_id = :userId " +
-                        "AND (CAST(:startDate AS date) IS NULL OR i.income_date >= CAST(:startDate AS date)) " +
-                        "AND (CAST(:endDate AS date) IS NULL OR i.income_date <= CAST(:endDate AS date)) " +
-                        "AND (CAST(:accountId AS uuid) IS NULL OR i.account_id = CAST(:accountId AS uuid)) " +
-                        "AND (:categoryIds IS NULL OR c.id IN :categoryIds) " +
-                        "AND (:search IS NULL OR " +
-                        "     (i.name::text ILIKE CONCAT('%', :search, '%')) OR " +
-                        "     (i.description IS NOT NULL AND i.description::text ILIKE CONCAT('%', :search, '%'))) " +
-                        "ORDER BY i.income_date DESC", nativeQuery = true)
-        List<IncomeEntity> findFilteredIncomes(
+                        "AND " + SEARCH_DOCUMENT + " @@ q " +
+                        "ORDER BY ts_rank(" + SEARCH_DOCUMENT + ", q) DESC, i.income_date DESC, i.id DESC " +
+                        "LIMIT :limit", nativeQuery = true)
+        List<TransactionView> searchRanked(
                         @Param("userId") UUID userId,
-                        @Param("startDate") LocalDate startDate,
-                        @Param("endDate") LocalDate endDate,
-                        @Param("accountId") UUID accountId,
-                        @Param("categoryIds") java.util.Collection<UUID> categoryIds,
-                        @Param("search") String search);
+                        @Param("query") String query,
+                        @Param("limit") int limit);
 
-        List<IncomeEntity> findByAccount_Id(UUID accountId);
+        // Income counterpart of ExpenseRepository.sumByAccountSince
+        @Query(value = "SELECT r.account_id AS \"accountId\", COALESCE(SUM(i.amount), 0) AS \"total\" " +
+                        "FROM unnest(CAST(:accountIds AS uuid[]), CAST(:fromDates AS date[])) " +
+                        "AS r(account_id, from_date) " +
+                        "LEFT JOIN incomes i ON i.account_id = r.account_id AND i.income_date >= r.from_date " +
+                        "GROUP BY r.account_id", nativeQuery = true)
+        List<ExpenseRepository.AccountTotal> sumByAccountSince(@Param("accountIds") UUID[] accountIds,
+                        @Param("fromDates") LocalDate[] fromDates);
 
         boolean existsByCategory_Id(UUID categoryId);
 }
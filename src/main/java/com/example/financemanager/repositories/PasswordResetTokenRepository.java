@@ -3,14 +3,27 @@ package com.example.financemanager.repositories;
 import com.example.financemanager.entities.PasswordResetTokenEntity;
 import com.example.financemanager.entities.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.Optional;
 import java.util.UUID;
 
 public interface PasswordResetTokenRepository extends JpaRepository<PasswordResetTokenEntity, UUID> {
-    Optional<PasswordResetTokenEntity> findByToken(String token);
+    Optional<PasswordResetTokenEntity> findByTokenHash(String tokenHash);
 
     @Transactional
     void deleteByUser(UserEntity user);
+
+    // Deletes at most batchSize used/expired tokens; each call is its own short transaction
+    @Modifying
+    @Transactional
+    @Query(value = "DELETE FROM password_reset_tokens WHERE id IN (" +
+            "SELECT id FROM password_reset_tokens " +
+            "WHERE used = true OR expires_at < :now " +
+            "LIMIT :batchSize)", nativeQuery = true)
+    int deleteUsedOrExpiredBatch(@Param("now") Instant now, @Param("batchSize") int batchSize);
 }
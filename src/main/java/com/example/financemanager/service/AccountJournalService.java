@@ -0,0 +1,55 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.AccountJournalStatus;
+import com.example.financemanager.repositories.AccountPostingRepository;
+import com.example.financemanager.repositories.AccountRepository;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Checks and repairs account balances against the account journal. Both
+ * start from the latest checkpoint and replay only the postings after it.
+ */
+@Service
+public class AccountJournalService {
+
+    private final AccountRepository accountRepository;
+    private final AccountPostingRepository accountPostingRepository;
+    private final PostingCoordinator postingCoordinator;
+
+    public AccountJournalService(AccountRepository accountRepository,
+            AccountPostingRepository accountPostingRepository, PostingCoordinator postingCoordinator) {
+        this.accountRepository = accountRepository;
+        this.accountPostingRepository = accountPostingRepository;
+        this.postingCoordinator = postingCoordinator;
+    }
+
+    @Transactional(readOnly = true)
+    public AccountJournalStatus verify(UUID accountId, UUID userId) {
+        return accountPostingRepository.replayFromCheckpoint(accountId, userId)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+    }
+
+    /**
+     * Resets the balance to the journal balance when they disagree (e.g.
+     * after a manual edit in the database). Only the balance column is
+     * corrected, so the returned status is consistent.
+     */
+    @Transactional
+    public AccountJournalStatus recalculate(UUID accountId, UUID userId) {
+        postingCoordinator.lock(List.of(accountId));
+        accountRepository.lockForUpdate(accountId, userId)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        AccountJournalStatus status = verify(accountId, userId);
+        if (status.isConsistent()) {
+            return status;
+        }
+        // Adjusting to the journal balance would journal the drift as a posting and
+        // double it on the next replay, so only the balance column is corrected
+        accountRepository.restoreBalance(accountId, userId, status.journalBalance());
+        return verify(accountId, userId);
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.financemanager.service;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Rebuilds account balances from the user's expenses and incomes. The totals
+ * come from one UNION ALL aggregate grouped by account, so memory use is the
+ * same whether an account has ten transactions or a million. A changed
+ * balance is written through PostingCoordinator.adjustTo and so is
+ * journaled like any other posting.
+ */
+@Service
+public class AccountRecalculationService {
+
+    // Expenses raise a credit card balance (amount owed) and lower any other
+    // account; incomes do the opposite. Mirrors AccountEntity.expenseDelta.
+    private static final String RECALCULATE_SQL =
+            "SELECT a.id, CASE WHEN a.type = 'CREDIT_CARD' " +
+            "THEN COALESCE(t.expenses, 0) - COALESCE(t.incomes, 0) " +
+            "ELSE COALESCE(t.incomes, 0) - COALESCE(t.expenses, 0) END AS balance " +
+            "FROM accounts a LEFT JOIN (" +
+            "SELECT account_id, SUM(amount) FILTER (WHERE kind = 'E') AS expenses, " +
+            "SUM(amount) FILTER (WHERE kind = 'I') AS incomes FROM (" +
+            "SELECT account_id, amount, 'E' AS kind FROM expenses WHERE user_id = ? %1$s " +
+            "UNION ALL " +
+            "SELECT account_id, amount, 'I' AS kind FROM incomes WHERE user_id = ? %1$s" +
+            ") x GROUP BY account_id) t ON t.account_id = a.id " +
+            "WHERE a.user_id = ? %2$s";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PostingCoordinator postingCoordinator;
+
+    public AccountRecalculationService(JdbcTemplate jdbcTemplate, PostingCoordinator postingCoordinator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.postingCoordinator = postingCoordinator;
+    }
+
+    /**
+     * Recalculates one account of the user and returns its new balance.
+     */
+    @Transactional
+    public BigDecimal recalculate(UUID accountId, UUID userId) {
+        BigDecimal balance = recalculateBalances(userId, accountId).get(accountId);
+        if (balance == null) {
+            throw new RuntimeException("Account not found");
+        }
+        return balance;
+    }
+
+    /**
+     * Recalculates every account of the user; returns the new balance by account id.
+     */
+    @Transactional
+    public Map<UUID, BigDecimal> recalculateAll(UUID userId) {
+        return recalculateBalances(userId, null);
+    }
+
+    private Map<UUID, BigDecimal> recalculateBalances(UUID userId, UUID accountId) {
+        // Lock the accounts first: postings committed before the lock are in the
+        // totals, and later ones wait and apply on top of the new balance
+        List<Object> lockArgs = new ArrayList<>(List.of(userId));
+        String lockSql = "SELECT id FROM accounts WHERE user_id = ?";
+        if (accountId != null) {
+            lockSql += " AND id = ?";
+            lockArgs.add(accountId);
+        }
+        // Stripes before row locks, the same order every posting takes them in
+        postingCoordinator.lock(jdbcTemplate.queryForList(lockSql, UUID.class, lockArgs.toArray()));
+        jdbcTemplate.queryForList(lockSql + " ORDER BY id FOR UPDATE", UUID.class, lockArgs.toArray());
+
+        String sql;
+        Object[] args;
+        if (accountId != null) {
+            sql = String.format(RECALCULATE_SQL, "AND account_id = ?", "AND a.id = ?");
+            args = new Object[] { userId, accountId, userId, accountId, userId, accountId };
+        } else {
+            sql = String.format(RECALCULATE_SQL, "", "");
+            args = new Object[] { userId, userId, userId };
+        }
+
+        Map<UUID, BigDecimal> balances = new LinkedHashMap<>();
+        jdbcTemplate.query(sql, rs -> {
+            balances.put(rs.getObject("id", UUID.class), rs.getBigDecimal("balance"));
+        }, args);
+
+        balances.forEach((id, balance) -> postingCoordinator.adjustTo(id, userId, balance));
+        return balances;
+    }
+}
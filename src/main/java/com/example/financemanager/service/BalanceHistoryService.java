@@ -0,0 +1,101 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.BalanceHistory;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Balance-over-time series for an account, computed in Postgres from the
+ * account journal, so every balance change counts: expenses, incomes,
+ * imports and journaled adjustments alike. The opening balance is the latest
+ * checkpoint before from plus the few postings between it and from; only the
+ * postings in [from, to] are then netted per day and run forward with a
+ * window sum. Postings fall on the day they were made.
+ */
+@Service
+public class BalanceHistoryService {
+
+    private static final String HISTORY_SQL =
+            "WITH acct AS (SELECT id FROM accounts WHERE id = ? AND user_id = ?), " +
+            // Latest checkpoint written before from, else the opening one (seq 0)
+            "start AS (SELECT acct.id, COALESCE(c.seq, 0) AS seq, COALESCE(c.balance, 0) AS balance, " +
+            "c.created_at FROM acct LEFT JOIN LATERAL (SELECT seq, balance, created_at " +
+            "FROM account_checkpoints WHERE account_id = acct.id AND (created_at < ? OR seq = 0) " +
+            "ORDER BY seq DESC LIMIT 1) c ON true), " +
+            "opening AS (SELECT s.id, s.balance + COALESCE((SELECT SUM(ap.delta) FROM account_postings ap " +
+            "WHERE ap.account_id = s.id AND ap.seq > s.seq " +
+            "AND ap.posted_at >= COALESCE(s.created_at, '-infinity') AND ap.posted_at < ?), 0) AS balance " +
+            "FROM start s), " +
+            "daily AS (SELECT CAST(ap.posted_at AS date) AS day, SUM(ap.delta) AS net " +
+            "FROM opening o JOIN account_postings ap ON ap.account_id = o.id " +
+            "AND ap.posted_at >= ? AND ap.posted_at < ? GROUP BY 1), " +
+            "running AS (SELECT day, net, o.balance + SUM(net) OVER (ORDER BY day) AS closing " +
+            "FROM daily CROSS JOIN opening o), " +
+            "buckets AS (SELECT CAST(date_trunc(?, day) AS date) AS period, SUM(net) AS net, " +
+            "(array_agg(closing ORDER BY day DESC))[1] AS closing FROM running GROUP BY 1) " +
+            "SELECT o.balance AS opening, b.period, b.net, b.closing " +
+            "FROM opening o LEFT JOIN buckets b ON true ORDER BY b.period";
+
+    public enum Granularity { DAY, WEEK, MONTH }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public BalanceHistoryService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * from defaults to a month (day granularity) or a year before to, and to
+     * to today.
+     */
+    public BalanceHistory history(UUID accountId, UUID userId, LocalDate from, LocalDate to, String granularity) {
+        Granularity unit = parseGranularity(granularity);
+        if (to == null) {
+            to = LocalDate.now();
+        }
+        if (from == null) {
+            from = unit == Granularity.DAY ? to.minusMonths(1) : to.minusYears(1);
+        }
+        if (from.isAfter(to)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "from must not be after to");
+        }
+
+        BigDecimal[] opening = { null };
+        List<BalanceHistory.Point> points = new ArrayList<>();
+        jdbcTemplate.query(HISTORY_SQL, rs -> {
+            opening[0] = rs.getBigDecimal("opening");
+            Date period = rs.getDate("period");
+            if (period != null) {
+                points.add(new BalanceHistory.Point(period.toLocalDate(), rs.getBigDecimal("net"),
+                        rs.getBigDecimal("closing")));
+            }
+        }, accountId, userId, from, from, from, to.plusDays(1), unit.name().toLowerCase(Locale.ROOT));
+
+        // No row at all means the account does not exist or is not the user's
+        if (opening[0] == null) {
+            throw new RuntimeException("Account not found");
+        }
+        return new BalanceHistory(accountId, from, to, unit.name(), opening[0], points);
+    }
+
+    private static Granularity parseGranularity(String granularity) {
+        if (granularity == null || granularity.isBlank()) {
+            return Granularity.DAY;
+        }
+        try {
+            return Granularity.valueOf(granularity.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "granularity must be DAY, WEEK or MONTH");
+        }
+    }
+}
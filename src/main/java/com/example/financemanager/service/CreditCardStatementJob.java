@@ -0,0 +1,34 @@
+package com.example.financemanager.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+/**
+ * Closes ended credit card billing cycles into statements. Closing is
+ * idempotent, so a run that overlaps a previous one or repeats on the same
+ * day writes nothing new.
+ */
+@Component
+public class CreditCardStatementJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CreditCardStatementJob.class);
+
+    private final CreditCardStatementService statementService;
+
+    public CreditCardStatementJob(CreditCardStatementService statementService) {
+        this.statementService = statementService;
+    }
+
+    @Scheduled(fixedDelayString = "${credit-card-statements.close-interval-ms:3600000}",
+            initialDelayString = "${credit-card-statements.initial-delay-ms:60000}")
+    public void closeStatements() {
+        int closed = statementService.closeEndedCycles(LocalDate.now());
+        if (closed > 0) {
+            log.info("Closed {} credit card statements", closed);
+        }
+    }
+}
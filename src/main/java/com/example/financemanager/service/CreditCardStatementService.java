@@ -0,0 +1,122 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.repositories.CreditCardStatementRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Closes ended credit card billing cycles into credit_card_statements. Cards
+ * are walked in id order a page at a time, and each page's statements are
+ * written by one INSERT ... SELECT, so closing costs a few statements per
+ * page however many cards and transactions there are. Each card's cycles
+ * are closed oldest first, continuing from the day after its latest
+ * statement, so a card that fell behind catches up over several runs
+ * without leaving gaps.
+ */
+@Service
+public class CreditCardStatementService {
+
+    private static final UUID FIRST_ID = new UUID(Long.MIN_VALUE, Long.MIN_VALUE);
+
+    private final CreditCardStatementRepository statementRepository;
+
+    @Value("${credit-card-statements.page-size:500}")
+    private int pageSize;
+
+    // Ended cycles closed per card in one run when it has fallen behind (or is new with older transactions)
+    @Value("${credit-card-statements.max-catch-up-cycles:12}")
+    private int maxCatchUpCycles;
+
+    public CreditCardStatementService(CreditCardStatementRepository statementRepository) {
+        this.statementRepository = statementRepository;
+    }
+
+    /**
+     * Closes up to maxCatchUpCycles ended cycles per card, oldest first,
+     * starting the day after the card's latest statement. A card without
+     * statements starts at the cycle of its first transaction, or at the last
+     * ended cycle when it has none. Returns the number of statements written.
+     */
+    public int closeEndedCycles(LocalDate today) {
+        int closed = 0;
+        UUID after = FIRST_ID;
+        while (true) {
+            List<CreditCardStatementRepository.Card> cards = statementRepository.findCardsAfter(after, pageSize);
+            if (cards.isEmpty()) {
+                break;
+            }
+
+            List<UUID> accountIds = new ArrayList<>();
+            List<LocalDate> periodStarts = new ArrayList<>();
+            List<LocalDate> periodEnds = new ArrayList<>();
+            List<LocalDate> dueDates = new ArrayList<>();
+            for (CreditCardStatementRepository.Card card : cards) {
+                int day = card.cycleStartDay();
+                LocalDate lastEnded = cycleStart(day, today).minusDays(1);
+                LocalDate start;
+                if (card.lastPeriodEnd() != null) {
+                    // Also right when the cycle day changed: the first cycle is then a short one
+                    start = card.lastPeriodEnd().plusDays(1);
+                } else if (card.firstActivity() != null && card.firstActivity().isBefore(lastEnded)) {
+                    start = cycleStart(day, card.firstActivity());
+                } else {
+                    start = cycleStart(day, lastEnded);
+                }
+                for (int i = 0; i < maxCatchUpCycles && !start.isAfter(lastEnded); i++) {
+                    LocalDate end = cycleEnd(day, start);
+                    accountIds.add(card.accountId());
+                    periodStarts.add(start);
+                    periodEnds.add(end);
+                    dueDates.add(card.dueDateDay() != null ? dueDate(card.dueDateDay(), end) : null);
+                    start = end.plusDays(1);
+                }
+            }
+
+            if (!accountIds.isEmpty()) {
+                closed += statementRepository.closeStatements(accountIds.toArray(new UUID[0]),
+                        periodStarts.toArray(new LocalDate[0]), periodEnds.toArray(new LocalDate[0]),
+                        dueDates.toArray(new LocalDate[0]));
+            }
+            if (cards.size() < pageSize) {
+                break;
+            }
+            after = cards.get(cards.size() - 1).accountId();
+        }
+        return closed;
+    }
+
+    /**
+     * Start of the billing cycle containing date; a start day past the end of
+     * a short month falls on that month's last day.
+     */
+    public static LocalDate cycleStart(int day, LocalDate date) {
+        LocalDate thisMonth = date.withDayOfMonth(Math.min(day, date.lengthOfMonth()));
+        if (date.isBefore(thisMonth)) {
+            LocalDate lastMonth = date.minusMonths(1);
+            return lastMonth.withDayOfMonth(Math.min(day, lastMonth.lengthOfMonth()));
+        }
+        return thisMonth;
+    }
+
+    // Last day of the billing cycle containing date, i.e. the day before the next cycle starts
+    static LocalDate cycleEnd(int day, LocalDate date) {
+        YearMonth next = YearMonth.from(cycleStart(day, date)).plusMonths(1);
+        return next.atDay(Math.min(day, next.lengthOfMonth())).minusDays(1);
+    }
+
+    // First dueDateDay after the cycle's last day, clamped to short months like cycleStart
+    static LocalDate dueDate(int dueDateDay, LocalDate periodEnd) {
+        LocalDate due = periodEnd.withDayOfMonth(Math.min(dueDateDay, periodEnd.lengthOfMonth()));
+        if (!due.isAfter(periodEnd)) {
+            LocalDate nextMonth = periodEnd.plusMonths(1);
+            due = nextMonth.withDayOfMonth(Math.min(dueDateDay, nextMonth.lengthOfMonth()));
+        }
+        return due;
+    }
+}
@@ -21,6 +21,13 @@ public class CustomUserDetails implements UserDetails {
         this.password = user.getPasswordHash();
     }
 
+    // Stateless principal built from verified JWT claims; carries no password
+    public CustomUserDetails(UUID userId, String email) {
+        this.userId = userId;
+        this.email = email;
+        this.password = null;
+    }
+
     public CustomUserDetails(com.example.financemanager.models.User user, UUID userId, String email, String password) {
         this.userId = userId;
         this.email = email;
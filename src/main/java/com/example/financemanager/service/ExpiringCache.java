@@ -0,0 +1,96 @@
+package com.example.financemanager.service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Small in-process cache with a hard size bound and a per-entry expiry.
+ * Expired entries are dropped lazily on read and swept when the cache fills
+ * up; if it is still full after the sweep, the entries closest to expiry
+ * (for a fixed TTL, the oldest) are evicted.
+ */
+public class ExpiringCache<K, V> {
+
+    private final Map<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final int maxEntries;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ExpiringCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be positive");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.value();
+    }
+
+    public void put(K key, V value, long expiresAtMillis) {
+        if (expiresAtMillis <= System.currentTimeMillis()) {
+            return;
+        }
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            evict();
+        }
+        entries.put(key, new Entry<>(value, expiresAtMillis));
+    }
+
+    public void invalidate(K key) {
+        entries.remove(key);
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long hitCount() {
+        return hits.sum();
+    }
+
+    public long missCount() {
+        return misses.sum();
+    }
+
+    private void evict() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAtMillis() <= now);
+
+        // Still full: free roughly a tenth of the capacity so we don't sweep on every put,
+        // dropping the entries that would have expired first
+        int target = maxEntries - Math.max(1, maxEntries / 10);
+        int excess = entries.size() - target;
+        if (excess <= 0) {
+            return;
+        }
+        List<Map.Entry<K, Entry<V>>> soonestFirst = new ArrayList<>(entries.entrySet());
+        soonestFirst.sort(Comparator.comparingLong(e -> e.getValue().expiresAtMillis()));
+        for (int i = 0; i < excess && i < soonestFirst.size(); i++) {
+            Map.Entry<K, Entry<V>> e = soonestFirst.get(i);
+            entries.remove(e.getKey(), e.getValue());
+        }
+    }
+
+    private record Entry<V>(V value, long expiresAtMillis) {
+    }
+}
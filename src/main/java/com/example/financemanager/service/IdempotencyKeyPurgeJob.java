@@ -0,0 +1,49 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.repositories.IdempotencyKeyRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+
+/**
+ * Removes expired idempotency keys in bounded batches, each in its own
+ * transaction, so the table only holds the last TTL's worth of writes.
+ */
+@Component
+public class IdempotencyKeyPurgeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyKeyPurgeJob.class);
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+
+    @Value("${idempotency.purge-batch-size:1000}")
+    private int batchSize;
+
+    @Value("${idempotency.purge-max-batches:200}")
+    private int maxBatches;
+
+    public IdempotencyKeyPurgeJob(IdempotencyKeyRepository idempotencyKeyRepository) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+    }
+
+    @Scheduled(fixedDelayString = "${idempotency.purge-interval-ms:3600000}",
+            initialDelayString = "${idempotency.purge-interval-ms:3600000}")
+    public void purge() {
+        Instant now = Instant.now();
+        int total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int deleted = idempotencyKeyRepository.deleteExpiredBatch(now, batchSize);
+            total += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+        if (total > 0) {
+            log.info("Purged {} expired idempotency keys", total);
+        }
+    }
+}
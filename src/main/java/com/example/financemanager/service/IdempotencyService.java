@@ -0,0 +1,145 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.repositories.IdempotencyKeyRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Makes a write safe to retry with an Idempotency-Key header. The first
+ * request with a key runs the write and stores its JSON response in the same
+ * transaction; later requests with that key get the stored response back
+ * without writing anything. Recent keys are also held in a bounded in-memory
+ * cache, so most replays never touch the database.
+ */
+@Service
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    @Value("${idempotency.ttl-ms:86400000}")
+    private long ttlMs;
+
+    @Value("${idempotency.cache-max-entries:10000}")
+    private int cacheMaxEntries;
+
+    private ExpiringCache<String, Stored> cache;
+
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository,
+            PlatformTransactionManager transactionManager, ObjectMapper objectMapper) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    void init() {
+        cache = new ExpiringCache<>(cacheMaxEntries);
+    }
+
+    /**
+     * Runs write once per (user, key). endpoint names the operation, e.g.
+     * "POST /expenses"; together with the request body it must match the
+     * first use of the key, otherwise the request is rejected. Without a key
+     * the write simply runs.
+     */
+    public ResponseEntity<?> execute(UUID userId, String key, String endpoint, Object request,
+            Supplier<?> write) {
+        if (key == null) {
+            return ResponseEntity.ok(write.get());
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String cacheKey = userId + ":" + key;
+        String requestHash = requestHash(endpoint, request);
+
+        Stored cached = cache.get(cacheKey);
+        if (cached != null) {
+            return replay(cached, requestHash);
+        }
+
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            Instant expiresAt = now.plusMillis(ttlMs);
+            if (idempotencyKeyRepository.claim(UUID.randomUUID(), userId, key, requestHash, now, expiresAt) == 0) {
+                Stored stored = idempotencyKeyRepository.findByUserIdAndIdempotencyKey(userId, key)
+                        .map(k -> new Stored(k.getRequestHash(), k.getResponseBody()))
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.CONFLICT,
+                                "A request with this " + HEADER + " is still in progress"));
+                if (stored.responseBody() != null) {
+                    cache.put(cacheKey, stored, expiresAt.toEpochMilli());
+                }
+                return replay(stored, requestHash);
+            }
+
+            String responseBody = objectMapper.writeValueAsString(write.get());
+            idempotencyKeyRepository.storeResponse(userId, key, responseBody);
+
+            // Only cache once the write is durable; a rollback must leave the key free for a retry
+            Stored stored = new Stored(requestHash, responseBody);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    cache.put(cacheKey, stored, expiresAt.toEpochMilli());
+                }
+            });
+            return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(responseBody);
+        });
+    }
+
+    private static ResponseEntity<?> replay(Stored stored, String requestHash) {
+        if (!stored.requestHash().equals(requestHash)) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_CONTENT,
+                    HEADER + " was already used for a different request");
+        }
+        if (stored.responseBody() == null) {
+            throw new ResponseStatusException(HttpStatus.CONFLICT,
+                    "A request with this " + HEADER + " is still in progress");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(REPLAYED_HEADER, "true")
+                .body(stored.responseBody());
+    }
+
+    private String requestHash(String endpoint, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(endpoint.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) '\n');
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private record Stored(String requestHash, String responseBody) {
+    }
+}
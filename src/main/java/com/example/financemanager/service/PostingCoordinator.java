@@ -0,0 +1,151 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.repositories.AccountRepository;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Serializes balance changes per account within this instance. Each account
+ * id hashes to one of a fixed set of lock stripes; a posting takes its
+ * account's stripe and, inside a transaction, keeps it until the
+ * transaction completes, so concurrent posts to a hot account queue here
+ * one after another rather than all blocking on the database row lock.
+ * Accounts on other stripes are never blocked. Across instances the row lock
+ * of the posting UPDATE and @Version on AccountEntity still apply.
+ */
+@Service
+public class PostingCoordinator {
+
+    private final AccountRepository accountRepository;
+
+    @Value("${posting.lock-stripes:1024}")
+    private int stripeCount;
+
+    // Bounds the wait for a stripe; a transaction that takes stripes out of order
+    // gives up after this long instead of deadlocking
+    @Value("${posting.lock-timeout-ms:5000}")
+    private long lockTimeoutMs;
+
+    private ReentrantLock[] stripes;
+
+    public PostingCoordinator(AccountRepository accountRepository) {
+        this.accountRepository = accountRepository;
+    }
+
+    @PostConstruct
+    void init() {
+        // Power of two, so a stripe is picked with a mask
+        int count = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    /**
+     * Adds delta to the account's balance (see AccountRepository.postBalance).
+     */
+    public void post(UUID accountId, UUID userId, BigDecimal delta) {
+        runLocked(List.of(accountId), () -> accountRepository.postBalance(accountId, userId, delta));
+    }
+
+    /**
+     * Posts to several accounts, taking all of their stripes first in a fixed
+     * order so two multi-account postings can never wait on each other.
+     */
+    public void postAll(Map<UUID, BigDecimal> deltas, UUID userId) {
+        runLocked(deltas.keySet(),
+                () -> deltas.forEach((accountId, delta) -> accountRepository.postBalance(accountId, userId, delta)));
+    }
+
+    /**
+     * Sets the balance to target as a journaled adjustment (see
+     * AccountRepository.adjustBalanceTo).
+     */
+    public void adjustTo(UUID accountId, UUID userId, BigDecimal target) {
+        runLocked(List.of(accountId), () -> accountRepository.adjustBalanceTo(accountId, userId, target));
+    }
+
+    /**
+     * Takes the stripes of the accounts for the rest of the current
+     * transaction, for callers that read a balance and then write it.
+     */
+    public void lock(Collection<UUID> accountIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("PostingCoordinator.lock requires a transaction");
+        }
+        runLocked(accountIds, () -> {
+        });
+    }
+
+    private void runLocked(Collection<UUID> accountIds, Runnable action) {
+        List<ReentrantLock> locks = acquire(accountIds);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // The row lock lasts until commit, so the stripe does too
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    release(locks);
+                }
+            });
+            action.run();
+            return;
+        }
+        try {
+            action.run();
+        } finally {
+            release(locks);
+        }
+    }
+
+    private List<ReentrantLock> acquire(Collection<UUID> accountIds) {
+        TreeSet<Integer> indexes = new TreeSet<>();
+        for (UUID accountId : accountIds) {
+            indexes.add(stripeIndex(accountId));
+        }
+        List<ReentrantLock> locks = indexes.stream().map(i -> stripes[i]).toList();
+        int acquired = 0;
+        try {
+            for (ReentrantLock lock : locks) {
+                if (!lock.tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                            "Account is busy, please retry");
+                }
+                acquired++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted waiting for account");
+        } finally {
+            if (acquired < locks.size()) {
+                release(locks.subList(0, acquired));
+            }
+        }
+        return locks;
+    }
+
+    private static void release(List<ReentrantLock> locks) {
+        for (ReentrantLock lock : locks) {
+            lock.unlock();
+        }
+    }
+
+    private int stripeIndex(UUID accountId) {
+        int h = accountId.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+}
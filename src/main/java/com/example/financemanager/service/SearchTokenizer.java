@@ -0,0 +1,69 @@
+package com.example.financemanager.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits transaction text into lower-case words the same way Postgres'
+ * "simple" text search configuration does, so in-app tokens line up with the
+ * tsvector index built over expense and income names and descriptions.
+ * Like the default parser, decimals and versions ("12.50", "3.14.15") and
+ * host or path-like words ("foo.bar", "rent/utilities") stay one token, and
+ * a hyphenated word ("co-op") yields the whole word followed by its parts.
+ * Signs are dropped, so "-50" is indexed here as "50".
+ */
+public final class SearchTokenizer {
+
+    private static final String ALNUM = "[\\p{L}\\p{N}]";
+
+    private static final Pattern WORD = Pattern.compile(
+            // float / version: 12.50, 3.14.15
+            "(\\p{N}+(?:\\.\\p{N}+)+)"
+            // host / file: foo.bar, rent/utilities, 10/12
+            + "|(" + ALNUM + "+(?:[./]" + ALNUM + "+)+)"
+            // hyphenated word whose parts all contain a letter: e-mail, co-op-shop
+            + "|(" + ALNUM + "*\\p{L}" + ALNUM + "*(?:-" + ALNUM + "*\\p{L}" + ALNUM + "*)+)"
+            + "|(" + ALNUM + "+)");
+
+    private SearchTokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        Matcher m = WORD.matcher(text.toLowerCase(Locale.ROOT));
+        while (m.find()) {
+            tokens.add(m.group());
+            if (m.group(3) != null) {
+                tokens.addAll(List.of(m.group(3).split("-")));
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Builds a to_tsquery() string in which every word of the input must match
+     * as a prefix, e.g. "coffee sh" becomes "coffee:* &amp; sh:*". Returns null
+     * when the input has no words. Tokens hold only letters, digits and the
+     * '.', '/' and '-' joining them, so no tsquery operator can be smuggled in.
+     */
+    public static String toPrefixTsQuery(String text) {
+        List<String> tokens = tokenize(text);
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        for (String token : tokens) {
+            if (query.length() > 0) {
+                query.append(" & ");
+            }
+            query.append(token).append(":*");
+        }
+        return query.toString();
+    }
+}
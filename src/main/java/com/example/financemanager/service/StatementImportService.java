@@ -0,0 +1,442 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.StatementImportResult;
+import com.example.financemanager.entities.AccountEntity;
+import com.example.financemanager.entities.CategoryEntity;
+import com.example.financemanager.repositories.AccountRepository;
+import com.example.financemanager.repositories.CategoryClosureRepository;
+import com.example.financemanager.repositories.CategoryRepository;
+import com.example.financemanager.repositories.UserRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Imports a bank statement into one account as a two-stage pipeline: a parser
+ * thread reads the upload and cuts it into chunks while the request thread
+ * writes the previous chunk, with a small bounded queue in between so memory
+ * stays flat however long the statement is.
+ *
+ * Each chunk is one INSERT ... SELECT FROM unnest(arrays) per table. Every
+ * row carries a content hash that is unique per account, so ON CONFLICT DO
+ * NOTHING skips anything imported before and re-importing an overlapping
+ * statement is safe. The whole import is one transaction, and the account
+ * balance is adjusted once by the net of the rows actually inserted.
+ */
+@Service
+public class StatementImportService {
+
+    private static final String EXPENSE_CATEGORY = "Imported Expenses";
+    private static final String INCOME_CATEGORY = "Imported Income";
+
+    private static final String INSERT_SQL = """
+            WITH inserted AS (
+                INSERT INTO %1$s (id, user_id, account_id, category_id, name, description, amount, %2$s,
+                                  import_hash, created_at, created_by, updated_at, updated_by)
+                SELECT r.id::uuid, ?, ?, ?, r.name, r.description, r.amount::numeric, r.txn_date::date,
+                       r.import_hash, now(), ?, now(), ?
+                FROM unnest(?::text[], ?::text[], ?::text[], ?::text[], ?::text[], ?::text[])
+                     AS r(id, name, description, amount, txn_date, import_hash)
+                ON CONFLICT (account_id, import_hash) DO NOTHING
+                RETURNING amount)
+            SELECT count(*) AS inserted, coalesce(sum(amount), 0) AS total FROM inserted
+            """;
+
+    private static final String INSERT_EXPENSES = INSERT_SQL.formatted("expenses", "expense_date");
+    private static final String INSERT_INCOMES = INSERT_SQL.formatted("incomes", "income_date");
+
+    // Marks the end of the parsed stream in the queue
+    private static final Chunk END = new Chunk();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AccountRepository accountRepository;
+    private final PostingCoordinator postingCoordinator;
+    private final CategoryRepository categoryRepository;
+    private final CategoryClosureRepository categoryClosureRepository;
+    private final UserRepository userRepository;
+    private final TransactionSearchIndex transactionSearchIndex;
+
+    @Value("${statement-import.chunk-size:1000}")
+    private int chunkSize;
+
+    @Value("${statement-import.queued-chunks:4}")
+    private int queuedChunks;
+
+    @Value("${statement-import.max-concurrent:4}")
+    private int maxConcurrent;
+
+    @Value("${statement-import.max-rows:100000}")
+    private long maxRows;
+
+    private ThreadPoolExecutor parsers;
+
+    public StatementImportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            AccountRepository accountRepository, CategoryRepository categoryRepository,
+            CategoryClosureRepository categoryClosureRepository, UserRepository userRepository,
+            TransactionSearchIndex transactionSearchIndex,
+            PostingCoordinator postingCoordinator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.accountRepository = accountRepository;
+        this.postingCoordinator = postingCoordinator;
+        this.categoryRepository = categoryRepository;
+        this.categoryClosureRepository = categoryClosureRepository;
+        this.userRepository = userRepository;
+        this.transactionSearchIndex = transactionSearchIndex;
+    }
+
+    @PostConstruct
+    void init() {
+        // No queue: an import beyond max-concurrent is turned away instead of holding its upload
+        parsers = new ThreadPoolExecutor(0, maxConcurrent, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "statement-parser");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        parsers.shutdownNow();
+    }
+
+    /**
+     * Imports the statement into the account. Without explicit categories,
+     * rows go to the user's "Imported Expenses" / "Imported Income"
+     * categories, created when first needed. dateFormat is a DateTimeFormatter
+     * pattern for CSV dates (ISO yyyy-MM-dd when null). Closes the stream.
+     */
+    public StatementImportResult importStatement(UUID userId, UUID accountId, InputStream statement,
+            StatementParser.Format format, String dateFormat, UUID expenseCategoryId, UUID incomeCategoryId) {
+        DateTimeFormatter dates = dateFormatter(dateFormat);
+        try (InputStream in = statement) {
+            return transactionTemplate.execute(status -> {
+                AccountEntity account = accountRepository.findById(accountId)
+                        .filter(a -> a.getUser().getId().equals(userId))
+                        .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Account not found"));
+                Target target = new Target(userId, accountId,
+                        ownedCategory(userId, expenseCategoryId, "EXPENSE"),
+                        ownedCategory(userId, incomeCategoryId, "INCOME"));
+
+                Totals totals = pipeline(in, format, dates, target);
+
+                // One balance posting for the whole statement
+                postingCoordinator.post(accountId, userId,
+                        account.incomeDelta(totals.incomeTotal).add(account.expenseDelta(totals.expenseTotal)));
+
+                transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.EXPENSE, userId);
+                transactionSearchIndex.invalidate(TransactionSearchIndex.Kind.INCOME, userId);
+
+                long imported = totals.expenses + totals.incomes;
+                return new StatementImportResult(totals.rows, totals.expenses, totals.incomes,
+                        totals.rows - totals.skipped - imported, totals.skipped);
+            });
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read statement");
+        }
+    }
+
+    private Totals pipeline(InputStream in, StatementParser.Format format, DateTimeFormatter dates,
+            Target target) {
+        BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(queuedChunks);
+        Totals totals = new Totals();
+        Future<?> parser;
+        try {
+            parser = parsers.submit(() -> parse(in, format, dates, queue, totals));
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE,
+                    "Too many imports in progress, try again shortly");
+        }
+        try {
+            Chunk chunk;
+            while ((chunk = queue.take()) != END) {
+                Written expenses = write(INSERT_EXPENSES, chunk.expenses, target, "EXPENSE");
+                Written incomes = write(INSERT_INCOMES, chunk.incomes, target, "INCOME");
+                totals.expenses += expenses.count;
+                totals.expenseTotal = totals.expenseTotal.add(expenses.total);
+                totals.incomes += incomes.count;
+                totals.incomeTotal = totals.incomeTotal.add(incomes.total);
+            }
+            // END is queued on failure too; surface the parser's exception, if any
+            parser.get();
+            return totals;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Import interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Could not read statement");
+        } finally {
+            // No-op when parsing finished; stops the parser if writing failed
+            parser.cancel(true);
+        }
+    }
+
+    /**
+     * Parser stage: reads rows, hashes them and hands them over in chunks.
+     * rows and skipped are only written here and read after END is taken.
+     */
+    private Void parse(InputStream in, StatementParser.Format format, DateTimeFormatter dates,
+            BlockingQueue<Chunk> queue, Totals totals) throws Exception {
+        try {
+            Reader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+            RowHasher hasher = new RowHasher();
+            Chunk[] chunk = {new Chunk()};
+            StatementParser.parse(reader, format, dates, row -> {
+                // Also bounds the hasher's occurrence map, which holds one entry per distinct row
+                if (++totals.rows > maxRows) {
+                    throw new ResponseStatusException(HttpStatus.CONTENT_TOO_LARGE,
+                            "Statement has more than " + maxRows + " rows; split it into smaller files");
+                }
+                if (row.amount().signum() == 0) {
+                    totals.skipped++;
+                    return;
+                }
+                String hash = hasher.hash(row);
+                (row.amount().signum() < 0 ? chunk[0].expenses : chunk[0].incomes).add(row, hash);
+                if (chunk[0].size() >= chunkSize) {
+                    put(queue, chunk[0]);
+                    chunk[0] = new Chunk();
+                }
+            });
+            if (chunk[0].size() > 0) {
+                put(queue, chunk[0]);
+            }
+            return null;
+        } finally {
+            try {
+                queue.put(END);
+            } catch (InterruptedException e) {
+                // Cancelled by the writer; nobody is waiting for END
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static void put(BlockingQueue<Chunk> queue, Chunk chunk) {
+        try {
+            queue.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Import cancelled", e);
+        }
+    }
+
+    private Written write(String sql, Columns rows, Target target, String type) {
+        if (rows.size() == 0) {
+            return new Written(0, BigDecimal.ZERO);
+        }
+        UUID categoryId = target.category(type);
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setObject(1, target.userId);
+            ps.setObject(2, target.accountId);
+            ps.setObject(3, categoryId);
+            ps.setObject(4, target.userId);
+            ps.setObject(5, target.userId);
+            ps.setArray(6, con.createArrayOf("text", rows.ids.toArray()));
+            ps.setArray(7, con.createArrayOf("text", rows.names.toArray()));
+            ps.setArray(8, con.createArrayOf("text", rows.descriptions.toArray()));
+            ps.setArray(9, con.createArrayOf("text", rows.amounts.toArray()));
+            ps.setArray(10, con.createArrayOf("text", rows.dates.toArray()));
+            ps.setArray(11, con.createArrayOf("text", rows.hashes.toArray()));
+            return ps;
+        }, rs -> {
+            rs.next();
+            return new Written(rs.getLong("inserted"), rs.getBigDecimal("total"));
+        });
+    }
+
+    private UUID ownedCategory(UUID userId, UUID categoryId, String type) {
+        if (categoryId == null) {
+            return null;
+        }
+        CategoryEntity category = categoryRepository.findByUserIdAndIdIn(userId, List.of(categoryId)).stream()
+                .findFirst()
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.BAD_REQUEST, "Category not found"));
+        if (!type.equals(category.getType())) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Category " + category.getName() + " is not an " + type + " category");
+        }
+        return category.getId();
+    }
+
+    private UUID defaultCategory(UUID userId, String type) {
+        String name = type.equals("EXPENSE") ? EXPENSE_CATEGORY : INCOME_CATEGORY;
+        return categoryRepository.findByUserId(userId).stream()
+                .filter(c -> c.getParent() == null && name.equalsIgnoreCase(c.getName()) && type.equals(c.getType()))
+                .findFirst()
+                .orElseGet(() -> {
+                    CategoryEntity newCat = new CategoryEntity();
+                    newCat.setName(name);
+                    newCat.setType(type);
+                    newCat.setUser(userRepository.getReferenceById(userId));
+                    newCat.setAllowedNestingDepth(0);
+                    CategoryEntity saved = categoryRepository.save(newCat);
+                    // Also flushes the new category, which the JDBC inserts reference
+                    categoryClosureRepository.insertCategory(saved.getId(), null);
+                    return saved;
+                })
+                .getId();
+    }
+
+    private static DateTimeFormatter dateFormatter(String pattern) {
+        if (pattern == null || pattern.isBlank()) {
+            return DateTimeFormatter.ISO_LOCAL_DATE;
+        }
+        try {
+            return DateTimeFormatter.ofPattern(pattern);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Invalid date format pattern");
+        }
+    }
+
+    /** Where rows go; the default categories are only looked up (or created) once rows of that type turn up. */
+    private final class Target {
+        final UUID userId;
+        final UUID accountId;
+        private UUID expenseCategory;
+        private UUID incomeCategory;
+
+        Target(UUID userId, UUID accountId, UUID expenseCategory, UUID incomeCategory) {
+            this.userId = userId;
+            this.accountId = accountId;
+            this.expenseCategory = expenseCategory;
+            this.incomeCategory = incomeCategory;
+        }
+
+        UUID category(String type) {
+            if (type.equals("EXPENSE")) {
+                if (expenseCategory == null) {
+                    expenseCategory = defaultCategory(userId, type);
+                }
+                return expenseCategory;
+            }
+            if (incomeCategory == null) {
+                incomeCategory = defaultCategory(userId, type);
+            }
+            return incomeCategory;
+        }
+    }
+
+    private record Written(long count, BigDecimal total) {
+    }
+
+    private static final class Totals {
+        long rows;
+        long skipped;
+        long expenses;
+        long incomes;
+        BigDecimal expenseTotal = BigDecimal.ZERO;
+        BigDecimal incomeTotal = BigDecimal.ZERO;
+    }
+
+    private static final class Chunk {
+        final Columns expenses = new Columns();
+        final Columns incomes = new Columns();
+
+        int size() {
+            return expenses.size() + incomes.size();
+        }
+    }
+
+    /** One chunk's rows for one table, column by column, ready to bind as arrays. */
+    private static final class Columns {
+        final List<String> ids = new ArrayList<>();
+        final List<String> names = new ArrayList<>();
+        final List<String> descriptions = new ArrayList<>();
+        final List<String> amounts = new ArrayList<>();
+        final List<String> dates = new ArrayList<>();
+        final List<String> hashes = new ArrayList<>();
+
+        void add(StatementParser.Row row, String hash) {
+            ids.add(UUID.randomUUID().toString());
+            names.add(row.name());
+            descriptions.add(row.description());
+            // Stored as positive amounts; the sign only decides expense vs income
+            amounts.add(row.amount().abs().toPlainString());
+            dates.add(row.date().toString());
+            hashes.add(hash);
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+
+    /**
+     * Content hash identifying a statement row across imports. The bank's own
+     * id is used when the format has one. Otherwise the hash covers date,
+     * amount and text plus an occurrence number, so two identical coffees on
+     * the same day stay two rows. Occurrences are counted over the whole
+     * import, so rows need not arrive in date order. The occurrence map keeps
+     * one entry per distinct row without a bank id, so it is bounded by
+     * statement-import.max-rows, which the parser enforces before hashing.
+     */
+    static final class RowHasher {
+        private final MessageDigest digest;
+        private final Map<String, Integer> occurrences = new HashMap<>();
+
+        RowHasher() {
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        String hash(StatementParser.Row row) {
+            String key;
+            if (row.externalId() != null) {
+                key = "id|" + row.externalId();
+            } else {
+                String content = row.date() + "|" + row.amount().stripTrailingZeros().toPlainString() + "|"
+                        + nullToEmpty(row.name()) + "|" + nullToEmpty(row.description());
+                key = content + "|" + occurrences.merge(content, 1, Integer::sum);
+            }
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        }
+
+        private static String nullToEmpty(String value) {
+            return value == null ? "" : value;
+        }
+    }
+}
@@ -0,0 +1,399 @@
+package com.example.financemanager.service;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Reads bank statements one transaction at a time. Both formats are parsed
+ * straight off the Reader with a small fixed buffer, so memory does not grow
+ * with the size of the statement.
+ */
+public final class StatementParser {
+
+    /**
+     * One statement line. Negative amounts are money out (expenses), positive
+     * amounts money in (incomes). externalId is the bank's own transaction id
+     * when the format has one (OFX FITID), otherwise null.
+     */
+    public record Row(long line, LocalDate date, BigDecimal amount, String name, String description,
+            String externalId) {
+    }
+
+    public enum Format {
+        CSV,
+        OFX;
+
+        /** Uses the explicit format when given, otherwise the file extension (.ofx/.qfx, else CSV). */
+        public static Format of(String format, String filename) {
+            if (format != null && !format.isBlank()) {
+                try {
+                    return Format.valueOf(format.trim().toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format must be csv or ofx");
+                }
+            }
+            String name = filename == null ? "" : filename.toLowerCase(Locale.ROOT);
+            return name.endsWith(".ofx") || name.endsWith(".qfx") ? OFX : CSV;
+        }
+    }
+
+    // Header names accepted for each CSV column, compared lower-case
+    private static final List<String> DATE_HEADERS = List.of("date", "transaction date", "posted date",
+            "posting date", "booking date", "value date");
+    private static final List<String> NAME_HEADERS = List.of("name", "payee", "merchant", "description",
+            "details", "narration", "particulars");
+    private static final List<String> MEMO_HEADERS = List.of("memo", "notes", "note", "reference",
+            "description", "details");
+    private static final List<String> AMOUNT_HEADERS = List.of("amount", "transaction amount", "value");
+    private static final List<String> DEBIT_HEADERS = List.of("debit", "withdrawal", "withdrawals", "money out",
+            "paid out");
+    private static final List<String> CREDIT_HEADERS = List.of("credit", "deposit", "deposits", "money in",
+            "paid in");
+
+    private StatementParser() {
+    }
+
+    /** reader must support mark/reset (e.g. a BufferedReader) so a leading byte order mark can be skipped. */
+    public static void parse(Reader reader, Format format, DateTimeFormatter dateFormat, Consumer<Row> sink)
+            throws IOException {
+        reader.mark(1);
+        if (reader.read() != '\uFEFF') {
+            reader.reset();
+        }
+        if (format == Format.OFX) {
+            parseOfx(reader, sink);
+        } else {
+            parseCsv(reader, dateFormat, sink);
+        }
+    }
+
+    // ---- CSV ----
+
+    /**
+     * CSV with a header row. The date, amount (signed, or separate debit and
+     * credit columns) and name columns are found by header name; the
+     * delimiter (comma, semicolon or tab) is taken from the header line.
+     */
+    private static void parseCsv(Reader reader, DateTimeFormatter dateFormat, Consumer<Row> sink)
+            throws IOException {
+        CsvReader csv = new CsvReader(reader);
+        List<String> header = csv.readHeader();
+        if (header == null) {
+            return;
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.putIfAbsent(header.get(i).replace("\"", "").trim().toLowerCase(Locale.ROOT), i);
+        }
+        int date = column(columns, DATE_HEADERS, -1);
+        int name = column(columns, NAME_HEADERS, -1);
+        int memo = column(columns, MEMO_HEADERS, name);
+        int amount = column(columns, AMOUNT_HEADERS, -1);
+        int debit = column(columns, DEBIT_HEADERS, -1);
+        int credit = column(columns, CREDIT_HEADERS, -1);
+        if (date < 0 || name < 0 || (amount < 0 && debit < 0 && credit < 0)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "CSV header must have date, name/description and amount (or debit/credit) columns");
+        }
+
+        List<String> fields;
+        while ((fields = csv.readRecord()) != null) {
+            long line = csv.recordLine();
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            BigDecimal value;
+            if (amount >= 0) {
+                value = parseAmount(field(fields, amount), line);
+            } else {
+                BigDecimal out = parseAmount(field(fields, debit), line);
+                BigDecimal in = parseAmount(field(fields, credit), line);
+                value = (in != null ? in : BigDecimal.ZERO).subtract(out != null ? out.abs() : BigDecimal.ZERO);
+            }
+            if (value == null) {
+                throw invalid(line, "missing amount");
+            }
+            sink.accept(new Row(line, parseDate(field(fields, date), dateFormat, line), value,
+                    field(fields, name), memo >= 0 ? field(fields, memo) : null, null));
+        }
+    }
+
+    private static int column(Map<String, Integer> columns, List<String> names, int exclude) {
+        for (String name : names) {
+            Integer index = columns.get(name);
+            if (index != null && index != exclude) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> fields, int index) {
+        if (index < 0 || index >= fields.size()) {
+            return null;
+        }
+        String value = fields.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    /** RFC 4180 reader: quoted fields may contain delimiters, doubled quotes and line breaks. */
+    private static final class CsvReader {
+        private final Reader in;
+        private char delimiter = ',';
+        private int pushedBack = -2;
+        private long line = 1;
+        private long recordLine;
+
+        CsvReader(Reader in) {
+            this.in = in;
+        }
+
+        List<String> readHeader() throws IOException {
+            List<String> header = readRecord();
+            if (header == null) {
+                return null;
+            }
+            if (header.size() == 1) {
+                // Not comma-separated; split the header again on the first other delimiter it contains
+                String raw = header.get(0);
+                for (char candidate : new char[] {';', '\t'}) {
+                    if (raw.indexOf(candidate) >= 0) {
+                        delimiter = candidate;
+                        return List.of(raw.split(candidate == '\t' ? "\t" : ";", -1));
+                    }
+                }
+            }
+            return header;
+        }
+
+        long recordLine() {
+            return recordLine;
+        }
+
+        List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) {
+                return null;
+            }
+            recordLine = line;
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) {
+                        throw invalid(recordLine, "unterminated quoted field");
+                    }
+                    if (c == '"') {
+                        int next = read();
+                        if (next == '"') {
+                            field.append('"');
+                        } else {
+                            quoted = false;
+                            c = next;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == delimiter) {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\r' || c == '\n' || c == -1) {
+                    if (c == '\r') {
+                        int next = read();
+                        if (next != '\n') {
+                            pushedBack = next;
+                        }
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+
+        private int read() throws IOException {
+            int c;
+            if (pushedBack != -2) {
+                c = pushedBack;
+                pushedBack = -2;
+            } else {
+                c = in.read();
+            }
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+    }
+
+    // ---- OFX ----
+
+    /**
+     * OFX 1.x (SGML, closing tags optional) and 2.x (XML). Only the
+     * STMTTRN blocks are read; everything else, including the header, is
+     * skipped.
+     */
+    private static void parseOfx(Reader reader, Consumer<Row> sink) throws IOException {
+        OfxScanner scanner = new OfxScanner(reader);
+        Map<String, String> transaction = null;
+        String tag;
+        while ((tag = scanner.nextTag()) != null) {
+            if (tag.equals("STMTTRN")) {
+                transaction = new HashMap<>();
+            } else if (tag.equals("/STMTTRN")) {
+                if (transaction != null) {
+                    sink.accept(toRow(transaction, scanner.line()));
+                }
+                transaction = null;
+            } else if (transaction != null && !tag.startsWith("/")) {
+                String value = scanner.text();
+                if (!value.isEmpty()) {
+                    transaction.put(tag, value);
+                }
+            }
+        }
+    }
+
+    private static Row toRow(Map<String, String> transaction, long line) {
+        String posted = transaction.get("DTPOSTED");
+        if (posted == null || posted.length() < 8) {
+            throw invalid(line, "missing DTPOSTED");
+        }
+        LocalDate date = parseDate(posted.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE, line);
+        BigDecimal amount = parseAmount(transaction.get("TRNAMT"), line);
+        if (amount == null) {
+            throw invalid(line, "missing TRNAMT");
+        }
+        String name = transaction.get("NAME");
+        if (name == null) {
+            name = transaction.get("PAYEE");
+        }
+        String memo = transaction.get("MEMO");
+        return new Row(line, date, amount, name != null ? name : memo, name != null ? memo : null,
+                transaction.get("FITID"));
+    }
+
+    private static final class OfxScanner {
+        private final Reader in;
+        private final StringBuilder buffer = new StringBuilder();
+        private int pending = -2;
+        private long line = 1;
+
+        OfxScanner(Reader in) {
+            this.in = in;
+        }
+
+        long line() {
+            return line;
+        }
+
+        /** Upper-case name of the next tag ("/NAME" for closing tags), or null at the end. */
+        String nextTag() throws IOException {
+            int c;
+            do {
+                c = read();
+                if (c == -1) {
+                    return null;
+                }
+            } while (c != '<');
+            buffer.setLength(0);
+            while ((c = read()) != -1 && c != '>') {
+                buffer.append((char) c);
+            }
+            return buffer.toString().trim().toUpperCase(Locale.ROOT);
+        }
+
+        /** Text up to the next tag, trimmed and with XML entities decoded. */
+        String text() throws IOException {
+            buffer.setLength(0);
+            int c;
+            while ((c = read()) != -1 && c != '<') {
+                buffer.append((char) c);
+            }
+            if (c == '<') {
+                pending = c;
+            }
+            return buffer.toString().trim()
+                    .replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                    .replace("&apos;", "'").replace("&amp;", "&");
+        }
+
+        private int read() throws IOException {
+            if (pending != -2) {
+                int c = pending;
+                pending = -2;
+                return c;
+            }
+            int c = in.read();
+            if (c == '\n') {
+                line++;
+            }
+            return c;
+        }
+    }
+
+    // ---- values ----
+
+    private static LocalDate parseDate(String value, DateTimeFormatter format, long line) {
+        if (value == null) {
+            throw invalid(line, "missing date");
+        }
+        try {
+            return LocalDate.parse(value, format);
+        } catch (DateTimeParseException e) {
+            throw invalid(line, "unreadable date '" + value + "'");
+        }
+    }
+
+    /**
+     * Accepts "1,234.50", "-12.00", "(12.00)", a decimal comma ("12,50") and a
+     * leading or trailing currency symbol.
+     */
+    private static BigDecimal parseAmount(String value, long line) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String s = value.trim();
+        int comma = s.lastIndexOf(',');
+        if (comma >= 0 && s.indexOf('.') < 0 && s.length() - comma - 1 == 2) {
+            s = s.substring(0, comma) + '.' + s.substring(comma + 1);
+        }
+        boolean negative = s.startsWith("(") && s.endsWith(")");
+        StringBuilder digits = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (Character.isDigit(c) || c == '.' || c == '-' || c == '+') {
+                digits.append(c);
+            }
+        }
+        try {
+            BigDecimal amount = new BigDecimal(digits.toString());
+            return negative ? amount.negate() : amount;
+        } catch (NumberFormatException e) {
+            throw invalid(line, "unreadable amount '" + value + "'");
+        }
+    }
+
+    private static ResponseStatusException invalid(long line, String problem) {
+        return new ResponseStatusException(HttpStatus.BAD_REQUEST, "Line " + line + ": " + problem);
+    }
+}
@@ -0,0 +1,189 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.TransactionView;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+
+/**
+ * Streams a user's expenses or incomes straight from a forward-only JDBC
+ * cursor to the response, one row at a time. Nothing is collected into a
+ * List, so memory stays flat regardless of how many rows are exported.
+ */
+@Service
+public class TransactionExportService {
+
+    // Rows pulled from Postgres per round trip while the cursor is open
+    private static final int FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final ObjectMapper objectMapper;
+
+    public TransactionExportService(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        // The Postgres driver only uses a server-side cursor when autocommit is off
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.objectMapper = objectMapper;
+    }
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public MediaType mediaType() {
+            return MediaType.parseMediaType(contentType);
+        }
+
+        public String extension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Format must be csv or ndjson");
+            }
+        }
+    }
+
+    public void exportExpenses(UUID userId, LocalDate fromDate, LocalDate toDate, Format format, OutputStream out) {
+        export("expenses", "expense_date", userId, fromDate, toDate, format, out);
+    }
+
+    public void exportIncomes(UUID userId, LocalDate fromDate, LocalDate toDate, Format format, OutputStream out) {
+        export("incomes", "income_date", userId, fromDate, toDate, format, out);
+    }
+
+    private void export(String table, String dateColumn, UUID userId, LocalDate fromDate, LocalDate toDate,
+            Format format, OutputStream out) {
+        StringBuilder sql = new StringBuilder()
+                .append("SELECT t.id, t.").append(dateColumn).append(" AS txn_date, t.name, t.description, ")
+                .append("t.amount, t.category_id, c.name AS category_name, t.account_id ")
+                .append("FROM ").append(table).append(" t ")
+                .append("LEFT JOIN categories c ON c.id = t.category_id ")
+                .append("WHERE t.user_id = ?");
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        if (fromDate != null) {
+            sql.append(" AND t.").append(dateColumn).append(" >= ?");
+            args.add(fromDate);
+        }
+        if (toDate != null) {
+            sql.append(" AND t.").append(dateColumn).append(" <= ?");
+            args.add(toDate);
+        }
+        sql.append(" ORDER BY t.").append(dateColumn).append(" DESC, t.id DESC");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        try {
+            if (format == Format.CSV) {
+                writer.write("id,date,name,description,amount,categoryId,categoryName,accountId\n");
+                // Push the header out right away so the client sees the first byte before the query finishes
+                writer.flush();
+            }
+
+            // Fetch size is set on this statement only, leaving the shared JdbcTemplate's defaults alone
+            readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(con -> {
+                PreparedStatement statement = con.prepareStatement(sql.toString());
+                statement.setFetchSize(FETCH_SIZE);
+                new ArgumentPreparedStatementSetter(args.toArray()).setValues(statement);
+                return statement;
+            }, rs -> {
+                TransactionView row = toView(rs);
+                try {
+                    if (format == Format.CSV) {
+                        writeCsv(writer, row);
+                    } else {
+                        writer.write(objectMapper.writeValueAsString(row));
+                        writer.write('\n');
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeCsv(Writer writer, TransactionView row) throws IOException {
+        writer.write(row.id().toString());
+        writer.write(',');
+        writer.write(row.date() != null ? row.date().toString() : "");
+        writer.write(',');
+        writer.write(csv(row.name()));
+        writer.write(',');
+        writer.write(csv(row.description()));
+        writer.write(',');
+        writer.write(row.amount() != null ? row.amount().toPlainString() : "");
+        writer.write(',');
+        writer.write(row.categoryId() != null ? row.categoryId().toString() : "");
+        writer.write(',');
+        writer.write(csv(row.categoryName()));
+        writer.write(',');
+        writer.write(row.accountId() != null ? row.accountId().toString() : "");
+        writer.write('\n');
+    }
+
+    // RFC 4180 quoting; also neutralises leading =,+,-,@ so spreadsheets don't evaluate cells
+    private static String csv(String value) {
+        if (value == null || value.isEmpty()) {
+            return "";
+        }
+        String safe = "=+-@".indexOf(value.charAt(0)) >= 0 ? "'" + value : value;
+        if (safe.indexOf(',') < 0 && safe.indexOf('"') < 0 && safe.indexOf('\n') < 0 && safe.indexOf('\r') < 0) {
+            return safe;
+        }
+        return '"' + safe.replace("\"", "\"\"") + '"';
+    }
+
+    private static TransactionView toView(ResultSet rs) throws SQLException {
+        Date date = rs.getDate("txn_date");
+        return new TransactionView(
+                rs.getObject("id", UUID.class),
+                rs.getString("name"),
+                rs.getString("description"),
+                rs.getBigDecimal("amount"),
+                date != null ? date.toLocalDate() : null,
+                rs.getObject("category_id", UUID.class),
+                rs.getString("category_name"),
+                rs.getObject("account_id", UUID.class));
+    }
+}
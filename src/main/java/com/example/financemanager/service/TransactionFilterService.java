@@ -0,0 +1,212 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.ExpenseFilterDTO;
+import com.example.financemanager.dto.TransactionCursor;
+import com.example.financemanager.dto.TransactionView;
+import com.example.financemanager.entities.CategoryClosureEntity;
+import com.example.financemanager.entities.CategoryEntity;
+import com.example.financemanager.entities.ExpenseEntity;
+import com.example.financemanager.entities.IncomeEntity;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.ParameterExpression;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.SessionFactory;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Expense and income listing queries built with the Criteria API. Only the
+ * filters actually given become predicates, so each combination of date
+ * range, account, category, search and cursor produces its own SQL text and
+ * Postgres plans it against the indexes that shape can use (instead of one
+ * catch-all "(:x IS NULL OR col = :x)" statement planned for every case).
+ * Values are always bound as parameters, so the SQL per shape is stable:
+ * Hibernate caches its plan and the driver reuses the server-side prepared
+ * statement.
+ */
+@Service
+public class TransactionFilterService {
+
+    private static final char LIKE_ESCAPE = '\\';
+
+    private final EntityManager entityManager;
+    private final HibernateCriteriaBuilder cb;
+
+    public TransactionFilterService(EntityManager entityManager) {
+        this.entityManager = entityManager;
+        this.cb = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getCriteriaBuilder();
+    }
+
+    /**
+     * Listing criteria; every field is optional. The search matches a
+     * substring of the name or description, case-insensitively.
+     */
+    public record Filter(LocalDate fromDate, LocalDate toDate, UUID categoryId, UUID accountId, String search) {
+
+        /**
+         * Criteria from request parameters: without explicit dates, a month
+         * and year select that calendar month.
+         */
+        public static Filter of(Integer month, Integer year, LocalDate fromDate, LocalDate toDate,
+                UUID categoryId, UUID accountId, String search) {
+            LocalDate start = fromDate;
+            LocalDate end = toDate;
+            if (start == null && end == null && month != null && year != null) {
+                YearMonth yearMonth = YearMonth.of(year, month);
+                start = yearMonth.atDay(1);
+                end = yearMonth.atEndOfMonth();
+            }
+            return new Filter(start, end, categoryId, accountId, search);
+        }
+
+        public static Filter of(ExpenseFilterDTO dto) {
+            return of(dto.getMonth(), dto.getYear(), dto.getFromDate(), dto.getToDate(),
+                    dto.getCategoryId(), dto.getAccountId(), dto.getSearch());
+        }
+    }
+
+    /**
+     * Adds the selection, grouping and ordering of an aggregate query over the
+     * matching transactions; t is the expense or income root and date its date.
+     */
+    @FunctionalInterface
+    public interface Aggregate<R> {
+        void shape(CriteriaQuery<R> query, Root<?> t, Path<LocalDate> date, HibernateCriteriaBuilder cb);
+    }
+
+    /**
+     * Matching expenses, newest first. With a limit, returns at most that many
+     * rows strictly after the cursor (which may be null for the first page).
+     */
+    public List<TransactionView> findExpenses(UUID userId, Filter filter, TransactionCursor after, Integer limit) {
+        return find(ExpenseEntity.class, "expenseDate", userId, filter, after, limit);
+    }
+
+    public List<TransactionView> findIncomes(UUID userId, Filter filter, TransactionCursor after, Integer limit) {
+        return find(IncomeEntity.class, "incomeDate", userId, filter, after, limit);
+    }
+
+    /**
+     * Runs an aggregate over the expenses matching the filter, with exactly the
+     * predicates the listing would use.
+     */
+    public <R> List<R> aggregateExpenses(UUID userId, Filter filter, Class<R> resultType, Aggregate<R> aggregate) {
+        return aggregate(ExpenseEntity.class, "expenseDate", userId, filter, resultType, aggregate);
+    }
+
+    public <R> List<R> aggregateIncomes(UUID userId, Filter filter, Class<R> resultType, Aggregate<R> aggregate) {
+        return aggregate(IncomeEntity.class, "incomeDate", userId, filter, resultType, aggregate);
+    }
+
+    private <T> List<TransactionView> find(Class<T> type, String dateAttribute, UUID userId, Filter filter,
+            TransactionCursor after, Integer limit) {
+        CriteriaQuery<TransactionView> query = cb.createQuery(TransactionView.class);
+        Root<T> t = query.from(type);
+        Join<T, CategoryEntity> category = t.join("category", JoinType.LEFT);
+        Path<LocalDate> date = t.get(dateAttribute);
+        Path<UUID> id = t.get("id");
+
+        query.select(cb.construct(TransactionView.class,
+                id, t.get("name"), t.get("description"), t.get("amount"), date,
+                category.get("id"), category.get("name"), t.get("account").get("id")));
+
+        Map<ParameterExpression<?>, Object> values = new HashMap<>();
+        List<Predicate> where = where(query, t, date, userId, filter, values);
+        if (after != null) {
+            // (date, id) < (cursor date, cursor id); the redundant date bound keeps it a single index range
+            ParameterExpression<LocalDate> cursorDate = bind(values, LocalDate.class, after.date());
+            where.add(cb.lessThanOrEqualTo(date, cursorDate));
+            where.add(cb.or(
+                    cb.lessThan(date, cursorDate),
+                    cb.lessThan(id, bind(values, UUID.class, after.id()))));
+        }
+
+        query.where(where.toArray(new Predicate[0]));
+        query.orderBy(cb.desc(date), cb.desc(id));
+
+        TypedQuery<TransactionView> typed = entityManager.createQuery(query);
+        values.forEach((parameter, value) -> setParameter(typed, parameter, value));
+        if (limit != null) {
+            typed.setMaxResults(limit);
+        }
+        return typed.getResultList();
+    }
+
+    private <T, R> List<R> aggregate(Class<T> type, String dateAttribute, UUID userId, Filter filter,
+            Class<R> resultType, Aggregate<R> aggregate) {
+        CriteriaQuery<R> query = cb.createQuery(resultType);
+        Root<T> t = query.from(type);
+        Path<LocalDate> date = t.get(dateAttribute);
+
+        Map<ParameterExpression<?>, Object> values = new HashMap<>();
+        query.where(where(query, t, date, userId, filter, values).toArray(new Predicate[0]));
+        aggregate.shape(query, t, date, cb);
+
+        TypedQuery<R> typed = entityManager.createQuery(query);
+        values.forEach((parameter, value) -> setParameter(typed, parameter, value));
+        return typed.getResultList();
+    }
+
+    // The user's own transactions plus one predicate per filter actually given
+    private <T> List<Predicate> where(CriteriaQuery<?> query, Root<T> t, Path<LocalDate> date, UUID userId,
+            Filter filter, Map<ParameterExpression<?>, Object> values) {
+        List<Predicate> where = new ArrayList<>();
+        where.add(cb.equal(t.get("user").get("id"), bind(values, UUID.class, userId)));
+        if (filter.fromDate() != null) {
+            where.add(cb.greaterThanOrEqualTo(date, bind(values, LocalDate.class, filter.fromDate())));
+        }
+        if (filter.toDate() != null) {
+            where.add(cb.lessThanOrEqualTo(date, bind(values, LocalDate.class, filter.toDate())));
+        }
+        if (filter.accountId() != null) {
+            where.add(cb.equal(t.get("account").get("id"), bind(values, UUID.class, filter.accountId())));
+        }
+        if (filter.categoryId() != null) {
+            // The category and all of its sub-categories, via the closure table
+            Subquery<UUID> subtree = query.subquery(UUID.class);
+            Root<CategoryClosureEntity> closure = subtree.from(CategoryClosureEntity.class);
+            subtree.select(closure.get("descendantId"))
+                    .where(cb.equal(closure.get("ancestorId"), bind(values, UUID.class, filter.categoryId())));
+            where.add(t.get("category").get("id").in(subtree));
+        }
+        if (filter.search() != null && !filter.search().isBlank()) {
+            // Plain ILIKE on the bare columns so the pg_trgm indexes can serve it
+            ParameterExpression<String> pattern = bind(values, String.class,
+                    "%" + escapeLike(filter.search()) + "%");
+            where.add(cb.or(
+                    cb.ilike(t.get("name"), pattern, LIKE_ESCAPE),
+                    cb.ilike(t.get("description"), pattern, LIKE_ESCAPE)));
+        }
+        return where;
+    }
+
+    private <V> ParameterExpression<V> bind(Map<ParameterExpression<?>, Object> values, Class<V> type, V value) {
+        ParameterExpression<V> parameter = cb.parameter(type);
+        values.put(parameter, value);
+        return parameter;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> void setParameter(TypedQuery<?> query, ParameterExpression<V> parameter, Object value) {
+        query.setParameter(parameter, (V) value);
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+}
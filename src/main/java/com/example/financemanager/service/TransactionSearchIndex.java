@@ -0,0 +1,536 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.TransactionView;
+import com.example.financemanager.entities.ExpenseEntity;
+import com.example.financemanager.entities.IncomeEntity;
+import com.example.financemanager.repositories.ExpenseRepository;
+import com.example.financemanager.repositories.IncomeRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Optional in-memory inverted index over the words of each active user's
+ * expense and income names and descriptions, for search-as-you-type. A
+ * user's index is built in the background on the first search that misses
+ * (that search is answered by SQL), kept current by the controllers on
+ * create/update/delete once their transaction commits, and evicted
+ * least-recently-used once the estimated heap footprint of all indexes
+ * exceeds the configured budget. Entries also expire after a TTL, which
+ * bounds staleness from writes that only invalidate (debt payments, saving
+ * contributions, recurring runs). Results follow the tiers of the SQL
+ * fallback's ts_rank: transactions whose name matches every word (weight A)
+ * before those matched through the description (weight B), then newest
+ * first. Unlike ts_rank the index does not count repeated words.
+ */
+@Service
+public class TransactionSearchIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TransactionSearchIndex.class);
+
+    public enum Kind {
+        EXPENSE, INCOME
+    }
+
+    private record Key(UUID userId, Kind kind) {
+    }
+
+    private final ExpenseRepository expenseRepository;
+    private final IncomeRepository incomeRepository;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${search.index.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.index.max-bytes:268435456}")
+    private long maxBytes;
+
+    @Value("${search.index.max-documents-per-user:50000}")
+    private int maxDocumentsPerUser;
+
+    @Value("${search.index.ttl-ms:600000}")
+    private long ttlMs;
+
+    // Access-ordered, so iteration starts at the least recently used index; guarded by itself. The lock
+    // covers only lookups and the byte budget, never a query or an update of one user's index
+    private final LinkedHashMap<Key, UserIndex> indexes = new LinkedHashMap<>(16, 0.75f, true);
+    private long indexedBytes;
+
+    // Builds in flight; a write for the key marks the build stale so its result is dropped
+    private final Map<Key, AtomicBoolean> building = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor builder;
+    private Counter hits;
+    private Counter misses;
+
+    public TransactionSearchIndex(ExpenseRepository expenseRepository, IncomeRepository incomeRepository,
+            MeterRegistry meterRegistry) {
+        this.expenseRepository = expenseRepository;
+        this.incomeRepository = incomeRepository;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        builder = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(64),
+                r -> {
+                    Thread t = new Thread(r, "search-index-builder");
+                    t.setDaemon(true);
+                    return t;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        hits = Counter.builder("search.index.lookups").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("search.index.lookups").tag("result", "miss").register(meterRegistry);
+        Gauge.builder("search.index.bytes", this, TransactionSearchIndex::estimatedBytes)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        builder.shutdownNow();
+    }
+
+    /**
+     * Answers a prefix search from memory: every word of the query must be a
+     * prefix of some word in the name or description. Matches on the name
+     * come first, then newest first, the tiers searchRanked's ts_rank gives. Returns null when the user's index is
+     * not loaded (or indexing is disabled); the caller then queries SQL.
+     */
+    public List<TransactionView> search(Kind kind, UUID userId, String query, int limit) {
+        if (!enabled) {
+            return null;
+        }
+        Key key = new Key(userId, kind);
+        UserIndex index;
+        synchronized (indexes) {
+            index = indexes.get(key);
+            if (index != null && index.expiresAtMillis <= System.currentTimeMillis()) {
+                remove(key);
+                index = null;
+            }
+        }
+        if (index == null) {
+            misses.increment();
+            scheduleBuild(key);
+            return null;
+        }
+        hits.increment();
+        // Runs on the index's own read lock, so other users' lookups never wait for it
+        return index.oversized ? null : index.search(SearchTokenizer.tokenize(query), limit);
+    }
+
+    public void onSaved(ExpenseEntity expense) {
+        onSaved(Kind.EXPENSE, expense.getUser().getId(), TransactionView.of(expense));
+    }
+
+    public void onSaved(IncomeEntity income) {
+        onSaved(Kind.INCOME, income.getUser().getId(), TransactionView.of(income));
+    }
+
+    public void onDeleted(Kind kind, UUID userId, UUID transactionId) {
+        if (!enabled) {
+            return;
+        }
+        Key key = new Key(userId, kind);
+        afterCommit(key, () -> update(key, index -> index.remove(transactionId)));
+    }
+
+    /**
+     * Drops a user's index of the given kind; the next search rebuilds it.
+     * For writes made outside ExpenseController and IncomeController.
+     */
+    public void invalidate(Kind kind, UUID userId) {
+        if (!enabled) {
+            return;
+        }
+        Key key = new Key(userId, kind);
+        drop(key);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // A rebuild may run before the caller's transaction commits; drop that one too
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    drop(key);
+                }
+            });
+        }
+    }
+
+    private void drop(Key key) {
+        markStale(key);
+        synchronized (indexes) {
+            remove(key);
+        }
+    }
+
+    private void onSaved(Kind kind, UUID userId, TransactionView view) {
+        if (!enabled) {
+            return;
+        }
+        Key key = new Key(userId, kind);
+        afterCommit(key, () -> update(key, index -> index.put(view)));
+    }
+
+    /**
+     * Changes a loaded index under its write lock, then settles its new size
+     * against the byte budget. The shared lock is taken only for the lookup
+     * and the settling, never while the index itself is being changed.
+     */
+    private void update(Key key, Consumer<UserIndex> change) {
+        UserIndex index;
+        synchronized (indexes) {
+            index = indexes.get(key);
+        }
+        if (index == null || index.oversized) {
+            return;
+        }
+        index.lock.writeLock().lock();
+        try {
+            change.accept(index);
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+        synchronized (indexes) {
+            // Dropped or replaced meanwhile: its bytes already left the budget with it
+            if (indexes.get(key) != index) {
+                return;
+            }
+            // Always settles the latest size, so concurrent updates cannot leave a stale figure behind
+            long bytes = index.bytes();
+            indexedBytes += bytes - index.accountedBytes;
+            index.accountedBytes = bytes;
+            if (index.size() > maxDocumentsPerUser) {
+                remove(key);
+            }
+            evictOverBudget();
+        }
+    }
+
+    /**
+     * Applies a write to the index once the caller's transaction commits, so
+     * a rolled-back write never shows up in search. Builds already in flight
+     * are marked stale both now and at commit, since either may have read
+     * the rows before the write became visible.
+     */
+    private void afterCommit(Key key, Runnable apply) {
+        markStale(key);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                markStale(key);
+                apply.run();
+            }
+        });
+    }
+
+    private void markStale(Key key) {
+        AtomicBoolean stale = building.get(key);
+        if (stale != null) {
+            stale.set(true);
+        }
+    }
+
+    private void scheduleBuild(Key key) {
+        AtomicBoolean stale = new AtomicBoolean();
+        if (building.putIfAbsent(key, stale) != null) {
+            return;
+        }
+        try {
+            builder.execute(() -> build(key, stale));
+        } catch (RejectedExecutionException e) {
+            // Builder is saturated; this user keeps being served by SQL until a later miss gets through
+            building.remove(key, stale);
+        }
+    }
+
+    private void build(Key key, AtomicBoolean stale) {
+        try {
+            List<TransactionView> views = key.kind() == Kind.EXPENSE
+                    ? expenseRepository.findViewsByUserId(key.userId())
+                    : incomeRepository.findViewsByUserId(key.userId());
+
+            UserIndex index;
+            if (views.size() > maxDocumentsPerUser) {
+                // Remembered as oversized so every keystroke does not trigger another full load
+                index = UserIndex.oversized(System.currentTimeMillis() + ttlMs);
+            } else {
+                index = new UserIndex(System.currentTimeMillis() + ttlMs);
+                for (TransactionView view : views) {
+                    index.put(view);
+                }
+            }
+
+            synchronized (indexes) {
+                if (stale.get()) {
+                    return;
+                }
+                remove(key);
+                indexes.put(key, index);
+                index.accountedBytes = index.bytes();
+                indexedBytes += index.accountedBytes;
+                evictOverBudget();
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to build search index for user {}", key.userId(), e);
+        } finally {
+            building.remove(key, stale);
+        }
+    }
+
+    // Callers hold the indexes lock
+    private void remove(Key key) {
+        UserIndex removed = indexes.remove(key);
+        if (removed != null) {
+            indexedBytes -= removed.accountedBytes;
+        }
+    }
+
+    // Callers hold the indexes lock
+    private void evictOverBudget() {
+        Iterator<UserIndex> it = indexes.values().iterator();
+        while (indexedBytes > maxBytes && it.hasNext()) {
+            indexedBytes -= it.next().accountedBytes;
+            it.remove();
+        }
+    }
+
+    private long estimatedBytes() {
+        synchronized (indexes) {
+            return indexedBytes;
+        }
+    }
+
+    /**
+     * One user's transactions of one kind. Words map to the ids of the
+     * transactions containing them in a sorted map, so a prefix is a range.
+     * Searches run under the read lock and changes under the write lock, so
+     * one user's queries only ever wait for that user's own updates.
+     */
+    private static final class UserIndex {
+
+        // Rough heap cost of a word's TreeMap entry plus its empty HashSet, and of one id in that set
+        private static final long POSTING_BYTES = 120;
+        private static final long POSTING_ENTRY_BYTES = 48;
+
+        // Postgres compares uuids as unsigned bytes; UUID.compareTo is signed and would break ties differently
+        private static final Comparator<UUID> UUID_ORDER = Comparator
+                .comparing(UUID::getMostSignificantBits, Long::compareUnsigned)
+                .thenComparing(UUID::getLeastSignificantBits, Long::compareUnsigned);
+
+        private static final Comparator<Document> NEWEST_FIRST = Comparator
+                .comparing((Document d) -> d.view.date(), Comparator.nullsLast(Comparator.reverseOrder()))
+                .thenComparing(d -> d.view.id(), UUID_ORDER.reversed());
+
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<UUID, Document> documents = new HashMap<>();
+        private final TreeMap<String, Set<UUID>> postings = new TreeMap<>();
+        // Written under the write lock, read when settling the byte budget
+        private volatile long bytes;
+        private volatile int size;
+        // The share of indexedBytes this index accounts for; guarded by the indexes lock
+        long accountedBytes;
+        private final long expiresAtMillis;
+        private final boolean oversized;
+
+        UserIndex(long expiresAtMillis) {
+            this(expiresAtMillis, false);
+        }
+
+        private UserIndex(long expiresAtMillis, boolean oversized) {
+            this.expiresAtMillis = expiresAtMillis;
+            this.oversized = oversized;
+        }
+
+        static UserIndex oversized(long expiresAtMillis) {
+            return new UserIndex(expiresAtMillis, true);
+        }
+
+        int size() {
+            return size;
+        }
+
+        long bytes() {
+            return bytes;
+        }
+
+        void put(TransactionView view) {
+            remove(view.id());
+            Document document = new Document(view);
+            documents.put(view.id(), document);
+            size = documents.size();
+            bytes += document.bytes;
+            for (String word : document.words) {
+                Set<UUID> ids = postings.get(word);
+                if (ids == null) {
+                    ids = new HashSet<>();
+                    postings.put(word, ids);
+                    bytes += Document.stringBytes(word) + POSTING_BYTES;
+                }
+                ids.add(view.id());
+                bytes += POSTING_ENTRY_BYTES;
+            }
+        }
+
+        boolean remove(UUID id) {
+            Document document = documents.remove(id);
+            if (document == null) {
+                return false;
+            }
+            size = documents.size();
+            bytes -= document.bytes;
+            for (String word : document.words) {
+                Set<UUID> ids = postings.get(word);
+                if (ids != null && ids.remove(id)) {
+                    bytes -= POSTING_ENTRY_BYTES;
+                    if (ids.isEmpty()) {
+                        postings.remove(word);
+                        bytes -= Document.stringBytes(word) + POSTING_BYTES;
+                    }
+                }
+            }
+            return true;
+        }
+
+        List<TransactionView> search(List<String> terms, int limit) {
+            if (terms.isEmpty()) {
+                return List.of();
+            }
+            lock.readLock().lock();
+            try {
+                return matching(terms, limit);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private List<TransactionView> matching(List<String> terms, int limit) {
+            Set<UUID> matches = null;
+            for (String term : terms) {
+                Set<UUID> termMatches = new HashSet<>();
+                for (Set<UUID> ids : withPrefix(term).values()) {
+                    termMatches.addAll(ids);
+                }
+                if (matches == null) {
+                    matches = termMatches;
+                } else {
+                    matches.retainAll(termMatches);
+                }
+                if (matches.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Document> nameMatches = new ArrayList<>();
+            List<Document> otherMatches = new ArrayList<>();
+            for (UUID id : matches) {
+                Document document = documents.get(id);
+                (document.nameMatchesAll(terms) ? nameMatches : otherMatches).add(document);
+            }
+            nameMatches.sort(NEWEST_FIRST);
+            otherMatches.sort(NEWEST_FIRST);
+
+            List<TransactionView> result = new ArrayList<>(Math.min(limit, matches.size()));
+            for (List<Document> group : List.of(nameMatches, otherMatches)) {
+                for (Document document : group) {
+                    if (result.size() == limit) {
+                        return result;
+                    }
+                    result.add(document.view);
+                }
+            }
+            return result;
+        }
+
+        private NavigableMap<String, Set<UUID>> withPrefix(String prefix) {
+            return postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false);
+        }
+    }
+
+    private static final class Document {
+
+        // Rough heap cost of the document, its view, map entry and word collections, excluding strings
+        private static final long FIXED_BYTES = 400;
+        private static final long WORD_REF_BYTES = 40;
+
+        final TransactionView view;
+        final Set<String> words;
+        final List<String> nameWords;
+        final long bytes;
+
+        Document(TransactionView view) {
+            this.view = view;
+            this.nameWords = SearchTokenizer.tokenize(view.name());
+            Set<String> all = new HashSet<>(nameWords);
+            all.addAll(SearchTokenizer.tokenize(view.description()));
+            this.words = all;
+
+            long size = FIXED_BYTES + stringBytes(view.name()) + stringBytes(view.description())
+                    + stringBytes(view.categoryName());
+            for (String word : nameWords) {
+                size += WORD_REF_BYTES + stringBytes(word);
+            }
+            for (String word : words) {
+                size += WORD_REF_BYTES + stringBytes(word);
+            }
+            this.bytes = size;
+        }
+
+        // Header plus backing array, assuming the worst case of two bytes per char
+        static long stringBytes(String value) {
+            return value == null ? 0 : 40 + 2L * value.length();
+        }
+
+        boolean nameMatchesAll(Collection<String> terms) {
+            for (String term : terms) {
+                boolean found = false;
+                for (String word : nameWords) {
+                    if (word.startsWith(term)) {
+                        found = true;
+                        break;
+                    }
+                }
+                if (!found) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.ExpenseFilterDTO;
+import com.example.financemanager.dto.TransactionSummary;
+import com.example.financemanager.entities.AccountEntity;
+import com.example.financemanager.entities.CategoryEntity;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Expense and income summaries computed entirely in Postgres: one
+ * GROUP BY GROUPING SETS query returns the overall totals and the per
+ * category, per day and per account groups together, so no rows are
+ * shipped to the application or turned into entities. The rows summarized
+ * are chosen by TransactionFilterService with the same predicates as the
+ * listing endpoints.
+ */
+@Service
+public class TransactionSummaryService {
+
+    private static final Comparator<TransactionSummary.Group> LARGEST_FIRST = Comparator
+            .comparing(TransactionSummary.Group::total, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    private final TransactionFilterService transactionFilterService;
+
+    public TransactionSummaryService(TransactionFilterService transactionFilterService) {
+        this.transactionFilterService = transactionFilterService;
+    }
+
+    public TransactionSummary summarizeExpenses(UUID userId, ExpenseFilterDTO filter) {
+        return toSummary(transactionFilterService.aggregateExpenses(userId,
+                TransactionFilterService.Filter.of(filter), Tuple.class, TransactionSummaryService::groupingSets));
+    }
+
+    public TransactionSummary summarizeIncomes(UUID userId, ExpenseFilterDTO filter) {
+        return toSummary(transactionFilterService.aggregateIncomes(userId,
+                TransactionFilterService.Filter.of(filter), Tuple.class, TransactionSummaryService::groupingSets));
+    }
+
+    private static void groupingSets(CriteriaQuery<Tuple> query, Root<?> t, Path<LocalDate> date,
+            HibernateCriteriaBuilder cb) {
+        Join<?, CategoryEntity> category = t.join("category", JoinType.LEFT);
+        Join<?, AccountEntity> account = t.join("account", JoinType.LEFT);
+        Path<UUID> categoryId = category.get("id");
+        Path<UUID> accountId = account.get("id");
+        Path<BigDecimal> amount = t.get("amount");
+
+        // GROUPING(col) is 1 when col is not part of the row's grouping set
+        query.multiselect(
+                grouping(cb, categoryId).alias("noCategory"),
+                grouping(cb, date).alias("noDay"),
+                grouping(cb, accountId).alias("noAccount"),
+                categoryId.alias("categoryId"),
+                category.<String>get("name").alias("categoryName"),
+                date.alias("day"),
+                accountId.alias("accountId"),
+                account.<String>get("name").alias("accountName"),
+                cb.sum(amount).alias("total"),
+                cb.count(t).alias("count"),
+                cb.min(amount).alias("min"),
+                cb.max(amount).alias("max"));
+        // Neither JPA nor HQL has GROUPING SETS, so the clause is passed through as SQL
+        query.groupBy(cb.sql("GROUPING SETS ((?, ?), (?), (?, ?), ())", Object.class,
+                categoryId, category.get("name"), date, accountId, account.get("name")));
+    }
+
+    private static Expression<Integer> grouping(HibernateCriteriaBuilder cb, Expression<?> column) {
+        return cb.sql("GROUPING(?)", Integer.class, column);
+    }
+
+    private static TransactionSummary toSummary(List<Tuple> rows) {
+        TransactionSummary.Group overall = new TransactionSummary.Group(null, null, null, 0, null, null);
+        List<TransactionSummary.Group> byCategory = new ArrayList<>();
+        List<TransactionSummary.Group> byDay = new ArrayList<>();
+        List<TransactionSummary.Group> byAccount = new ArrayList<>();
+
+        for (Tuple row : rows) {
+            BigDecimal total = row.get("total", BigDecimal.class);
+            long count = row.get("count", Long.class);
+            BigDecimal min = row.get("min", BigDecimal.class);
+            BigDecimal max = row.get("max", BigDecimal.class);
+            if (row.get("noCategory", Integer.class) == 0) {
+                UUID id = row.get("categoryId", UUID.class);
+                byCategory.add(new TransactionSummary.Group(id != null ? id.toString() : null,
+                        row.get("categoryName", String.class), total, count, min, max));
+            } else if (row.get("noDay", Integer.class) == 0) {
+                LocalDate day = row.get("day", LocalDate.class);
+                byDay.add(new TransactionSummary.Group(day != null ? day.toString() : null,
+                        null, total, count, min, max));
+            } else if (row.get("noAccount", Integer.class) == 0) {
+                UUID id = row.get("accountId", UUID.class);
+                byAccount.add(new TransactionSummary.Group(id != null ? id.toString() : null,
+                        row.get("accountName", String.class), total, count, min, max));
+            } else {
+                overall = new TransactionSummary.Group(null, null, total, count, min, max);
+            }
+        }
+
+        byCategory.sort(LARGEST_FIRST);
+        byAccount.sort(LARGEST_FIRST);
+        byDay.sort(Comparator.comparing(TransactionSummary.Group::key, Comparator.nullsLast(Comparator.naturalOrder())));
+        return new TransactionSummary(overall, byCategory, byDay, byAccount);
+    }
+}
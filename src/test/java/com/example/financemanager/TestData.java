@@ -0,0 +1,93 @@
+package com.example.financemanager;
+
+import com.example.financemanager.entities.AccountEntity;
+import com.example.financemanager.service.CustomUserDetails;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+/**
+ * Rows for database-backed tests, inserted straight through JDBC. The tests
+ * run against the dev database, so each one works under a fresh user and
+ * removes everything that user owns afterwards with {@link #deleteUser}.
+ */
+public class TestData {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TestData(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public UUID user() {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO users (id, created_at, email, password_hash, token_version) " +
+                "VALUES (?, now(), ?, 'x', 0)", id, "test-" + id + "@example.com");
+        return id;
+    }
+
+    public CustomUserDetails principal(UUID userId) {
+        return new CustomUserDetails(userId, "test-" + userId + "@example.com");
+    }
+
+    /** An account with its opening checkpoint, as AccountController creates one. */
+    public UUID account(UUID userId, AccountEntity.AccountType type, String balance) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO accounts (id, created_at, balance, name, type, user_id, " +
+                "billing_cycle_start_day, due_date_day) VALUES (?, now(), ?, ?, ?, ?, ?, ?)",
+                id, new BigDecimal(balance), type + " " + id, type.name(), userId,
+                type == AccountEntity.AccountType.CREDIT_CARD ? 1 : null,
+                type == AccountEntity.AccountType.CREDIT_CARD ? 20 : null);
+        jdbcTemplate.update("INSERT INTO account_checkpoints (account_id, seq, balance, created_at) " +
+                "VALUES (?, 0, ?, now())", id, new BigDecimal(balance));
+        return id;
+    }
+
+    /** A category (type EXPENSE or INCOME) with its closure rows; parentId may be null. */
+    public UUID category(UUID userId, String type, String name, UUID parentId) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO categories (id, created_at, name, type, parent_id, user_id) " +
+                "VALUES (?, now(), ?, ?, ?, ?)", id, name, type, parentId, userId);
+        jdbcTemplate.update("INSERT INTO category_closure (ancestor_id, descendant_id, depth) " +
+                "SELECT ?, ?, 0 UNION ALL " +
+                "SELECT ancestor_id, ?, depth + 1 FROM category_closure WHERE descendant_id = ?",
+                id, id, id, parentId);
+        return id;
+    }
+
+    /** An expense row only; the account balance is not posted. */
+    public UUID expense(UUID userId, UUID accountId, UUID categoryId, String name, String amount, LocalDate date) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO expenses (id, created_at, amount, expense_date, name, account_id, " +
+                "category_id, user_id) VALUES (?, now(), ?, ?, ?, ?, ?, ?)",
+                id, new BigDecimal(amount), date, name, accountId, categoryId, userId);
+        return id;
+    }
+
+    /** An income row only; the account balance is not posted. */
+    public UUID income(UUID userId, UUID accountId, UUID categoryId, String name, String amount, LocalDate date) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO incomes (id, created_at, amount, income_date, name, account_id, " +
+                "category_id, user_id) VALUES (?, now(), ?, ?, ?, ?, ?, ?)",
+                id, new BigDecimal(amount), date, name, accountId, categoryId, userId);
+        return id;
+    }
+
+    public BigDecimal balance(UUID accountId) {
+        return jdbcTemplate.queryForObject("SELECT balance FROM accounts WHERE id = ?", BigDecimal.class, accountId);
+    }
+
+    /** Deletes the user and every row that belongs to them, children first. */
+    public void deleteUser(UUID userId) {
+        for (String table : new String[] {"budgets", "recurring_transactions", "expenses", "incomes",
+                "idempotency_keys", "password_reset_tokens", "revoked_tokens", "debts", "savings"}) {
+            jdbcTemplate.update("DELETE FROM " + table + " WHERE user_id = ?", userId);
+        }
+        // Closure rows, postings, checkpoints and statements go with their parents (ON DELETE CASCADE)
+        jdbcTemplate.update("DELETE FROM categories WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM accounts WHERE user_id = ?", userId);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+    }
+}
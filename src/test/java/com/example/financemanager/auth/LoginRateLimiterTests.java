@@ -0,0 +1,99 @@
+package com.example.financemanager.auth;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginRateLimiterTests {
+
+    private static final long REFILL_MS = 200;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void createLimiter() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new LoginRateLimiter(meterRegistry);
+        ReflectionTestUtils.setField(limiter, "stripes", 1024);
+        ReflectionTestUtils.setField(limiter, "ipBurst", 3);
+        ReflectionTestUtils.setField(limiter, "ipRefillMs", REFILL_MS);
+        ReflectionTestUtils.setField(limiter, "emailBurst", 2);
+        ReflectionTestUtils.setField(limiter, "emailRefillMs", REFILL_MS);
+        limiter.init();
+    }
+
+    @Test
+    void ipBucketAllowsTheBurstThenRejects() {
+        for (int i = 0; i < 3; i++) {
+            assertTrue(limiter.tryAcquire(LoginRateLimiter.LOGIN, null, "10.0.0.1"));
+        }
+        assertFalse(limiter.tryAcquire(LoginRateLimiter.LOGIN, null, "10.0.0.1"));
+        assertEquals(1.0, rejections(LoginRateLimiter.LOGIN, "ip"));
+    }
+
+    @Test
+    void ipBucketRefillsOneTokenPerInterval() throws InterruptedException {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(LoginRateLimiter.LOGIN, null, "10.0.0.1");
+        }
+        assertFalse(limiter.tryAcquire(LoginRateLimiter.LOGIN, null, "10.0.0.1"));
+
+        Thread.sleep(REFILL_MS + 50);
+
+        assertTrue(limiter.tryAcquire(LoginRateLimiter.LOGIN, null, "10.0.0.1"));
+        assertFalse(limiter.tryAcquire(LoginRateLimiter.LOGIN, null, "10.0.0.1"));
+    }
+
+    @Test
+    void bucketsAreSeparatePerIpAndPerEndpoint() {
+        for (int i = 0; i < 3; i++) {
+            limiter.tryAcquire(LoginRateLimiter.LOGIN, null, "10.0.0.1");
+        }
+        assertTrue(limiter.tryAcquire(LoginRateLimiter.LOGIN, null, "10.0.0.2"));
+        assertTrue(limiter.tryAcquire(LoginRateLimiter.FORGOT_PASSWORD, null, "10.0.0.1"));
+    }
+
+    @Test
+    void emailBucketIsOnlyDrainedByCharges() {
+        // Successful attempts only peek at the email bucket
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(LoginRateLimiter.LOGIN, "victim@example.com", "10.0.0." + i));
+        }
+
+        limiter.charge(LoginRateLimiter.LOGIN, "victim@example.com");
+        limiter.charge(LoginRateLimiter.LOGIN, "Victim@Example.com ");
+
+        assertFalse(limiter.tryAcquire(LoginRateLimiter.LOGIN, "victim@example.com", "10.0.1.1"));
+        assertEquals(1.0, rejections(LoginRateLimiter.LOGIN, "email"));
+        assertTrue(limiter.tryAcquire(LoginRateLimiter.FORGOT_PASSWORD, "victim@example.com", "10.0.1.2"));
+    }
+
+    @Test
+    void emailBucketRefillsAfterFailures() throws InterruptedException {
+        limiter.charge(LoginRateLimiter.LOGIN, "user@example.com");
+        limiter.charge(LoginRateLimiter.LOGIN, "user@example.com");
+        assertFalse(limiter.tryAcquire(LoginRateLimiter.LOGIN, "user@example.com", "10.0.0.1"));
+
+        Thread.sleep(REFILL_MS + 50);
+
+        assertTrue(limiter.tryAcquire(LoginRateLimiter.LOGIN, "user@example.com", "10.0.0.1"));
+    }
+
+    @Test
+    void missingKeysAreNotThrottled() {
+        for (int i = 0; i < 10; i++) {
+            assertTrue(limiter.tryAcquire(LoginRateLimiter.LOGIN, null, null));
+        }
+    }
+
+    private double rejections(String endpoint, String key) {
+        return meterRegistry.get("auth.throttle.rejected").tag("endpoint", endpoint).tag("key", key)
+                .counter().count();
+    }
+}
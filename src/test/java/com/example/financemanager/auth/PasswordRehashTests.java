@@ -0,0 +1,87 @@
+package com.example.financemanager.auth;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class PasswordRehashTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private TestData data;
+    private UUID userId;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void loginMovesAHashOfAnotherCostToTheConfiguredOne() throws Exception {
+        jdbcTemplate.update("UPDATE users SET password_hash = ?, token_version = 2 WHERE id = ?",
+                new BCryptPasswordEncoder(4).encode("secret-pass"), userId);
+
+        mockMvc.perform(post("/auth/login")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"email\":\"" + data.principal(userId).getUsername() +
+                                "\",\"password\":\"secret-pass\"}"))
+                .andExpect(status().isCreated());
+
+        String hash = passwordHash();
+        assertTrue(hash.startsWith("$2a$10$"), hash);
+        assertTrue(new BCryptPasswordEncoder().matches("secret-pass", hash));
+        assertEquals(2, tokenVersion());
+    }
+
+    @Test
+    void rehashLosesToAConcurrentPasswordChange() {
+        String verified = new BCryptPasswordEncoder(4).encode("secret-pass");
+        jdbcTemplate.update("UPDATE users SET password_hash = ? WHERE id = ?", verified, userId);
+        // The password changes between the login's verification and its rehash
+        jdbcTemplate.update("UPDATE users SET password_hash = 'changed', token_version = 1 WHERE id = ?", userId);
+
+        assertEquals(0, userRepository.replacePasswordHash(userId, verified, "rehashed"));
+
+        assertEquals("changed", passwordHash());
+        assertEquals(1, tokenVersion());
+    }
+
+    private String passwordHash() {
+        return jdbcTemplate.queryForObject("SELECT password_hash FROM users WHERE id = ?", String.class, userId);
+    }
+
+    private int tokenVersion() {
+        return jdbcTemplate.queryForObject("SELECT token_version FROM users WHERE id = ?", Integer.class, userId);
+    }
+}
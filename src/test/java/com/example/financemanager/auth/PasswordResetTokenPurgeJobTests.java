@@ -0,0 +1,70 @@
+package com.example.financemanager.auth;
+
+import com.example.financemanager.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class PasswordResetTokenPurgeJobTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PasswordResetTokenPurgeJob purgeJob;
+
+    private TestData data;
+    private UUID userId;
+    private Object batchSize;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        batchSize = ReflectionTestUtils.getField(purgeJob, "batchSize");
+    }
+
+    @AfterEach
+    void deleteUser() {
+        ReflectionTestUtils.setField(purgeJob, "batchSize", batchSize);
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void purgeDeletesUsedAndExpiredTokensAcrossBatches() {
+        Instant future = Instant.now().plus(1, ChronoUnit.HOURS);
+        Instant past = Instant.now().minus(1, ChronoUnit.MINUTES);
+        UUID active = token(false, future);
+        token(true, future);
+        token(false, past);
+        token(true, past);
+
+        // One row per batch, so the job has to keep going until a batch comes up short
+        ReflectionTestUtils.setField(purgeJob, "batchSize", 1);
+        purgeJob.purge();
+
+        assertEquals(List.of(active), jdbcTemplate.queryForList(
+                "SELECT id FROM password_reset_tokens WHERE user_id = ?", UUID.class, userId));
+    }
+
+    private UUID token(boolean used, Instant expiresAt) {
+        UUID id = UUID.randomUUID();
+        jdbcTemplate.update("INSERT INTO password_reset_tokens (id, token_hash, user_id, expires_at, used) " +
+                "VALUES (?, ?, ?, ?, ?)", id, id.toString().replace("-", "").repeat(2),
+                userId, Timestamp.from(expiresAt), used);
+        return id;
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.financemanager.auth;
+
+import com.example.financemanager.TestData;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TokenRevocationServiceTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private TokenRevocationService tokenRevocationService;
+
+    private TestData data;
+    private UUID userId;
+    private String email;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        email = data.principal(userId).getUsername();
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void logoutRevokesOnlyThatToken() throws Exception {
+        String loggedOut = jwtService.generateToken(userId, email, 0);
+        String other = jwtService.generateToken(userId, email, 0);
+
+        mockMvc.perform(post("/auth/logout").header("Authorization", "Bearer " + loggedOut))
+                .andExpect(status().isOk());
+
+        String jti = jwtService.verify(loggedOut).orElseThrow().jti();
+        assertTrue(tokenRevocationService.isRevoked(jti));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM revoked_tokens WHERE token_id = ? AND user_id = ?", Integer.class, jti, userId));
+        me(loggedOut).andExpect(status().is4xxClientError());
+        me(other).andExpect(status().isOk());
+    }
+
+    @Test
+    void syncPicksUpRevocationsFromOtherInstances() throws Exception {
+        String token = jwtService.generateToken(userId, email, 0);
+        JwtService.VerifiedToken verified = jwtService.verify(token).orElseThrow();
+        me(token).andExpect(status().isOk());
+
+        insertRevoked(verified.jti(), verified.expiresAt());
+        tokenRevocationService.sync();
+
+        assertTrue(tokenRevocationService.isRevoked(verified.jti()));
+        me(token).andExpect(status().is4xxClientError());
+    }
+
+    @Test
+    void purgeDeletesRowsForExpiredTokensOnly() {
+        String expired = UUID.randomUUID().toString();
+        String active = UUID.randomUUID().toString();
+        insertRevoked(expired, Instant.now().minus(1, ChronoUnit.MINUTES));
+        insertRevoked(active, Instant.now().plus(1, ChronoUnit.HOURS));
+
+        tokenRevocationService.purge();
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM revoked_tokens WHERE token_id = ?", Integer.class, expired));
+        assertFalse(tokenRevocationService.isRevoked(expired));
+        assertTrue(tokenRevocationService.isRevoked(active));
+    }
+
+    // A row written by another instance
+    private void insertRevoked(String tokenId, Instant expiresAt) {
+        jdbcTemplate.update("INSERT INTO revoked_tokens (id, token_id, user_id, expires_at, revoked_at) " +
+                "VALUES (?, ?, ?, ?, now())", UUID.randomUUID(), tokenId, userId, Timestamp.from(expiresAt));
+    }
+
+    private ResultActions me(String token) throws Exception {
+        return mockMvc.perform(get("/auth/me").header("Authorization", "Bearer " + token));
+    }
+}
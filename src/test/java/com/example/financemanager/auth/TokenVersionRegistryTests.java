@@ -0,0 +1,94 @@
+package com.example.financemanager.auth;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.service.PasswordHashingService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TokenVersionRegistryTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private JwtService jwtService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    private TestData data;
+    private UUID userId;
+    private String email;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        email = data.principal(userId).getUsername();
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void changingThePasswordSignsOutExistingTokens() throws Exception {
+        jdbcTemplate.update("UPDATE users SET password_hash = ? WHERE id = ?",
+                passwordHashingService.encode("old-password"), userId);
+        String token = jwtService.generateToken(userId, email, 0);
+        me(token).andExpect(status().isOk());
+
+        mockMvc.perform(put("/auth/change-password")
+                        .header("Authorization", "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"currentPassword\":\"old-password\",\"newPassword\":\"new-password\"}"))
+                .andExpect(status().isOk());
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT token_version FROM users WHERE id = ?", Integer.class, userId));
+        me(token).andExpect(status().is4xxClientError());
+        me(jwtService.generateToken(userId, email, 1)).andExpect(status().isOk());
+    }
+
+    @Test
+    void tokensOlderThanTheStoredVersionAreRejected() throws Exception {
+        // As another instance would leave it after a password reset
+        jdbcTemplate.update("UPDATE users SET token_version = 3 WHERE id = ?", userId);
+
+        me(jwtService.generateToken(userId, email, 2)).andExpect(status().is4xxClientError());
+        me(jwtService.generateToken(userId, email, 3)).andExpect(status().isOk());
+    }
+
+    @Test
+    void tokensOfADeletedUserAreRejected() throws Exception {
+        String token = jwtService.generateToken(userId, email, 0);
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", userId);
+
+        me(token).andExpect(status().is4xxClientError());
+    }
+
+    private ResultActions me(String token) throws Exception {
+        return mockMvc.perform(get("/auth/me").header("Authorization", "Bearer " + token));
+    }
+}
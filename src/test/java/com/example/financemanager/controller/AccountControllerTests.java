@@ -0,0 +1,89 @@
+package com.example.financemanager.controller;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.entities.AccountEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AccountControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData data;
+    private UUID userId;
+    private UUID card;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        card = data.account(userId, AccountEntity.AccountType.CREDIT_CARD, "300.00");
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void updateWithoutABalanceKeepsTheStoredOne() throws Exception {
+        // A card with no closed statement derives its figures from the balance
+        mockMvc.perform(put("/accounts/" + card).with(user(data.principal(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(card("Renamed card", null)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Renamed card"))
+                .andExpect(jsonPath("$.balance").value(300.00))
+                .andExpect(jsonPath("$.lastStatementBalance").value(300.00));
+
+        assertEquals(0, new BigDecimal("300.00").compareTo(data.balance(card)));
+        assertEquals(List.of(), postings(card));
+    }
+
+    @Test
+    void updatedBalanceIsJournaledAndReturned() throws Exception {
+        mockMvc.perform(put("/accounts/" + card).with(user(data.principal(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(card("Card", "250.00")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.balance").value(250.00))
+                .andExpect(jsonPath("$.lastStatementBalance").value(250.00));
+
+        assertEquals(0, new BigDecimal("250.00").compareTo(data.balance(card)));
+        assertEquals(List.of(new BigDecimal("-50.00")), postings(card));
+    }
+
+    private List<BigDecimal> postings(UUID account) {
+        return jdbcTemplate.queryForList("SELECT delta FROM account_postings WHERE account_id = ? ORDER BY seq",
+                BigDecimal.class, account).stream().map(d -> d.setScale(2)).toList();
+    }
+
+    private static String card(String name, String balance) {
+        return "{\"name\":\"" + name + "\",\"type\":\"CREDIT_CARD\"," +
+                (balance != null ? "\"balance\":" + balance + "," : "") +
+                "\"billingCycleStartDay\":1,\"dueDateDay\":20}";
+    }
+}
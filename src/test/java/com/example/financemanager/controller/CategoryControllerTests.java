@@ -0,0 +1,127 @@
+package com.example.financemanager.controller;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.entities.AccountEntity;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class CategoryControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData data;
+    private UUID userId;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void createLinksTheCategoryToEveryAncestor() throws Exception {
+        UUID root = create("Home", null);
+        UUID child = create("Utilities", root);
+        UUID grandchild = create("Power", child);
+
+        assertEquals(List.of(Map.of("ancestor_id", grandchild, "depth", 0),
+                        Map.of("ancestor_id", child, "depth", 1),
+                        Map.of("ancestor_id", root, "depth", 2)),
+                jdbcTemplate.queryForList("SELECT ancestor_id, depth FROM category_closure " +
+                        "WHERE descendant_id = ? ORDER BY depth", grandchild));
+    }
+
+    @Test
+    void deleteRemovesTheSubtreeAndItsClosureRows() throws Exception {
+        UUID root = create("Home", null);
+        UUID child = create("Utilities", root);
+        create("Power", child);
+        UUID sibling = create("Car", null);
+
+        mockMvc.perform(delete("/categories/" + root).with(user(data.principal(userId))))
+                .andExpect(status().isOk());
+
+        assertEquals(List.of(sibling), jdbcTemplate.queryForList(
+                "SELECT id FROM categories WHERE user_id = ?", UUID.class, userId));
+        assertEquals(List.of(sibling), jdbcTemplate.queryForList(
+                "SELECT descendant_id FROM category_closure WHERE ancestor_id = ?", UUID.class, sibling));
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM category_closure cc " +
+                "JOIN categories c ON c.id = cc.descendant_id WHERE c.user_id = ? AND c.id <> ?",
+                Integer.class, userId, sibling));
+    }
+
+    @Test
+    void deleteIsRefusedWhileAnyDescendantIsInUse() throws Exception {
+        UUID root = create("Home", null);
+        UUID child = create("Utilities", root);
+        UUID grandchild = create("Power", child);
+        // A recurring template deep in the subtree is enough to block the delete
+        jdbcTemplate.update("INSERT INTO recurring_transactions (id, created_at, amount, frequency, is_active, " +
+                "name, next_due_date, start_date, type, category_id, user_id) " +
+                "VALUES (?, now(), 80, 'monthly', true, 'Power bill', ?, ?, 'expense', ?, ?)",
+                UUID.randomUUID(), LocalDate.now(), LocalDate.now(), grandchild, userId);
+
+        mockMvc.perform(delete("/categories/" + root).with(user(data.principal(userId))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("\"Power\"")));
+
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM categories WHERE user_id = ?", Integer.class, userId));
+        assertEquals(6, jdbcTemplate.queryForObject("SELECT count(*) FROM category_closure WHERE ancestor_id IN " +
+                "(SELECT id FROM categories WHERE user_id = ?)", Integer.class, userId));
+    }
+
+    @Test
+    void deleteIsRefusedWhileTheCategoryItselfHasExpenses() throws Exception {
+        UUID root = create("Home", null);
+        UUID account = data.account(userId, AccountEntity.AccountType.SAVINGS, "0");
+        data.expense(userId, account, root, "Rent", "900.00", LocalDate.of(2026, 9, 1));
+
+        mockMvc.perform(delete("/categories/" + root).with(user(data.principal(userId))))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string(containsString("\"Home\"")));
+    }
+
+    private UUID create(String name, UUID parentId) throws Exception {
+        String body = "{\"name\":\"" + name + "\",\"type\":\"EXPENSE\"" +
+                (parentId != null ? ",\"parentId\":\"" + parentId + "\"" : "") + "}";
+        String response = mockMvc.perform(post("/categories").with(user(data.principal(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        return UUID.fromString(JsonPath.read(response, "$.id"));
+    }
+}
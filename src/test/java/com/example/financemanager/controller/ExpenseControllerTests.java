@@ -0,0 +1,140 @@
+package com.example.financemanager.controller;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.entities.AccountEntity;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class ExpenseControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData data;
+    private UUID userId;
+    private UUID accountId;
+    private UUID categoryId;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        accountId = data.account(userId, AccountEntity.AccountType.SAVINGS, "100.00");
+        categoryId = data.category(userId, "EXPENSE", "Groceries", null);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void createAndUpdateReturnTheFlatView() throws Exception {
+        MvcResult created = mockMvc.perform(post("/expenses").with(user(data.principal(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(expense("Market", "30.00")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Market"))
+                .andExpect(jsonPath("$.date").value("2026-09-01"))
+                .andExpect(jsonPath("$.categoryId").value(categoryId.toString()))
+                .andExpect(jsonPath("$.categoryName").value("Groceries"))
+                .andExpect(jsonPath("$.accountId").value(accountId.toString()))
+                .andExpect(jsonPath("$.category").doesNotExist())
+                .andExpect(jsonPath("$.user").doesNotExist())
+                .andReturn();
+        String id = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(put("/expenses/" + id).with(user(data.principal(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(expense("Market hall", "45.00")))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.name").value("Market hall"))
+                .andExpect(jsonPath("$.amount").value(45.00))
+                .andExpect(jsonPath("$.categoryName").value("Groceries"))
+                .andExpect(jsonPath("$.category").doesNotExist());
+
+        assertEquals(0, new BigDecimal("55.00").compareTo(data.balance(accountId)));
+    }
+
+    @Test
+    void batchPostsOneNetDeltaPerAccount() throws Exception {
+        UUID card = data.account(userId, AccountEntity.AccountType.CREDIT_CARD, "200.00");
+        String items = "[" + String.join(",",
+                expense("A", "10.00"), expense("B", "15.00"),
+                expense("C", "5.00", card), expense("D", "20.00", card), expense("E", "1.00", card)) + "]";
+
+        mockMvc.perform(post("/expenses/batch").with(user(data.principal(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(items))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(5))
+                .andExpect(jsonPath("$[0].categoryName").value("Groceries"));
+
+        assertEquals(0, new BigDecimal("75.00").compareTo(data.balance(accountId)));
+        assertEquals(0, new BigDecimal("226.00").compareTo(data.balance(card)));
+        // One journal posting per account carrying the net of its items
+        assertEquals(List.of(new BigDecimal("-25.00")), postings(accountId));
+        assertEquals(List.of(new BigDecimal("26.00")), postings(card));
+    }
+
+    @Test
+    void batchWithAnotherUsersAccountWritesNothing() throws Exception {
+        UUID otherUser = data.user();
+        try {
+            UUID foreign = data.account(otherUser, AccountEntity.AccountType.SAVINGS, "0");
+            String items = "[" + expense("Mine", "10.00") + "," + expense("Theirs", "10.00", foreign) + "]";
+
+            mockMvc.perform(post("/expenses/batch").with(user(data.principal(userId)))
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(items))
+                    .andExpect(status().isBadRequest());
+
+            assertEquals(0, jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM expenses WHERE user_id = ?", Integer.class, userId));
+            assertEquals(0, new BigDecimal("100.00").compareTo(data.balance(accountId)));
+            assertEquals(List.of(), postings(accountId));
+        } finally {
+            data.deleteUser(otherUser);
+        }
+    }
+
+    private List<BigDecimal> postings(UUID account) {
+        return jdbcTemplate.queryForList("SELECT delta FROM account_postings WHERE account_id = ? ORDER BY seq",
+                BigDecimal.class, account).stream().map(d -> d.setScale(2)).toList();
+    }
+
+    private String expense(String name, String amount, UUID account) {
+        return "{\"name\":\"" + name + "\",\"amount\":" + amount + ",\"date\":\"2026-09-01\"," +
+                "\"categoryId\":\"" + categoryId + "\",\"accountId\":\"" + account + "\"}";
+    }
+
+    private String expense(String name, String amount) {
+        return expense(name, amount, accountId);
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.financemanager.controller;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.dto.TransactionCursor;
+import com.example.financemanager.entities.AccountEntity;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class IncomeControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData data;
+    private UUID userId;
+    private UUID categoryId;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        categoryId = data.category(userId, "INCOME", "Salary", null);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void listingIsPagedNewestFirstWithANextCursor() throws Exception {
+        LocalDate day = LocalDate.of(2026, 9, 1);
+        data.income(userId, null, categoryId, "First", "10.00", day);
+        data.income(userId, null, categoryId, "Second", "10.00", day.plusDays(1));
+        data.income(userId, null, categoryId, "Third", "10.00", day.plusDays(2));
+
+        MvcResult first = mockMvc.perform(get("/incomes").param("limit", "2").with(user(data.principal(userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("Third", "Second")))
+                .andReturn();
+        String cursor = first.getResponse().getHeader(TransactionCursor.NEXT_CURSOR_HEADER);
+        assertNotNull(cursor);
+
+        mockMvc.perform(get("/incomes").param("limit", "2").param("cursor", cursor)
+                        .with(user(data.principal(userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].name").value(contains("First")))
+                .andExpect(header().doesNotExist(TransactionCursor.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    void createAndUpdateReturnTheFlatView() throws Exception {
+        UUID accountId = data.account(userId, AccountEntity.AccountType.SAVINGS, "100.00");
+
+        MvcResult created = mockMvc.perform(post("/incomes").with(user(data.principal(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(income("Payday", "1000.00", accountId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Payday"))
+                .andExpect(jsonPath("$.categoryName").value("Salary"))
+                .andExpect(jsonPath("$.accountId").value(accountId.toString()))
+                .andExpect(jsonPath("$.category").doesNotExist())
+                .andExpect(jsonPath("$.user").doesNotExist())
+                .andReturn();
+        String id = JsonPath.read(created.getResponse().getContentAsString(), "$.id");
+
+        mockMvc.perform(put("/incomes/" + id).with(user(data.principal(userId)))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(income("Payday", "1200.00", accountId)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(id))
+                .andExpect(jsonPath("$.amount").value(1200.00))
+                .andExpect(jsonPath("$.category").doesNotExist());
+
+        assertEquals(0, new BigDecimal("1300.00").compareTo(data.balance(accountId)));
+    }
+
+    @Test
+    void listingWithoutALimitReturnsTheDefaultPageSize() throws Exception {
+        LocalDate day = LocalDate.of(2026, 1, 1);
+        for (int i = 0; i <= TransactionCursor.DEFAULT_PAGE_SIZE; i++) {
+            data.income(userId, null, categoryId, "Income " + i, "1.00", day.plusDays(i));
+        }
+
+        mockMvc.perform(get("/incomes").with(user(data.principal(userId))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(TransactionCursor.DEFAULT_PAGE_SIZE)))
+                .andExpect(header().exists(TransactionCursor.NEXT_CURSOR_HEADER));
+    }
+
+    private String income(String name, String amount, UUID accountId) {
+        return "{\"name\":\"" + name + "\",\"amount\":" + amount + ",\"date\":\"2026-09-01\"," +
+                "\"categoryId\":\"" + categoryId + "\",\"accountId\":\"" + accountId + "\"}";
+    }
+}
@@ -0,0 +1,90 @@
+package com.example.financemanager.controller;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.entities.AccountEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class RecurringTransactionControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private TestData data;
+    private UUID userId;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void recurringIncomeIntoACreditCardPaysItDown() throws Exception {
+        UUID card = data.account(userId, AccountEntity.AccountType.CREDIT_CARD, "500.00");
+        recurring("income", card, data.category(userId, "INCOME", "Cashback", null), "100.00");
+
+        processDue();
+
+        assertEquals(0, new BigDecimal("400.00").compareTo(data.balance(card)));
+    }
+
+    @Test
+    void recurringIncomeIntoSavingsAddsToTheBalance() throws Exception {
+        UUID savings = data.account(userId, AccountEntity.AccountType.SAVINGS, "500.00");
+        recurring("income", savings, data.category(userId, "INCOME", "Salary", null), "100.00");
+
+        processDue();
+
+        assertEquals(0, new BigDecimal("600.00").compareTo(data.balance(savings)));
+    }
+
+    @Test
+    void recurringExpenseOnACreditCardAddsToTheAmountOwed() throws Exception {
+        UUID card = data.account(userId, AccountEntity.AccountType.CREDIT_CARD, "500.00");
+        recurring("expense", card, data.category(userId, "EXPENSE", "Streaming", null), "15.00");
+
+        processDue();
+
+        assertEquals(0, new BigDecimal("515.00").compareTo(data.balance(card)));
+    }
+
+    private void processDue() throws Exception {
+        mockMvc.perform(post("/recurring/process-due").with(user(data.principal(userId))))
+                .andExpect(status().isOk());
+    }
+
+    // A monthly template that is due today
+    private void recurring(String type, UUID accountId, UUID categoryId, String amount) {
+        jdbcTemplate.update("INSERT INTO recurring_transactions (id, created_at, amount, frequency, is_active, " +
+                "name, next_due_date, start_date, type, account_id, category_id, user_id) " +
+                "VALUES (?, now(), ?, 'monthly', true, ?, ?, ?, ?, ?, ?, ?)",
+                UUID.randomUUID(), new BigDecimal(amount), "Recurring " + type, LocalDate.now(), LocalDate.now(),
+                type, accountId, categoryId, userId);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.financemanager.dto;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TransactionCursorTests {
+
+    @Test
+    void decodesWhatItEncodes() {
+        TransactionCursor cursor = new TransactionCursor(LocalDate.of(2026, 9, 1), UUID.randomUUID());
+
+        assertEquals(cursor, TransactionCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void encodingIsUrlSafe() {
+        String encoded = new TransactionCursor(LocalDate.of(2026, 9, 1), UUID.randomUUID()).encode();
+
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"), encoded);
+    }
+
+    @Test
+    void rejectsMalformedCursorsWithBadRequest() {
+        for (String bad : new String[] {"", "not base64!", encode("2026-09-01"), encode("2026-13-01|" + UUID.randomUUID()),
+                encode("2026-09-01|not-a-uuid"), encode("|")}) {
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> TransactionCursor.decode(bad), bad);
+            assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        }
+    }
+
+    @Test
+    void pageSizeDefaultsAndClamps() {
+        assertEquals(TransactionCursor.DEFAULT_PAGE_SIZE, TransactionCursor.pageSize(null));
+        assertEquals(1, TransactionCursor.pageSize(0));
+        assertEquals(1, TransactionCursor.pageSize(-5));
+        assertEquals(10, TransactionCursor.pageSize(10));
+        assertEquals(TransactionCursor.MAX_PAGE_SIZE, TransactionCursor.pageSize(100_000));
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
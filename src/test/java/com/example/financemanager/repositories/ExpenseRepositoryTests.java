@@ -0,0 +1,76 @@
+package com.example.financemanager.repositories;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.dto.TransactionView;
+import com.example.financemanager.entities.AccountEntity;
+import com.example.financemanager.service.SearchTokenizer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class ExpenseRepositoryTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    private TestData data;
+    private UUID userId;
+    private UUID accountId;
+    private UUID categoryId;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        accountId = data.account(userId, AccountEntity.AccountType.SAVINGS, "0");
+        categoryId = data.category(userId, "EXPENSE", "Food", null);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void searchRankedPutsNameMatchesFirstThenNewest() {
+        UUID olderName = expense("Coffee beans", null, "2026-08-01");
+        UUID newerName = expense("Coffee shop", null, "2026-09-01");
+        UUID newestDescription = expense("Breakfast", "coffee and toast", "2026-10-01");
+        expense("Tea", null, "2026-10-02");
+
+        List<UUID> ids = expenseRepository.searchRanked(userId, SearchTokenizer.toPrefixTsQuery("cof"), 10)
+                .stream().map(TransactionView::id).toList();
+
+        assertEquals(List.of(newerName, olderName, newestDescription), ids);
+    }
+
+    @Test
+    void searchRankedMatchesEveryWordAsAPrefix() {
+        UUID both = expense("Coffee shop", null, "2026-09-01");
+        expense("Coffee beans", null, "2026-09-02");
+
+        List<UUID> ids = expenseRepository.searchRanked(userId, SearchTokenizer.toPrefixTsQuery("cof sh"), 10)
+                .stream().map(TransactionView::id).toList();
+
+        assertEquals(List.of(both), ids);
+    }
+
+    private UUID expense(String name, String description, String date) {
+        UUID id = data.expense(userId, accountId, categoryId, name, "1.00", LocalDate.parse(date));
+        jdbcTemplate.update("UPDATE expenses SET description = ? WHERE id = ?", description, id);
+        return id;
+    }
+}
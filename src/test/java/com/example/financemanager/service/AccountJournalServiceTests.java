@@ -0,0 +1,184 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.AccountJournalStatus;
+import com.example.financemanager.entities.AccountEntity;
+import com.example.financemanager.entities.UserEntity;
+import com.example.financemanager.repositories.AccountRepository;
+import com.example.financemanager.repositories.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class AccountJournalServiceTests {
+
+    private static final BigDecimal OPENING = new BigDecimal("1000.00");
+
+    @Autowired
+    private AccountJournalService accountJournalService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private UserEntity user;
+    private AccountEntity account;
+
+    @BeforeEach
+    void createAccount() {
+        user = new UserEntity();
+        user.setEmail("journal-" + UUID.randomUUID() + "@example.com");
+        user.setPasswordHash("x");
+        user = userRepository.save(user);
+
+        account = new AccountEntity();
+        account.setUser(user);
+        account.setName("Journal test");
+        account.setType(AccountEntity.AccountType.SAVINGS);
+        account.setBalance(OPENING);
+        account = accountRepository.saveAndFlush(account);
+        accountRepository.checkpointCurrent(account.getId());
+    }
+
+    @AfterEach
+    void deleteAccount() {
+        accountRepository.deleteById(account.getId());
+        userRepository.deleteById(user.getId());
+    }
+
+    @Test
+    void postingsKeepBalanceAndJournalInStep() {
+        post(AccountRepository.CHECKPOINT_INTERVAL + 5);
+
+        AccountJournalStatus status = accountJournalService.verify(account.getId(), user.getId());
+
+        assertTrue(status.isConsistent());
+        assertEquals(AccountRepository.CHECKPOINT_INTERVAL, status.checkpointSeq());
+        assertEquals(5, status.postingsReplayed());
+        assertEquals(0, expectedBalance(AccountRepository.CHECKPOINT_INTERVAL + 5).compareTo(status.journalBalance()));
+    }
+
+    @Test
+    void checkpointDoesNotAbsorbDriftInTheBalanceColumn() {
+        post(3);
+        corruptBalance(new BigDecimal("500.00"));
+        post(AccountRepository.CHECKPOINT_INTERVAL);
+
+        AccountJournalStatus status = accountJournalService.verify(account.getId(), user.getId());
+
+        // A checkpoint was written after the corruption, but from the journal, not the column
+        assertEquals(AccountRepository.CHECKPOINT_INTERVAL, status.checkpointSeq());
+        assertFalse(status.isConsistent());
+        assertEquals(0, expectedBalance(AccountRepository.CHECKPOINT_INTERVAL + 3).compareTo(status.journalBalance()));
+        assertEquals(0, status.journalBalance().add(new BigDecimal("500.00")).compareTo(status.balance()));
+    }
+
+    @Test
+    void recalculateRestoresTheJournalBalance() {
+        post(3);
+        corruptBalance(new BigDecimal("-42.00"));
+        post(AccountRepository.CHECKPOINT_INTERVAL);
+
+        AccountJournalStatus status = accountJournalService.recalculate(account.getId(), user.getId());
+
+        assertTrue(status.isConsistent());
+        assertEquals(0, expectedBalance(AccountRepository.CHECKPOINT_INTERVAL + 3).compareTo(status.balance()));
+    }
+
+    @Test
+    void checkpointIncludesAPostingCommittedWhileItWaitedForTheRow() throws Exception {
+        post(AccountRepository.CHECKPOINT_INTERVAL - 2);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        CountDownLatch posted = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+
+        // The second-to-last posting holds the row until told to commit
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status -> {
+            accountRepository.postBalance(account.getId(), user.getId(), new BigDecimal("7.00"));
+            posted.countDown();
+            await(commit);
+        }));
+        assertTrue(posted.await(10, TimeUnit.SECONDS));
+        // The posting that reaches the checkpoint starts while the first is still uncommitted
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> tx.executeWithoutResult(status ->
+                accountRepository.postBalance(account.getId(), user.getId(), new BigDecimal("11.00"))));
+        waitUntilBlockedOnTheRow();
+        commit.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        second.get(10, TimeUnit.SECONDS);
+
+        BigDecimal checkpoint = jdbcTemplate.queryForObject(
+                "SELECT balance FROM account_checkpoints WHERE account_id = ? AND seq = ?",
+                BigDecimal.class, account.getId(), AccountRepository.CHECKPOINT_INTERVAL);
+        assertEquals(0, expectedBalance(AccountRepository.CHECKPOINT_INTERVAL).compareTo(checkpoint));
+        assertTrue(accountJournalService.verify(account.getId(), user.getId()).isConsistent());
+    }
+
+    private void waitUntilBlockedOnTheRow() throws InterruptedException {
+        for (int i = 0; i < 200; i++) {
+            Integer waiting = jdbcTemplate.queryForObject("SELECT count(*) FROM pg_stat_activity " +
+                    "WHERE datname = current_database() AND wait_event_type = 'Lock' " +
+                    "AND query LIKE '%UPDATE accounts SET balance = balance +%'", Integer.class);
+            if (waiting > 0) {
+                return;
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Second posting never waited for the row lock");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // Posts 1.00, 2.00, ... n.00
+    private void post(long n) {
+        for (long i = 1; i <= n; i++) {
+            accountRepository.postBalance(account.getId(), user.getId(), BigDecimal.valueOf(i));
+        }
+    }
+
+    // Opening balance plus the postings made by post(), which restarts at 1.00 on each call
+    private BigDecimal expectedBalance(long postings) {
+        Long journalled = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM account_postings WHERE account_id = ?", Long.class, account.getId());
+        assertEquals(postings, journalled);
+        BigDecimal sum = jdbcTemplate.queryForObject(
+                "SELECT COALESCE(SUM(delta), 0) FROM account_postings WHERE account_id = ?",
+                BigDecimal.class, account.getId());
+        return OPENING.add(sum);
+    }
+
+    // Simulates a manual edit in the database that bypasses the journal
+    private void corruptBalance(BigDecimal drift) {
+        jdbcTemplate.update("UPDATE accounts SET balance = balance + ? WHERE id = ?", drift, account.getId());
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.entities.AccountEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+class AccountRecalculationServiceTests {
+
+    private static final LocalDate SEPT_1 = LocalDate.of(2026, 9, 1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private AccountRecalculationService recalculationService;
+
+    @Autowired
+    private AccountJournalService accountJournalService;
+
+    private TestData data;
+    private UUID userId;
+    private UUID food;
+    private UUID salary;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        food = data.category(userId, "EXPENSE", "Food", null);
+        salary = data.category(userId, "INCOME", "Salary", null);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void driftedBalanceIsRebuiltAndTheCorrectionJournaled() {
+        // The column says 500.00 but the transactions only add up to 70.00
+        UUID savings = data.account(userId, AccountEntity.AccountType.SAVINGS, "500.00");
+        data.expense(userId, savings, food, "Market", "30.00", SEPT_1);
+        data.income(userId, savings, salary, "Pay", "100.00", SEPT_1);
+
+        BigDecimal balance = recalculationService.recalculate(savings, userId);
+
+        assertEquals(0, new BigDecimal("70.00").compareTo(balance));
+        assertEquals(0, new BigDecimal("70.00").compareTo(data.balance(savings)));
+        assertEquals(List.of(new BigDecimal("-430.00")), postings(savings));
+        assertTrue(accountJournalService.verify(savings, userId).isConsistent());
+    }
+
+    @Test
+    void recalculateAllCoversEveryAccountAndLeavesCorrectOnesAlone() {
+        UUID savings = data.account(userId, AccountEntity.AccountType.SAVINGS, "20.00");
+        data.income(userId, savings, salary, "Pay", "20.00", SEPT_1);
+        // A card's balance is what is owed: expenses raise it, refunds lower it
+        UUID card = data.account(userId, AccountEntity.AccountType.CREDIT_CARD, "0");
+        data.expense(userId, card, food, "Dinner", "40.00", SEPT_1);
+        data.income(userId, card, salary, "Refund", "10.00", SEPT_1);
+        UUID unused = data.account(userId, AccountEntity.AccountType.SAVINGS, "5.00");
+
+        Map<UUID, BigDecimal> balances = recalculationService.recalculateAll(userId);
+
+        assertEquals(3, balances.size());
+        assertEquals(0, new BigDecimal("20.00").compareTo(balances.get(savings)));
+        assertEquals(0, new BigDecimal("30.00").compareTo(balances.get(card)));
+        assertEquals(0, BigDecimal.ZERO.compareTo(balances.get(unused)));
+        assertEquals(List.of(), postings(savings));
+        assertEquals(List.of(new BigDecimal("30.00")), postings(card));
+        assertEquals(List.of(new BigDecimal("-5.00")), postings(unused));
+    }
+
+    @Test
+    void anotherUsersAccountIsNotFound() {
+        UUID otherUser = data.user();
+        try {
+            UUID foreign = data.account(otherUser, AccountEntity.AccountType.SAVINGS, "50.00");
+
+            assertThrows(RuntimeException.class, () -> recalculationService.recalculate(foreign, userId));
+
+            assertEquals(0, new BigDecimal("50.00").compareTo(data.balance(foreign)));
+        } finally {
+            data.deleteUser(otherUser);
+        }
+    }
+
+    private List<BigDecimal> postings(UUID account) {
+        return jdbcTemplate.queryForList("SELECT delta FROM account_postings WHERE account_id = ? ORDER BY seq",
+                BigDecimal.class, account).stream().map(d -> d.setScale(2)).toList();
+    }
+}
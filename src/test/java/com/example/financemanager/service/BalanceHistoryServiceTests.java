@@ -0,0 +1,142 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.dto.BalanceHistory;
+import com.example.financemanager.entities.AccountEntity;
+import com.example.financemanager.repositories.AccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class BalanceHistoryServiceTests {
+
+    private static final LocalDate SEPT_1 = LocalDate.of(2026, 9, 1);
+    private static final LocalDate SEPT_30 = LocalDate.of(2026, 9, 30);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private BalanceHistoryService historyService;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    private TestData data;
+    private UUID userId;
+    private UUID accountId;
+
+    @BeforeEach
+    void createAccount() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        accountId = data.account(userId, AccountEntity.AccountType.SAVINGS, "100.00");
+        jdbcTemplate.update("UPDATE account_checkpoints SET created_at = ? WHERE account_id = ?",
+                at(LocalDate.of(2026, 8, 1)), accountId);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void seriesFollowsTheJournalIncludingAdjustments() {
+        post("50.00", LocalDate.of(2026, 8, 20));
+        post("-30.00", LocalDate.of(2026, 9, 2));
+        // Balance set by hand (PUT /accounts, recalculation): 120.00 -> 200.00
+        adjustTo("200.00", LocalDate.of(2026, 9, 2));
+        post("10.00", LocalDate.of(2026, 9, 15));
+        post("-999.00", LocalDate.of(2026, 10, 5));
+
+        BalanceHistory history = historyService.history(accountId, userId, SEPT_1, SEPT_30, "day");
+
+        assertEquals(0, new BigDecimal("150.00").compareTo(history.openingBalance()));
+        assertPoints(history, List.of(
+                point(LocalDate.of(2026, 9, 2), "50.00", "200.00"),
+                point(LocalDate.of(2026, 9, 15), "10.00", "210.00")));
+
+        BalanceHistory monthly = historyService.history(accountId, userId, SEPT_1, SEPT_30, "month");
+        assertPoints(monthly, List.of(point(SEPT_1, "60.00", "210.00")));
+    }
+
+    @Test
+    void openingStartsFromTheLatestCheckpointBeforeFrom() {
+        post("50.00", LocalDate.of(2026, 8, 20));
+        // As if the posting above had been a checkpoint's; it must not be counted twice
+        jdbcTemplate.update("INSERT INTO account_checkpoints (account_id, seq, balance, created_at) " +
+                "VALUES (?, 1, 150.00, ?)", accountId, at(LocalDate.of(2026, 8, 20)));
+        post("5.00", LocalDate.of(2026, 8, 25));
+        post("7.00", SEPT_1);
+
+        BalanceHistory history = historyService.history(accountId, userId, SEPT_1, SEPT_30, "day");
+
+        assertEquals(0, new BigDecimal("155.00").compareTo(history.openingBalance()));
+        assertPoints(history, List.of(point(SEPT_1, "7.00", "162.00")));
+    }
+
+    @Test
+    void beforeAnyPostingTheSeriesIsJustTheOpeningBalance() {
+        BalanceHistory history = historyService.history(accountId, userId, SEPT_1, SEPT_30, "week");
+
+        assertEquals(0, new BigDecimal("100.00").compareTo(history.openingBalance()));
+        assertEquals(List.of(), history.points());
+    }
+
+    @Test
+    void anotherUsersAccountIsNotFound() {
+        UUID otherUser = data.user();
+        try {
+            assertThrows(RuntimeException.class,
+                    () -> historyService.history(accountId, otherUser, SEPT_1, SEPT_30, "day"));
+        } finally {
+            data.deleteUser(otherUser);
+        }
+    }
+
+    private void post(String delta, LocalDate day) {
+        accountRepository.postBalance(accountId, userId, new BigDecimal(delta));
+        backdateLastPosting(day);
+    }
+
+    private void adjustTo(String target, LocalDate day) {
+        accountRepository.adjustBalanceTo(accountId, userId, new BigDecimal(target));
+        backdateLastPosting(day);
+    }
+
+    private void backdateLastPosting(LocalDate day) {
+        jdbcTemplate.update("UPDATE account_postings SET posted_at = ? WHERE account_id = ? " +
+                "AND seq = (SELECT journal_seq FROM accounts WHERE id = ?)", at(day), accountId, accountId);
+    }
+
+    private static Timestamp at(LocalDate day) {
+        return Timestamp.valueOf(day.atTime(12, 0));
+    }
+
+    private static BalanceHistory.Point point(LocalDate period, String net, String closing) {
+        return new BalanceHistory.Point(period, new BigDecimal(net), new BigDecimal(closing));
+    }
+
+    private static void assertPoints(BalanceHistory history, List<BalanceHistory.Point> expected) {
+        assertEquals(expected.size(), history.points().size(), "points");
+        for (int i = 0; i < expected.size(); i++) {
+            BalanceHistory.Point point = history.points().get(i);
+            assertEquals(expected.get(i).period(), point.period());
+            assertEquals(0, expected.get(i).net().compareTo(point.net()), "net");
+            assertEquals(0, expected.get(i).closingBalance().compareTo(point.closingBalance()), "closing");
+        }
+    }
+}
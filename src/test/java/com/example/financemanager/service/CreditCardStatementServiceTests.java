@@ -0,0 +1,61 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class CreditCardStatementServiceTests {
+
+    @Test
+    void cycleStartIsTheStartDayOnOrBeforeTheDate() {
+        assertEquals(LocalDate.of(2026, 3, 15), CreditCardStatementService.cycleStart(15, LocalDate.of(2026, 3, 15)));
+        assertEquals(LocalDate.of(2026, 3, 15), CreditCardStatementService.cycleStart(15, LocalDate.of(2026, 4, 14)));
+        assertEquals(LocalDate.of(2025, 12, 15), CreditCardStatementService.cycleStart(15, LocalDate.of(2026, 1, 3)));
+    }
+
+    @Test
+    void cycleStartClampsToShortMonths() {
+        assertEquals(LocalDate.of(2026, 1, 31), CreditCardStatementService.cycleStart(31, LocalDate.of(2026, 2, 27)));
+        // The clamped day itself starts the February cycle
+        assertEquals(LocalDate.of(2026, 2, 28), CreditCardStatementService.cycleStart(31, LocalDate.of(2026, 2, 28)));
+        assertEquals(LocalDate.of(2026, 2, 28), CreditCardStatementService.cycleStart(31, LocalDate.of(2026, 3, 30)));
+        assertEquals(LocalDate.of(2028, 2, 29), CreditCardStatementService.cycleStart(30, LocalDate.of(2028, 3, 1)));
+    }
+
+    @Test
+    void cycleEndIsTheDayBeforeTheNextStart() {
+        assertEquals(LocalDate.of(2026, 4, 14), CreditCardStatementService.cycleEnd(15, LocalDate.of(2026, 3, 20)));
+        assertEquals(LocalDate.of(2026, 2, 27), CreditCardStatementService.cycleEnd(31, LocalDate.of(2026, 1, 31)));
+        assertEquals(LocalDate.of(2026, 3, 30), CreditCardStatementService.cycleEnd(31, LocalDate.of(2026, 2, 28)));
+        assertEquals(LocalDate.of(2026, 12, 31), CreditCardStatementService.cycleEnd(1, LocalDate.of(2026, 12, 1)));
+    }
+
+    @Test
+    void consecutiveCyclesLeaveNoGaps() {
+        for (int day = 1; day <= 31; day++) {
+            LocalDate start = CreditCardStatementService.cycleStart(day, LocalDate.of(2025, 1, 1));
+            for (int i = 0; i < 40; i++) {
+                LocalDate end = CreditCardStatementService.cycleEnd(day, start);
+                LocalDate next = end.plusDays(1);
+                assertEquals(next, CreditCardStatementService.cycleStart(day, next), "day " + day + " after " + end);
+                start = next;
+            }
+        }
+    }
+
+    @Test
+    void dueDateIsTheFirstDueDayAfterThePeriod() {
+        assertEquals(LocalDate.of(2026, 4, 20), CreditCardStatementService.dueDate(20, LocalDate.of(2026, 4, 14)));
+        assertEquals(LocalDate.of(2026, 5, 10), CreditCardStatementService.dueDate(10, LocalDate.of(2026, 4, 14)));
+        // Never on the period's last day itself
+        assertEquals(LocalDate.of(2026, 5, 14), CreditCardStatementService.dueDate(14, LocalDate.of(2026, 4, 14)));
+    }
+
+    @Test
+    void dueDateClampsToShortMonths() {
+        assertEquals(LocalDate.of(2026, 2, 28), CreditCardStatementService.dueDate(31, LocalDate.of(2026, 1, 31)));
+        assertEquals(LocalDate.of(2026, 4, 30), CreditCardStatementService.dueDate(31, LocalDate.of(2026, 4, 14)));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ExpiringCacheTests {
+
+    private static final long HOUR = 3_600_000;
+
+    @Test
+    void returnsLiveEntriesAndCountsHitsAndMisses() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10);
+        cache.put("a", 1, System.currentTimeMillis() + HOUR);
+
+        assertEquals(1, cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(1, cache.hitCount());
+        assertEquals(1, cache.missCount());
+    }
+
+    @Test
+    void expiredEntriesAreMissesAndDroppedOnRead() throws InterruptedException {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10);
+        cache.put("a", 1, System.currentTimeMillis() + 20);
+        Thread.sleep(40);
+
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void alreadyExpiredPutIsIgnored() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10);
+        cache.put("a", 1, System.currentTimeMillis() - 1);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void fullCacheDropsExpiredEntriesBeforeLiveOnes() throws InterruptedException {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10);
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < 5; i++) {
+            cache.put("short-" + i, i, now + 20);
+        }
+        for (int i = 0; i < 5; i++) {
+            cache.put("long-" + i, i, now + HOUR);
+        }
+        Thread.sleep(40);
+
+        cache.put("new", 0, System.currentTimeMillis() + HOUR);
+
+        assertEquals(6, cache.size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, cache.get("long-" + i));
+        }
+        assertEquals(0, cache.get("new"));
+    }
+
+    @Test
+    void fullCacheOfLiveEntriesEvictsTheSoonestToExpire() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(10);
+        long now = System.currentTimeMillis();
+        // Key i expires i minutes from now, inserted in reverse so insertion order is not expiry order
+        for (int i = 10; i >= 1; i--) {
+            cache.put(i, i, now + i * 60_000L);
+        }
+
+        cache.put(11, 11, now + HOUR);
+
+        // Down to 90% of capacity, then the new entry
+        assertEquals(10, cache.size());
+        assertNull(cache.get(1));
+        for (int i = 2; i <= 11; i++) {
+            assertEquals(i, cache.get(i));
+        }
+    }
+
+    @Test
+    void replacingAKeyDoesNotEvict() {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(2);
+        long expiry = System.currentTimeMillis() + HOUR;
+        cache.put(1, 1, expiry);
+        cache.put(2, 2, expiry);
+
+        cache.put(2, 20, expiry);
+
+        assertEquals(1, cache.get(1));
+        assertEquals(20, cache.get(2));
+    }
+
+    @Test
+    void invalidateAndClearRemoveEntries() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(10);
+        long expiry = System.currentTimeMillis() + HOUR;
+        cache.put("a", 1, expiry);
+        cache.put("b", 2, expiry);
+
+        cache.invalidate("a");
+        assertNull(cache.get("a"));
+        assertEquals(1, cache.size());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringCache<String, String>(0));
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.entities.AccountEntity;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class IdempotencyServiceTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private IdempotencyKeyPurgeJob purgeJob;
+
+    private TestData data;
+    private UUID userId;
+    private UUID accountId;
+    private UUID categoryId;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        accountId = data.account(userId, AccountEntity.AccountType.SAVINGS, "100.00");
+        categoryId = data.category(userId, "EXPENSE", "Groceries", null);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void aRetryReplaysTheFirstResponseWithoutWritingAgain() throws Exception {
+        String first = postExpense("key-1", expense("Market", "30.00"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER))
+                .andReturn().getResponse().getContentAsString();
+
+        String retried = postExpense("key-1", expense("Market", "30.00"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(IdempotencyService.REPLAYED_HEADER, "true"))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(first, retried);
+        assertEquals(List.of(UUID.fromString(JsonPath.read(first, "$.id"))), jdbcTemplate.queryForList(
+                "SELECT id FROM expenses WHERE user_id = ?", UUID.class, userId));
+        assertEquals(0, new BigDecimal("70.00").compareTo(data.balance(accountId)));
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM account_postings WHERE account_id = ?", Integer.class, accountId));
+    }
+
+    @Test
+    void aKeyCannotBeReusedForADifferentRequest() throws Exception {
+        postExpense("key-1", expense("Market", "30.00")).andExpect(status().isOk());
+
+        postExpense("key-1", expense("Market", "31.00")).andExpect(status().isUnprocessableContent());
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM expenses WHERE user_id = ?", Integer.class, userId));
+        assertEquals(0, new BigDecimal("70.00").compareTo(data.balance(accountId)));
+    }
+
+    @Test
+    void anExpiredKeyIsClaimedAfreshAndPurgedOnce() throws Exception {
+        // Left over from an earlier request that has since expired
+        storedKey("old-key", "0".repeat(64), Instant.now().minus(1, ChronoUnit.MINUTES));
+
+        postExpense("old-key", expense("Market", "30.00"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(0, new BigDecimal("70.00").compareTo(data.balance(accountId)));
+
+        storedKey("stale-key", "0".repeat(64), Instant.now().minus(1, ChronoUnit.MINUTES));
+        purgeJob.purge();
+
+        // The reclaimed key is live again; only the expired one is gone
+        assertEquals(List.of("old-key"), jdbcTemplate.queryForList(
+                "SELECT idempotency_key FROM idempotency_keys WHERE user_id = ?", String.class, userId));
+    }
+
+    private void storedKey(String key, String requestHash, Instant expiresAt) {
+        jdbcTemplate.update("INSERT INTO idempotency_keys (id, user_id, idempotency_key, request_hash, " +
+                "response_body, created_at, expires_at) VALUES (?, ?, ?, ?, '{}', ?, ?)",
+                UUID.randomUUID(), userId, key, requestHash,
+                Timestamp.from(expiresAt.minus(1, ChronoUnit.DAYS)), Timestamp.from(expiresAt));
+    }
+
+    private ResultActions postExpense(String key, String body) throws Exception {
+        return mockMvc.perform(post("/expenses").with(user(data.principal(userId)))
+                .header(IdempotencyService.HEADER, key)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body));
+    }
+
+    private String expense(String name, String amount) {
+        return "{\"name\":\"" + name + "\",\"amount\":" + amount + ",\"date\":\"2026-09-01\"," +
+                "\"categoryId\":\"" + categoryId + "\",\"accountId\":\"" + accountId + "\"}";
+    }
+}
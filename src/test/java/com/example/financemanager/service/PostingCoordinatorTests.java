@@ -0,0 +1,159 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.repositories.AccountRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class PostingCoordinatorTests {
+
+    private final UUID userId = UUID.randomUUID();
+    private final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+    private AccountRepository accountRepository;
+    private PostingCoordinator coordinator;
+
+    @BeforeEach
+    void createCoordinator() {
+        accountRepository = mock(AccountRepository.class);
+        coordinator = coordinator(1024, 5000);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        executor.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void postAllPostsEveryDelta() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+
+        coordinator.postAll(Map.of(a, BigDecimal.ONE, b, BigDecimal.TEN), userId);
+
+        verify(accountRepository).postBalance(a, userId, BigDecimal.ONE);
+        verify(accountRepository).postBalance(b, userId, BigDecimal.TEN);
+    }
+
+    @Test
+    void timesOutWithServiceUnavailableWhileTheStripeIsHeld() throws Exception {
+        coordinator = coordinator(1, 100);
+        UUID account = UUID.randomUUID();
+        CountDownLatch posting = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            posting.countDown();
+            release.await();
+            return null;
+        }).when(accountRepository).postBalance(any(), any(), any());
+
+        Future<?> holder = executor.submit(() -> coordinator.post(account, userId, BigDecimal.ONE));
+        assertTrue(posting.await(5, TimeUnit.SECONDS));
+
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> coordinator.post(account, userId, BigDecimal.ONE));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE, e.getStatusCode());
+
+        release.countDown();
+        holder.get(5, TimeUnit.SECONDS);
+        coordinator.post(account, userId, BigDecimal.ONE);
+    }
+
+    @Test
+    void insideATransactionTheStripeIsHeldUntilCompletion() throws Exception {
+        coordinator = coordinator(1, 100);
+        UUID account = UUID.randomUUID();
+
+        TransactionSynchronizationManager.initSynchronization();
+        coordinator.post(account, userId, BigDecimal.ONE);
+
+        Future<?> blocked = executor.submit(() -> coordinator.post(account, userId, BigDecimal.ONE));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> blocked.get(5, TimeUnit.SECONDS));
+        assertEquals(HttpStatus.SERVICE_UNAVAILABLE,
+                assertInstanceOf(ResponseStatusException.class, e.getCause()).getStatusCode());
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(s -> s.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        executor.submit(() -> coordinator.post(account, userId, BigDecimal.ONE)).get(5, TimeUnit.SECONDS);
+        verify(accountRepository, times(2)).postBalance(account, userId, BigDecimal.ONE);
+    }
+
+    @Test
+    void multiAccountPostingsInOppositeOrderDoNotDeadlock() throws Exception {
+        // Bounded lock timeout: a deadlock would surface as a 503 rather than hang the test
+        coordinator = coordinator(1024, 2000);
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        doAnswer(invocation -> {
+            Thread.yield();
+            return null;
+        }).when(accountRepository).postBalance(any(), any(), any());
+
+        Map<UUID, BigDecimal> forward = new LinkedHashMap<>();
+        forward.put(a, BigDecimal.ONE);
+        forward.put(b, BigDecimal.ONE);
+        Map<UUID, BigDecimal> backward = new LinkedHashMap<>();
+        backward.put(b, BigDecimal.ONE);
+        backward.put(a, BigDecimal.ONE);
+
+        Future<?> first = executor.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                coordinator.postAll(forward, userId);
+            }
+        });
+        Future<?> second = executor.submit(() -> {
+            for (int i = 0; i < 2000; i++) {
+                coordinator.postAll(backward, userId);
+            }
+        });
+        first.get(30, TimeUnit.SECONDS);
+        second.get(30, TimeUnit.SECONDS);
+
+        verify(accountRepository, times(4000)).postBalance(a, userId, BigDecimal.ONE);
+    }
+
+    @Test
+    void lockRequiresATransaction() {
+        assertThrows(IllegalStateException.class, () -> coordinator.lock(List.of(UUID.randomUUID())));
+    }
+
+    private PostingCoordinator coordinator(int stripeCount, long lockTimeoutMs) {
+        PostingCoordinator created = new PostingCoordinator(accountRepository);
+        ReflectionTestUtils.setField(created, "stripeCount", stripeCount);
+        ReflectionTestUtils.setField(created, "lockTimeoutMs", lockTimeoutMs);
+        created.init();
+        return created;
+    }
+}
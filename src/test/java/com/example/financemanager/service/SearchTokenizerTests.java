@@ -0,0 +1,72 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+// Expected tokens are what to_tsvector('simple', ...) produces for the same text
+class SearchTokenizerTests {
+
+    @Test
+    void lowerCasesAndSplitsOnPunctuationAndSpace() {
+        assertEquals(List.of("coffee", "shop", "x2", "ab", "cd"), SearchTokenizer.tokenize("Coffee, SHOP! x2 ab_cd"));
+    }
+
+    @Test
+    void keepsNonAsciiLetters() {
+        assertEquals(List.of("café", "münchen"), SearchTokenizer.tokenize("Café München"));
+    }
+
+    @Test
+    void keepsDecimalsAndVersionsWhole() {
+        assertEquals(List.of("12.50", "3.14.15"), SearchTokenizer.tokenize("12.50 3.14.15"));
+        // A number followed by a unit splits as the parser does
+        assertEquals(List.of("1.5", "kg"), SearchTokenizer.tokenize("1.5kg"));
+        // Thousands separators are not part of a number
+        assertEquals(List.of("1", "000"), SearchTokenizer.tokenize("1,000"));
+    }
+
+    @Test
+    void keepsHostAndPathLikeWordsWhole() {
+        assertEquals(List.of("foo.bar", "rent/utilities", "10/12", "v1.2"),
+                SearchTokenizer.tokenize("foo.bar rent/utilities 10/12 v1.2"));
+    }
+
+    @Test
+    void sentenceFullStopsDoNotJoinWords() {
+        assertEquals(List.of("end", "mr", "smith", "c", "d"), SearchTokenizer.tokenize("end. Mr. Smith c..d"));
+    }
+
+    @Test
+    void hyphenatedWordsYieldTheWholeWordThenItsParts() {
+        assertEquals(List.of("co-op-shop", "co", "op", "shop"), SearchTokenizer.tokenize("Co-op-shop"));
+        assertEquals(List.of("über-cool", "über", "cool"), SearchTokenizer.tokenize("über-cool"));
+    }
+
+    @Test
+    void hyphensBetweenNumbersSplitAndSignsAreDropped() {
+        assertEquals(List.of("12", "50", "x", "2", "5"), SearchTokenizer.tokenize("12-50 x-2 -5"));
+    }
+
+    @Test
+    void nullAndBlankHaveNoTokens() {
+        assertEquals(List.of(), SearchTokenizer.tokenize(null));
+        assertEquals(List.of(), SearchTokenizer.tokenize("  ,;  "));
+    }
+
+    @Test
+    void prefixQueryRequiresEveryWord() {
+        assertEquals("coffee:* & sh:*", SearchTokenizer.toPrefixTsQuery("Coffee sh"));
+        assertEquals("12.5:*", SearchTokenizer.toPrefixTsQuery("12.5"));
+    }
+
+    @Test
+    void prefixQueryCannotCarryTsqueryOperators() {
+        assertEquals("a:* & b:* & c:*", SearchTokenizer.toPrefixTsQuery("a & !b | (c:*)"));
+        assertNull(SearchTokenizer.toPrefixTsQuery("&|!():*"));
+        assertNull(SearchTokenizer.toPrefixTsQuery(null));
+    }
+}
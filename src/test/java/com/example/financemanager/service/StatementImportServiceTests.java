@@ -0,0 +1,126 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.entities.AccountEntity;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@SpringBootTest
+class StatementImportServiceTests {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private StatementImportService importService;
+
+    @Test
+    void statementsOverMaxRowsAreRejectedWhole() {
+        TestData data = new TestData(jdbcTemplate);
+        UUID userId = data.user();
+        Object maxRows = ReflectionTestUtils.getField(importService, "maxRows");
+        try {
+            UUID accountId = data.account(userId, AccountEntity.AccountType.SAVINGS, "100.00");
+            ReflectionTestUtils.setField(importService, "maxRows", 3L);
+            String csv = """
+                    date,amount,name
+                    2026-09-01,-1.00,A
+                    2026-09-02,-2.00,B
+                    2026-09-03,4.00,C
+                    2026-09-04,-8.00,D
+                    """;
+
+            ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                    () -> importCsv(userId, accountId, csv));
+
+            assertEquals(HttpStatus.CONTENT_TOO_LARGE, e.getStatusCode());
+            assertEquals(0, jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM expenses WHERE account_id = ?", Integer.class, accountId));
+            assertEquals(0, new BigDecimal("100.00").compareTo(data.balance(accountId)));
+
+            // At the limit the same statement goes through
+            importCsv(userId, accountId, csv.substring(0, csv.lastIndexOf("2026-09-04")));
+            assertEquals(0, new BigDecimal("101.00").compareTo(data.balance(accountId)));
+        } finally {
+            ReflectionTestUtils.setField(importService, "maxRows", maxRows);
+            data.deleteUser(userId);
+        }
+    }
+
+    @Test
+    void rowsWithABankIdHashByTheIdAlone() {
+        StatementImportService.RowHasher hasher = new StatementImportService.RowHasher();
+
+        String first = hasher.hash(row(1, "2026-09-01", "-5.00", "Coffee", "FIT-1"));
+        String edited = hasher.hash(row(9, "2026-09-02", "-6.00", "Coffee (edited)", "FIT-1"));
+
+        assertEquals(first, edited);
+        assertNotEquals(first, hasher.hash(row(1, "2026-09-01", "-5.00", "Coffee", "FIT-2")));
+    }
+
+    @Test
+    void identicalRowsAreToldApartByOccurrence() {
+        StatementImportService.RowHasher hasher = new StatementImportService.RowHasher();
+
+        String first = hasher.hash(row(2, "2026-09-01", "-5.00", "Coffee", null));
+        String second = hasher.hash(row(3, "2026-09-01", "-5", "Coffee", null));
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    void occurrencesCountOverTheWholeImportWhateverTheOrder() {
+        List<StatementParser.Row> sorted = List.of(
+                row(2, "2026-09-01", "-5.00", "Coffee", null),
+                row(3, "2026-09-01", "-5.00", "Coffee", null),
+                row(4, "2026-09-02", "-8.00", "Lunch", null));
+        // Same rows with another date in between the duplicates, as unsorted exports have them
+        List<StatementParser.Row> unsorted = List.of(
+                row(2, "2026-09-01", "-5.00", "Coffee", null),
+                row(3, "2026-09-02", "-8.00", "Lunch", null),
+                row(4, "2026-09-01", "-5.00", "Coffee", null));
+
+        assertEquals(hashes(sorted).stream().sorted().toList(), hashes(unsorted).stream().sorted().toList());
+        assertEquals(3, hashes(unsorted).stream().distinct().count());
+    }
+
+    @Test
+    void hashesAreStableAcrossImports() {
+        List<StatementParser.Row> rows = List.of(
+                row(2, "2026-09-01", "-5.00", "Coffee", null),
+                row(3, "2026-09-01", "-5.00", "Coffee", null));
+
+        assertEquals(hashes(rows), hashes(rows));
+    }
+
+    private void importCsv(UUID userId, UUID accountId, String csv) {
+        importService.importStatement(userId, accountId,
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                StatementParser.Format.CSV, null, null, null);
+    }
+
+    private static List<String> hashes(List<StatementParser.Row> rows) {
+        StatementImportService.RowHasher hasher = new StatementImportService.RowHasher();
+        return rows.stream().map(hasher::hash).toList();
+    }
+
+    private static StatementParser.Row row(long line, String date, String amount, String name, String externalId) {
+        return new StatementParser.Row(line, LocalDate.parse(date), new BigDecimal(amount), name, null, externalId);
+    }
+}
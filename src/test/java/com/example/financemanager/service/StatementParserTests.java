@@ -0,0 +1,233 @@
+package com.example.financemanager.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StatementParserTests {
+
+    private static final DateTimeFormatter ISO = DateTimeFormatter.ISO_LOCAL_DATE;
+
+    @Test
+    void formatComesFromTheParameterOrTheFileExtension() {
+        assertEquals(StatementParser.Format.OFX, StatementParser.Format.of(" ofx ", "statement.csv"));
+        assertEquals(StatementParser.Format.OFX, StatementParser.Format.of(null, "Statement.QFX"));
+        assertEquals(StatementParser.Format.CSV, StatementParser.Format.of("", "statement.txt"));
+        assertEquals(StatementParser.Format.CSV, StatementParser.Format.of(null, null));
+        assertThrows(ResponseStatusException.class, () -> StatementParser.Format.of("xls", null));
+    }
+
+    @Test
+    void csvFindsColumnsByHeaderName() throws IOException {
+        List<StatementParser.Row> rows = csv("""
+                Posted Date,Amount,Payee,Memo
+                2026-09-01,-12.50,Coffee Shop,latte
+                2026-09-02,1000,Employer,
+                """);
+
+        assertEquals(2, rows.size());
+        StatementParser.Row first = rows.get(0);
+        assertEquals(2, first.line());
+        assertEquals(LocalDate.of(2026, 9, 1), first.date());
+        assertEquals(new BigDecimal("-12.50"), first.amount());
+        assertEquals("Coffee Shop", first.name());
+        assertEquals("latte", first.description());
+        assertNull(first.externalId());
+        assertNull(rows.get(1).description());
+    }
+
+    @Test
+    void csvQuotedFieldsKeepDelimitersQuotesAndLineBreaks() throws IOException {
+        List<StatementParser.Row> rows = csv("""
+                date,amount,name,notes\r
+                2026-09-01,"-1,234.50","Smith, ""Jr"" & Co","two\r
+                lines"\r
+                2026-09-03,5,After,\r
+                """);
+
+        assertEquals(2, rows.size());
+        assertEquals(new BigDecimal("-1234.50"), rows.get(0).amount());
+        assertEquals("Smith, \"Jr\" & Co", rows.get(0).name());
+        assertEquals("two\r\nlines", rows.get(0).description());
+        // Line numbers count physical lines, so the second record starts on line 4
+        assertEquals(4, rows.get(1).line());
+    }
+
+    @Test
+    void csvDetectsSemicolonAndTabDelimiters() throws IOException {
+        List<StatementParser.Row> semicolon = csv("""
+                date;amount;description
+                2026-09-01;-12,50;Bakery
+                """);
+        List<StatementParser.Row> tab = csv("date\tamount\tdescription\n2026-09-01\t7\tKiosk\n");
+
+        assertEquals(new BigDecimal("-12.50"), semicolon.get(0).amount());
+        assertEquals("Bakery", semicolon.get(0).name());
+        assertEquals(new BigDecimal("7"), tab.get(0).amount());
+        assertEquals("Kiosk", tab.get(0).name());
+    }
+
+    @Test
+    void csvDebitAndCreditColumnsBecomeOneSignedAmount() throws IOException {
+        List<StatementParser.Row> rows = csv("""
+                Date,Description,Debit,Credit
+                2026-09-01,Rent,800.00,
+                2026-09-02,Refund,,25.00
+                """);
+
+        assertEquals(new BigDecimal("-800.00"), rows.get(0).amount());
+        assertEquals(new BigDecimal("25.00"), rows.get(1).amount());
+    }
+
+    @Test
+    void csvAmountsAcceptParenthesesAndCurrencySymbols() throws IOException {
+        List<StatementParser.Row> rows = csv("""
+                date,amount,name
+                2026-09-01,(12.00),A
+                2026-09-01,"$1,234.50",B
+                2026-09-01,"€9,99",C
+                """);
+
+        assertEquals(new BigDecimal("-12.00"), rows.get(0).amount());
+        assertEquals(new BigDecimal("1234.50"), rows.get(1).amount());
+        assertEquals(new BigDecimal("9.99"), rows.get(2).amount());
+    }
+
+    @Test
+    void csvUsesTheGivenDateFormatAndSkipsAByteOrderMarkAndBlankLines() throws IOException {
+        List<StatementParser.Row> rows = new ArrayList<>();
+        StatementParser.parse(new BufferedReader(new StringReader("\uFEFFdate,amount,name\n\n01/09/2026,3,X\n")),
+                StatementParser.Format.CSV, DateTimeFormatter.ofPattern("dd/MM/yyyy"), rows::add);
+
+        assertEquals(1, rows.size());
+        assertEquals(LocalDate.of(2026, 9, 1), rows.get(0).date());
+    }
+
+    @Test
+    void csvErrorsNameTheLine() {
+        assertBadRequest("Line 3: unreadable amount 'abc'", """
+                date,amount,name
+                2026-09-01,1,A
+                2026-09-02,abc,B
+                """);
+        assertBadRequest("Line 2: unreadable date '2026-13-01'", """
+                date,amount,name
+                2026-13-01,1,A
+                """);
+        assertBadRequest("Line 2: missing amount", """
+                date,amount,name
+                2026-09-01,,A
+                """);
+        assertBadRequest("Line 2: unterminated quoted field", """
+                date,amount,name
+                2026-09-01,1,"A
+                """);
+    }
+
+    @Test
+    void csvHeaderMustNameTheRequiredColumns() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> csv("""
+                when,amount,name
+                2026-09-01,1,A
+                """));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+    }
+
+    @Test
+    void ofxSgmlWithoutClosingTags() throws IOException {
+        List<StatementParser.Row> rows = ofx("""
+                OFXHEADER:100
+                DATA:OFXSGML
+
+                <OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>
+                <STMTTRN>
+                <TRNTYPE>DEBIT
+                <DTPOSTED>20260901120000[-5:EST]
+                <TRNAMT>-42.10
+                <FITID>A-1
+                <NAME>GROCER
+                <MEMO>weekly shop
+                </STMTTRN>
+                <STMTTRN>
+                <DTPOSTED>20260902
+                <TRNAMT>100
+                <FITID>A-2
+                <MEMO>Transfer in
+                </STMTTRN>
+                </BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>
+                """);
+
+        assertEquals(2, rows.size());
+        StatementParser.Row first = rows.get(0);
+        assertEquals(LocalDate.of(2026, 9, 1), first.date());
+        assertEquals(new BigDecimal("-42.10"), first.amount());
+        assertEquals("GROCER", first.name());
+        assertEquals("weekly shop", first.description());
+        assertEquals("A-1", first.externalId());
+        // Without NAME or PAYEE the memo becomes the name
+        assertEquals("Transfer in", rows.get(1).name());
+        assertNull(rows.get(1).description());
+    }
+
+    @Test
+    void ofxXmlWithClosingTagsAndEntities() throws IOException {
+        List<StatementParser.Row> rows = ofx("""
+                <?xml version="1.0" encoding="UTF-8"?>
+                <?OFX OFXHEADER="200" VERSION="220"?>
+                <OFX>
+                  <STMTTRN>
+                    <DTPOSTED>20260905</DTPOSTED>
+                    <TRNAMT>-9.99</TRNAMT>
+                    <FITID>X1</FITID>
+                    <PAYEE>Tom &amp; Jerry&apos;s</PAYEE>
+                  </STMTTRN>
+                </OFX>
+                """);
+
+        assertEquals(1, rows.size());
+        assertEquals("Tom & Jerry's", rows.get(0).name());
+        assertEquals(new BigDecimal("-9.99"), rows.get(0).amount());
+        assertEquals("X1", rows.get(0).externalId());
+    }
+
+    @Test
+    void ofxTransactionWithoutDateIsRejected() {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class,
+                () -> ofx("<STMTTRN><TRNAMT>1</TRNAMT></STMTTRN>"));
+        assertTrue(e.getReason().endsWith("missing DTPOSTED"), e.getReason());
+    }
+
+    private static List<StatementParser.Row> csv(String text) throws IOException {
+        return parse(text, StatementParser.Format.CSV);
+    }
+
+    private static List<StatementParser.Row> ofx(String text) throws IOException {
+        return parse(text, StatementParser.Format.OFX);
+    }
+
+    private static List<StatementParser.Row> parse(String text, StatementParser.Format format) throws IOException {
+        List<StatementParser.Row> rows = new ArrayList<>();
+        StatementParser.parse(new BufferedReader(new StringReader(text)), format, ISO, rows::add);
+        return rows;
+    }
+
+    private static void assertBadRequest(String reason, String text) {
+        ResponseStatusException e = assertThrows(ResponseStatusException.class, () -> csv(text));
+        assertEquals(HttpStatus.BAD_REQUEST, e.getStatusCode());
+        assertEquals(reason, e.getReason());
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.entities.AccountEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.webmvc.test.autoconfigure.AutoConfigureMockMvc;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class TransactionExportServiceTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionExportService exportService;
+
+    private TestData data;
+    private UUID userId;
+    private UUID accountId;
+    private UUID categoryId;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        accountId = data.account(userId, AccountEntity.AccountType.SAVINGS, "0");
+        categoryId = data.category(userId, "EXPENSE", "Food, drinks", null);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void csvHasAHeaderThenRowsNewestFirstWithinTheDateRange() {
+        UUID older = data.expense(userId, accountId, categoryId, "Lunch", "12.50", LocalDate.of(2026, 9, 1));
+        UUID newer = data.expense(userId, accountId, categoryId, "=cmd()", "3.00", LocalDate.of(2026, 9, 2));
+        data.expense(userId, accountId, categoryId, "Outside", "1.00", LocalDate.of(2026, 10, 1));
+
+        List<String> lines = export(TransactionExportService.Format.CSV,
+                LocalDate.of(2026, 9, 1), LocalDate.of(2026, 9, 30));
+
+        assertEquals(List.of(
+                "id,date,name,description,amount,categoryId,categoryName,accountId",
+                newer + ",2026-09-02,'=cmd(),,3.00," + categoryId + ",\"Food, drinks\"," + accountId,
+                older + ",2026-09-01,Lunch,,12.50," + categoryId + ",\"Food, drinks\"," + accountId), lines);
+    }
+
+    @Test
+    void ndjsonWritesOneObjectPerLine() {
+        UUID id = data.expense(userId, accountId, categoryId, "Say \"hi\"", "7.25", LocalDate.of(2026, 9, 1));
+        data.expense(userId, accountId, categoryId, "Second", "1.00", LocalDate.of(2026, 8, 1));
+
+        List<String> lines = export(TransactionExportService.Format.NDJSON, null, null);
+
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).startsWith("{\"id\":\"" + id + "\""), lines.get(0));
+        assertTrue(lines.get(0).contains("\"name\":\"Say \\\"hi\\\"\""), lines.get(0));
+        assertTrue(lines.get(0).contains("\"amount\":7.25"), lines.get(0));
+        assertTrue(lines.get(1).contains("\"name\":\"Second\""), lines.get(1));
+    }
+
+    @Test
+    void endpointStreamsTheExportAsAnAttachment() throws Exception {
+        UUID salary = data.category(userId, "INCOME", "Salary", null);
+        data.income(userId, accountId, salary, "Salary", "100.00", LocalDate.of(2026, 9, 1));
+
+        MvcResult started = mockMvc.perform(get("/incomes/export").param("format", "csv")
+                        .with(user(data.principal(userId))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"incomes.csv\""))
+                .andExpect(content().string(containsString(",Salary,,100.00,")));
+    }
+
+    @Test
+    void unknownFormatIsABadRequest() throws Exception {
+        mockMvc.perform(get("/expenses/export").param("format", "xml").with(user(data.principal(userId))))
+                .andExpect(status().isBadRequest());
+    }
+
+    private List<String> export(TransactionExportService.Format format, LocalDate from, LocalDate to) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.exportExpenses(userId, from, to, format, out);
+        return out.toString(StandardCharsets.UTF_8).lines().toList();
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.dto.TransactionCursor;
+import com.example.financemanager.dto.TransactionView;
+import com.example.financemanager.entities.AccountEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+class TransactionFilterServiceTests {
+
+    private static final LocalDate SEPT_1 = LocalDate.of(2026, 9, 1);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionFilterService filterService;
+
+    private TestData data;
+    private UUID userId;
+    private UUID checking;
+    private UUID food;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        checking = data.account(userId, AccountEntity.AccountType.SAVINGS, "0");
+        food = data.category(userId, "EXPENSE", "Food", null);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void dateRangeAndMonthSelectInclusiveBounds() {
+        UUID first = expense(food, checking, "A", SEPT_1);
+        UUID last = expense(food, checking, "B", LocalDate.of(2026, 9, 30));
+        expense(food, checking, "C", LocalDate.of(2026, 8, 31));
+        expense(food, checking, "D", LocalDate.of(2026, 10, 1));
+
+        assertEquals(Set.of(first, last), ids(new TransactionFilterService.Filter(
+                SEPT_1, LocalDate.of(2026, 9, 30), null, null, null)));
+        assertEquals(Set.of(first, last), ids(TransactionFilterService.Filter.of(
+                9, 2026, null, null, null, null, null)));
+    }
+
+    @Test
+    void categoryIncludesItsWholeSubtree() {
+        UUID groceries = data.category(userId, "EXPENSE", "Groceries", food);
+        UUID produce = data.category(userId, "EXPENSE", "Produce", groceries);
+        UUID transport = data.category(userId, "EXPENSE", "Transport", null);
+        UUID inFood = expense(food, checking, "Diner", SEPT_1);
+        UUID inProduce = expense(produce, checking, "Apples", SEPT_1);
+        expense(transport, checking, "Bus", SEPT_1);
+
+        assertEquals(Set.of(inFood, inProduce), ids(filter(food, null, null)));
+        assertEquals(Set.of(inProduce), ids(filter(groceries, null, null)));
+    }
+
+    @Test
+    void accountAndSearchNarrowTheListing() {
+        UUID savings = data.account(userId, AccountEntity.AccountType.SAVINGS, "0");
+        UUID sale = expense(food, checking, "Shoes 50% off", SEPT_1);
+        UUID described = expense(food, checking, "Dinner", SEPT_1);
+        jdbcTemplate.update("UPDATE expenses SET description = 'Birthday at the SHOE store' WHERE id = ?", described);
+        UUID elsewhere = expense(food, savings, "Shoes", SEPT_1);
+        expense(food, checking, "Price 500", SEPT_1);
+
+        assertEquals(Set.of(elsewhere), ids(filter(null, savings, null)));
+        assertEquals(Set.of(sale, described, elsewhere), ids(filter(null, null, "shoe")));
+        assertEquals(Set.of(sale, described), ids(filter(null, checking, "shoe")));
+        // % and _ in the search are literal characters, not wildcards
+        assertEquals(Set.of(sale), ids(filter(null, null, "50%")));
+        assertEquals(Set.of(), ids(filter(null, null, "5_0")));
+    }
+
+    @Test
+    void keysetPagesVisitEveryRowOnceAcrossDateTies() {
+        List<UUID> expected = new ArrayList<>();
+        List<UUID> sameDay = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            sameDay.add(expense(food, checking, "Tie " + i, SEPT_1));
+        }
+        UUID newer = expense(food, checking, "Newer", SEPT_1.plusDays(1));
+        UUID older = expense(food, checking, "Older", SEPT_1.minusDays(1));
+        expected.add(newer);
+        // Postgres orders uuids as unsigned bytes, which is their string order (UUID.compareTo is signed)
+        sameDay.sort(Comparator.comparing(UUID::toString).reversed());
+        expected.addAll(sameDay);
+        expected.add(older);
+
+        List<UUID> seen = new ArrayList<>();
+        TransactionCursor cursor = null;
+        for (int page = 0; page < 10; page++) {
+            List<TransactionView> rows = filterService.findExpenses(userId, filter(null, null, null), cursor, 3);
+            rows.forEach(row -> seen.add(row.id()));
+            if (rows.size() < 3) {
+                break;
+            }
+            TransactionView last = rows.get(rows.size() - 1);
+            cursor = new TransactionCursor(last.date(), last.id());
+        }
+
+        assertEquals(expected, seen);
+    }
+
+    private static TransactionFilterService.Filter filter(UUID categoryId, UUID accountId, String search) {
+        return new TransactionFilterService.Filter(null, null, categoryId, accountId, search);
+    }
+
+    private Set<UUID> ids(TransactionFilterService.Filter filter) {
+        List<UUID> ids = filterService.findExpenses(userId, filter, null, null).stream()
+                .map(TransactionView::id).toList();
+        return Set.copyOf(ids);
+    }
+
+    private UUID expense(UUID categoryId, UUID accountId, String name, LocalDate date) {
+        return data.expense(userId, accountId, categoryId, name, "1.00", date);
+    }
+}
@@ -0,0 +1,280 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.dto.TransactionView;
+import com.example.financemanager.entities.ExpenseEntity;
+import com.example.financemanager.entities.UserEntity;
+import com.example.financemanager.repositories.ExpenseRepository;
+import com.example.financemanager.repositories.IncomeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionSearchIndexTests {
+
+    private static final TransactionSearchIndex.Kind EXPENSE = TransactionSearchIndex.Kind.EXPENSE;
+
+    private final UUID userId = UUID.randomUUID();
+    private final List<TransactionView> rows = new ArrayList<>();
+
+    private ExpenseRepository expenseRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private TransactionSearchIndex index;
+
+    @BeforeEach
+    void createIndex() {
+        expenseRepository = mock(ExpenseRepository.class);
+        when(expenseRepository.findViewsByUserId(userId)).thenAnswer(invocation -> List.copyOf(rows));
+        meterRegistry = new SimpleMeterRegistry();
+        index = new TransactionSearchIndex(expenseRepository, mock(IncomeRepository.class), meterRegistry);
+        ReflectionTestUtils.setField(index, "enabled", true);
+        ReflectionTestUtils.setField(index, "maxBytes", 1L << 30);
+        ReflectionTestUtils.setField(index, "maxDocumentsPerUser", 1000);
+        ReflectionTestUtils.setField(index, "ttlMs", 600_000L);
+        index.init();
+    }
+
+    @AfterEach
+    void shutdown() {
+        index.shutdown();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void firstSearchMissesAndBuildsInTheBackground() throws InterruptedException {
+        rows.add(view("Coffee shop", null, "2026-09-01"));
+
+        assertNull(index.search(EXPENSE, userId, "cof", 10));
+        List<TransactionView> result = awaitSearch(userId, "cof");
+
+        assertEquals(List.of(rows.get(0)), result);
+        verify(expenseRepository, times(1)).findViewsByUserId(userId);
+    }
+
+    @Test
+    void everyWordMustPrefixAWordOfNameOrDescription() throws InterruptedException {
+        TransactionView latte = view("Coffee shop", "oat latte", "2026-09-01");
+        TransactionView beans = view("Coffee beans", null, "2026-09-02");
+        rows.addAll(List.of(latte, beans));
+        awaitSearch(userId, "x");
+
+        assertEquals(List.of(latte), index.search(EXPENSE, userId, "COF lat", 10));
+        assertEquals(List.of(beans, latte), index.search(EXPENSE, userId, "coffee", 10));
+        assertEquals(List.of(), index.search(EXPENSE, userId, "tea", 10));
+        assertEquals(List.of(), index.search(EXPENSE, userId, "  ", 10));
+    }
+
+    @Test
+    void nameMatchesComeFirstThenNewestFirst() throws InterruptedException {
+        TransactionView oldName = view("Rent", null, "2026-01-01");
+        TransactionView newName = view("Rent", null, "2026-03-01");
+        TransactionView newestDescription = view("Landlord", "rent for april", "2026-04-01");
+        rows.addAll(List.of(newestDescription, oldName, newName));
+        awaitSearch(userId, "x");
+
+        assertEquals(List.of(newName, oldName, newestDescription), index.search(EXPENSE, userId, "rent", 10));
+        assertEquals(List.of(newName, oldName), index.search(EXPENSE, userId, "rent", 2));
+    }
+
+    @Test
+    void sameDayTiesBreakByIdInPostgresOrder() throws InterruptedException {
+        // Descending as unsigned bytes, as Postgres orders uuids; a signed comparison would flip these
+        TransactionView high = view(UUID.fromString("80000000-0000-0000-0000-000000000000"), "Rent", "2026-09-01");
+        TransactionView low = view(UUID.fromString("10000000-0000-0000-0000-000000000000"), "Rent", "2026-09-01");
+        rows.addAll(List.of(low, high));
+        awaitSearch(userId, "x");
+
+        assertEquals(List.of(high, low), index.search(EXPENSE, userId, "rent", 10));
+    }
+
+    @Test
+    void writesOutsideATransactionApplyImmediately() throws InterruptedException {
+        awaitSearch(userId, "x");
+        ExpenseEntity expense = expense("Bakery", "2026-09-01");
+
+        index.onSaved(expense);
+        assertEquals(1, index.search(EXPENSE, userId, "bak", 10).size());
+
+        index.onDeleted(EXPENSE, userId, expense.getId());
+        assertEquals(List.of(), index.search(EXPENSE, userId, "bak", 10));
+    }
+
+    @Test
+    void writesInsideATransactionWaitForCommit() throws InterruptedException {
+        awaitSearch(userId, "x");
+        ExpenseEntity committed = expense("Bakery", "2026-09-01");
+        ExpenseEntity rolledBack = expense("Bakehouse", "2026-09-02");
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.onSaved(committed);
+        assertEquals(List.of(), index.search(EXPENSE, userId, "bak", 10));
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        TransactionSynchronizationManager.initSynchronization();
+        index.onSaved(rolledBack);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        List<TransactionView> result = index.search(EXPENSE, userId, "bak", 10);
+        assertEquals(1, result.size());
+        assertEquals(committed.getId(), result.get(0).id());
+    }
+
+    @Test
+    void invalidateDropsTheIndex() throws InterruptedException {
+        awaitSearch(userId, "x");
+
+        index.invalidate(EXPENSE, userId);
+
+        assertNull(index.search(EXPENSE, userId, "x", 10));
+    }
+
+    @Test
+    void usersOverTheDocumentLimitStayOnSql() throws InterruptedException {
+        ReflectionTestUtils.setField(index, "maxDocumentsPerUser", 1);
+        rows.add(view("One", null, "2026-09-01"));
+        rows.add(view("Two", null, "2026-09-02"));
+
+        // The oversized marker is a hit that still answers null, without another load
+        for (int i = 0; i < 100 && hits() == 0; i++) {
+            assertNull(index.search(EXPENSE, userId, "one", 10));
+            Thread.sleep(20);
+        }
+        assertEquals(1.0, hits());
+        assertNull(index.search(EXPENSE, userId, "one", 10));
+        verify(expenseRepository, times(1)).findViewsByUserId(userId);
+    }
+
+    @Test
+    void leastRecentlyUsedIndexesAreEvictedOverTheByteBudget() throws InterruptedException {
+        UUID otherUserId = UUID.randomUUID();
+        when(expenseRepository.findViewsByUserId(otherUserId))
+                .thenReturn(List.of(view("Other", null, "2026-09-01")));
+        rows.add(view("Mine", null, "2026-09-01"));
+        awaitSearch(userId, "x");
+        double oneIndex = meterRegistry.get("search.index.bytes").gauge().value();
+        assertTrue(oneIndex > 0);
+
+        // Room for one index only, so loading the second evicts the first
+        ReflectionTestUtils.setField(index, "maxBytes", (long) oneIndex + 100);
+        awaitSearch(otherUserId, "x");
+
+        // Checked in this order since the miss on the evicted index schedules its rebuild
+        assertEquals(1, index.search(EXPENSE, otherUserId, "other", 10).size());
+        assertNull(index.search(EXPENSE, userId, "mine", 10));
+    }
+
+    @Test
+    void concurrentWritesAndSearchesKeepTheIndexAndItsSizeConsistent() throws Exception {
+        awaitSearch(userId, "x");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            for (int writer = 0; writer < 2; writer++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 300; i++) {
+                        ExpenseEntity kept = expense("Bakery " + i, "2026-09-01");
+                        ExpenseEntity deleted = expense("Bakehouse " + i, "2026-09-02");
+                        index.onSaved(kept);
+                        index.onSaved(deleted);
+                        index.onDeleted(EXPENSE, userId, deleted.getId());
+                        synchronized (rows) {
+                            rows.add(TransactionView.of(kept));
+                        }
+                    }
+                }));
+            }
+            for (int reader = 0; reader < 2; reader++) {
+                tasks.add(executor.submit(() -> {
+                    for (int i = 0; i < 300; i++) {
+                        assertNotNull(index.search(EXPENSE, userId, "bak", 50));
+                    }
+                }));
+            }
+            for (Future<?> task : tasks) {
+                task.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(600, index.search(EXPENSE, userId, "bakery", 1000).size());
+        assertEquals(List.of(), index.search(EXPENSE, userId, "bakehouse", 1000));
+
+        // The incrementally settled size matches a fresh build over the same rows
+        double incremental = meterRegistry.get("search.index.bytes").gauge().value();
+        index.invalidate(EXPENSE, userId);
+        awaitSearch(userId, "x");
+        assertEquals(incremental, meterRegistry.get("search.index.bytes").gauge().value());
+    }
+
+    @Test
+    void disabledIndexNeverAnswers() {
+        ReflectionTestUtils.setField(index, "enabled", false);
+
+        assertNull(index.search(EXPENSE, userId, "x", 10));
+        verify(expenseRepository, times(0)).findViewsByUserId(userId);
+    }
+
+    private List<TransactionView> awaitSearch(UUID user, String query) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            List<TransactionView> result = index.search(EXPENSE, user, query, 10);
+            if (result != null) {
+                return result;
+            }
+            Thread.sleep(20);
+        }
+        List<TransactionView> result = index.search(EXPENSE, user, query, 10);
+        assertNotNull(result, "index was not built");
+        return result;
+    }
+
+    private double hits() {
+        return meterRegistry.get("search.index.lookups").tag("result", "hit").counter().count();
+    }
+
+    private ExpenseEntity expense(String name, String date) {
+        UserEntity user = new UserEntity();
+        user.setId(userId);
+        ExpenseEntity expense = new ExpenseEntity();
+        expense.setId(UUID.randomUUID());
+        expense.setUser(user);
+        expense.setName(name);
+        expense.setAmount(BigDecimal.TEN);
+        expense.setExpenseDate(LocalDate.parse(date));
+        return expense;
+    }
+
+    private static TransactionView view(String name, String description, String date) {
+        return new TransactionView(UUID.randomUUID(), name, description, BigDecimal.TEN, LocalDate.parse(date),
+                null, null, null);
+    }
+
+    private static TransactionView view(UUID id, String name, String date) {
+        return new TransactionView(id, name, null, BigDecimal.TEN, LocalDate.parse(date), null, null, null);
+    }
+}
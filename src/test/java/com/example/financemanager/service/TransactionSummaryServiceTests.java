@@ -0,0 +1,118 @@
+package com.example.financemanager.service;
+
+import com.example.financemanager.TestData;
+import com.example.financemanager.dto.ExpenseFilterDTO;
+import com.example.financemanager.dto.TransactionSummary;
+import com.example.financemanager.entities.AccountEntity;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+class TransactionSummaryServiceTests {
+
+    private static final LocalDate SEPT_1 = LocalDate.of(2026, 9, 1);
+    private static final LocalDate SEPT_2 = LocalDate.of(2026, 9, 2);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionSummaryService summaryService;
+
+    private TestData data;
+    private UUID userId;
+    private UUID card;
+    private UUID savings;
+    private UUID food;
+    private UUID travel;
+
+    @BeforeEach
+    void createUser() {
+        data = new TestData(jdbcTemplate);
+        userId = data.user();
+        card = data.account(userId, AccountEntity.AccountType.CREDIT_CARD, "0");
+        savings = data.account(userId, AccountEntity.AccountType.SAVINGS, "0");
+        food = data.category(userId, "EXPENSE", "Food", null);
+        travel = data.category(userId, "EXPENSE", "Travel", null);
+    }
+
+    @AfterEach
+    void deleteUser() {
+        data.deleteUser(userId);
+    }
+
+    @Test
+    void oneQueryReturnsOverallAndEveryBreakdown() {
+        data.expense(userId, card, food, "Lunch", "10.00", SEPT_1);
+        data.expense(userId, card, food, "Dinner", "30.00", SEPT_2);
+        data.expense(userId, savings, travel, "Train", "100.00", SEPT_2);
+
+        TransactionSummary summary = summaryService.summarizeExpenses(userId, new ExpenseFilterDTO());
+
+        assertGroup(summary.overall(), null, null, "140.00", 3, "10.00", "100.00");
+
+        assertEquals(2, summary.byCategory().size());
+        assertGroup(summary.byCategory().get(0), travel.toString(), "Travel", "100.00", 1, "100.00", "100.00");
+        assertGroup(summary.byCategory().get(1), food.toString(), "Food", "40.00", 2, "10.00", "30.00");
+
+        assertEquals(2, summary.byDay().size());
+        assertGroup(summary.byDay().get(0), "2026-09-01", null, "10.00", 1, "10.00", "10.00");
+        assertGroup(summary.byDay().get(1), "2026-09-02", null, "130.00", 2, "30.00", "100.00");
+
+        assertEquals(2, summary.byAccount().size());
+        assertEquals(List.of(savings.toString(), card.toString()),
+                summary.byAccount().stream().map(TransactionSummary.Group::key).toList());
+        assertEquals(0, new BigDecimal("40.00").compareTo(summary.byAccount().get(1).total()));
+    }
+
+    @Test
+    void summarizesOnlyWhatTheListingFilterSelects() {
+        UUID groceries = data.category(userId, "EXPENSE", "Groceries", food);
+        data.expense(userId, card, groceries, "Market", "25.00", SEPT_1);
+        data.expense(userId, card, travel, "Taxi", "40.00", SEPT_1);
+        data.expense(userId, card, food, "Cafe", "5.00", LocalDate.of(2026, 10, 1));
+
+        ExpenseFilterDTO filter = new ExpenseFilterDTO();
+        filter.setCategoryId(food);
+        filter.setMonth(9);
+        filter.setYear(2026);
+        TransactionSummary summary = summaryService.summarizeExpenses(userId, filter);
+
+        assertGroup(summary.overall(), null, null, "25.00", 1, "25.00", "25.00");
+        assertEquals(List.of(groceries.toString()),
+                summary.byCategory().stream().map(TransactionSummary.Group::key).toList());
+    }
+
+    @Test
+    void nothingMatchingGivesAnEmptyOverall() {
+        TransactionSummary summary = summaryService.summarizeIncomes(userId, new ExpenseFilterDTO());
+
+        assertEquals(0, summary.overall().count());
+        assertNull(summary.overall().total());
+        assertEquals(List.of(), summary.byCategory());
+        assertEquals(List.of(), summary.byDay());
+        assertEquals(List.of(), summary.byAccount());
+    }
+
+    private static void assertGroup(TransactionSummary.Group group, String key, String label, String total,
+            long count, String min, String max) {
+        assertEquals(key, group.key());
+        assertEquals(label, group.label());
+        assertEquals(0, new BigDecimal(total).compareTo(group.total()), "total");
+        assertEquals(count, group.count());
+        assertEquals(0, new BigDecimal(min).compareTo(group.min()), "min");
+        assertEquals(0, new BigDecimal(max).compareTo(group.max()), "max");
+    }
+}